@@ -11,6 +11,7 @@ plugins {
     alias(libs.plugins.runPaper)
     alias(libs.plugins.resourceFactory)
     alias(libs.plugins.accessWiden)
+    alias(libs.plugins.jmh)
 }
 
 group = "org.virgil.nekokjs"
@@ -95,9 +96,11 @@ val mixinSourceSet: SourceSet = sourceSets["mixin"]
 dependencies {
     apply `plugin dependencies`@{
         // JavaScript 引擎 - 使用与 KubeJS 相同的 Rhino 版本
-        compileOnly("dev.latvian.mods:rhino:2101.2.7-build.81")
+        compileOnly(libs.rhino)
         // Gson 用于 JSON 处理
         compileOnly("com.google.code.gson:gson:2.10.1")
+        // ASM 用于编译密度表达式，运行时由服务端（Paper 和 Mixin）提供
+        compileOnly(libs.asm)
         // CraftEngine API - 可选依赖
         compileOnly("net.momirealms:craft-engine-core:0.0.65")
         compileOnly("net.momirealms:craft-engine-bukkit:0.0.65")
@@ -108,6 +111,31 @@ dependencies {
         paperweight.devBundle(libs.leavesDevBundle)
     }
 
+    apply `benchmark dependencies`@{
+        // JMH 基准测试（src/jmh/java）在服务器外运行，需要把 compileOnly 的依赖放到运行时类路径上
+        jmhImplementation(mixinSourceSet.output)
+        jmhImplementation(libs.rhino)
+        jmhImplementation(libs.leavesApi)
+        jmhImplementation(libs.asm)
+    }
+
+    apply `benchmark server classes`@{
+        // HookGateBenchmark 对原版密度函数采样，需要映射后的服务端及其依赖库
+        configurations.jmhImplementation {
+            extendsFrom(configurations["mojangMappedServer"])
+        }
+    }
+
+    apply `test dependencies`@{
+        // 单元测试（src/test/java）同样在服务器外运行
+        testImplementation(platform(libs.junitBom))
+        testImplementation(libs.junitJupiter)
+        testRuntimeOnly(libs.junitPlatformLauncher)
+        testImplementation(mixinSourceSet.output)
+        testImplementation(libs.rhino)
+        testImplementation(libs.leavesApi)
+    }
+
     apply `mixin dependencies`@{
         compileOnly(mixinSourceSet.output)
         mixinSourceSet.apply {
@@ -123,6 +151,18 @@ dependencies {
     }
 }
 
+// 基准测试: ./gradlew jmh，结果以 JSON 写入 build/reports/jmh/，便于跨版本对比
+// 只运行部分基准: ./gradlew jmh -PjmhIncludes=NoiseBenchmark
+jmh {
+    jmhVersion = libs.versions.jmh
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("reports/jmh/results-${project.version}.json")
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    findProperty("jmhIncludes")?.let { includes = listOf(it.toString()) }
+}
+
 accessWideners {
     files.from(fileTree(mixinSourceSet.resources.srcDirs.first()) {
         include("*.accesswidener")
@@ -156,6 +196,10 @@ tasks {
         finalizedBy(applyAccessWideners)
     }
 
+    test {
+        useJUnitPlatform()
+    }
+
     shadowJar {
         from(mixinSourceSet.output)
         archiveFileName = "${project.name}-${version}.jar"
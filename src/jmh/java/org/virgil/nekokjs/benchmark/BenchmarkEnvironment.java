@@ -0,0 +1,35 @@
+package org.virgil.nekokjs.benchmark;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.virgil.nekokjs.script.ScriptEngine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 在服务器外创建脚本引擎
+ * 使用默认配置（解释模式、看门狗开启），日志只输出警告
+ */
+final class BenchmarkEnvironment {
+    static final Logger LOGGER = Logger.getLogger("NekoKJS-Benchmark");
+
+    static {
+        LOGGER.setLevel(Level.WARNING);
+    }
+
+    private BenchmarkEnvironment() {
+    }
+
+    static ScriptEngine createEngine(Path dataFolder) {
+        return new ScriptEngine(LOGGER, new YamlConfiguration(), dataFolder.toFile(), "benchmark");
+    }
+
+    static Path createTempDir() throws IOException {
+        Path dir = Files.createTempDirectory("nekokjs-jmh");
+        dir.toFile().deleteOnExit();
+        return dir;
+    }
+}
@@ -0,0 +1,90 @@
+package org.virgil.nekokjs.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.virgil.nekokjs.mixin.cache.ChunkDensityCache;
+import org.virgil.nekokjs.mixin.cache.DensityCacheManager;
+import org.virgil.nekokjs.mixin.cache.LongObjectClockCache;
+import org.virgil.nekokjs.mixin.metrics.HookMetrics;
+import org.virgil.nekokjs.util.CacheManager;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存基准
+ * 多个线程同时查找/写入，模拟多个世界生成线程共用缓存时的争用
+ * keySpace 控制命中率：小于缓存容量时大部分命中，大于容量时频繁淘汰
+ *
+ * 区块密度缓存每个线程独占一个（与 NoiseChunk 一致），keySpace 不影响它；
+ * CLOCK 表与 BiomeGridCacheManager 使用的结构相同，keySpace 对应被查询的区块数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class CacheBenchmark {
+    @Param({"10000", "200000"})
+    public int keySpace;
+
+    private CacheManager<Long, Double> cacheManager;
+    private LongObjectClockCache<Double> clockCache;
+
+    @State(Scope.Thread)
+    public static class Keys {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+        // 与原版主世界一致：4x8 的单元格，4x4 个水平单元格，48 个垂直单元格
+        private final ChunkDensityCache chunkCache = DensityCacheManager.create(0, -8, 0, 4, 8, 4, 48);
+
+        int next(int bound) {
+            return random.nextInt(bound);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        DensityCacheManager.clear();
+        cacheManager = new CacheManager<>(50000, 0);
+        clockCache = new LongObjectClockCache<>(50000,
+                HookMetrics.counter(HookMetrics.CACHE, "benchmark.hits"),
+                HookMetrics.counter(HookMetrics.CACHE, "benchmark.misses"),
+                HookMetrics.counter(HookMetrics.CACHE, "benchmark.evictions"));
+    }
+
+    @Benchmark
+    public double chunkDensityCache(Keys keys) {
+        int k = keys.next(5 * 5 * 49);
+        int index = keys.chunkCache.indexOf((k % 5) * 4, ((k / 25) - 8) * 8, ((k / 5) % 5) * 4);
+        double value = keys.chunkCache.get(index);
+        if (Double.isNaN(value)) {
+            keys.chunkCache.set(index, k * 0.5);
+            return k * 0.5;
+        }
+        return value;
+    }
+
+    @Benchmark
+    public Double clockCache(Keys keys) {
+        long key = keys.next(keySpace);
+        Double value = clockCache.get(key);
+        if (value == null) {
+            value = key * 0.5;
+            clockCache.put(key, value);
+        }
+        return value;
+    }
+
+    @Benchmark
+    public Double cacheManagerGetOrCompute(Keys keys) {
+        long key = keys.next(keySpace);
+        return cacheManager.getOrCompute(key, () -> key * 0.5);
+    }
+}
@@ -0,0 +1,43 @@
+package org.virgil.nekokjs.benchmark;
+
+import dev.latvian.mods.rhino.Scriptable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.virgil.nekokjs.script.ContextPool;
+import org.virgil.nekokjs.script.ScriptEngine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Context 池争用基准
+ * 32 个线程同时借出、嵌套借出和归还 Context，只测量吞吐量
+ * 线程独占性由 ContextPoolTest 校验
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(32)
+public class ContextPoolBenchmark {
+    private ScriptEngine scriptEngine;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        scriptEngine = BenchmarkEnvironment.createEngine(BenchmarkEnvironment.createTempDir());
+    }
+
+    @Benchmark
+    public Scriptable acquireRelease() {
+        try (ContextPool.Lease lease = scriptEngine.acquire()) {
+            try (ContextPool.Lease nested = scriptEngine.acquire()) {
+                return nested.scratchScope();
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.virgil.nekokjs.benchmark;
+
+import dev.latvian.mods.rhino.Context;
+import dev.latvian.mods.rhino.Function;
+import dev.latvian.mods.rhino.Scriptable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.virgil.nekokjs.mixin.bridge.DensitySlice;
+import org.virgil.nekokjs.script.ContextPool;
+import org.virgil.nekokjs.script.ScriptEngine;
+import org.virgil.nekokjs.script.WatchdogContextFactory.Phase;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 密度钩子基准，处理原版主世界一个切片（5 x 49 个角点）
+ * - perSample：每个角点一次 JS 调用并创建事件对象（worldgen.density 的路径）
+ * - slice：整个切片一次 JS 调用，脚本原地修改 double[]（worldgen.density.slice 的路径）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DensityHookBenchmark {
+    private ScriptEngine scriptEngine;
+    private Scriptable scope;
+    private Function perSampleCallback;
+    private Function sliceCallback;
+    private final DensitySlice slice = new DensitySlice(-64, 0, 4, 8, 49, 5, 1);
+    private final double[][] data = new double[5][49];
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        scriptEngine = BenchmarkEnvironment.createEngine(BenchmarkEnvironment.createTempDir());
+        try (ContextPool.Lease lease = scriptEngine.acquire()) {
+            scope = scriptEngine.createChildScope(lease.context());
+            perSampleCallback = (Function) scriptEngine.evaluate(scope,
+                    "(function (event) { return event.y > 200 ? -1 : event.density * 0.5; })", "perSample.js", null);
+            sliceCallback = (Function) scriptEngine.evaluate(scope, """
+                    (function (slice) {
+                        const values = slice.values;
+                        const sizeY = slice.sizeY;
+                        for (let z = 0; z < slice.sizeZ; z++) {
+                            for (let y = 0; y < sizeY; y++) {
+                                const i = z * sizeY + y;
+                                values[i] = slice.blockY(y) > 200 ? -1 : values[i] * 0.5;
+                            }
+                        }
+                    })""", "slice.js", null);
+        }
+        for (int z = 0; z < 5; z++) {
+            for (int y = 0; y < 49; y++) {
+                data[z][y] = (y - 24) / 24.0;
+            }
+        }
+    }
+
+    @Benchmark
+    public double perSample() {
+        double sum = 0;
+        try (ContextPool.Lease lease = scriptEngine.acquire()) {
+            Context cx = lease.context();
+            for (int z = 0; z < 5; z++) {
+                for (int y = 0; y < 49; y++) {
+                    Scriptable event = cx.newObject(lease.scratchScope());
+                    event.put(cx, "x", event, 0);
+                    event.put(cx, "y", event, slice.blockY(y));
+                    event.put(cx, "z", event, slice.blockZ(z));
+                    event.put(cx, "density", event, data[z][y]);
+                    event.put(cx, "cancelled", event, false);
+                    Object result;
+                    try (var guard = scriptEngine.guard(Phase.WORLDGEN, null, "worldgen.density", perSampleCallback)) {
+                        result = perSampleCallback.call(cx, scope, scope, new Object[]{event});
+                    }
+                    sum += ((Number) result).doubleValue();
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double slice() {
+        slice.load(0, 0, data);
+        try (ContextPool.Lease lease = scriptEngine.acquire();
+             var guard = scriptEngine.guard(Phase.WORLDGEN, null, "worldgen.density.slice", sliceCallback)) {
+            Context cx = lease.context();
+            sliceCallback.call(cx, scope, scope, new Object[]{cx.javaToJS(slice, lease.scratchScope())});
+        }
+        return slice.getValues()[0];
+    }
+}
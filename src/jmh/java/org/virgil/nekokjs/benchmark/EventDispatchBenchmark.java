@@ -0,0 +1,90 @@
+package org.virgil.nekokjs.benchmark;
+
+import dev.latvian.mods.rhino.Function;
+import dev.latvian.mods.rhino.Scriptable;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.bukkit.plugin.EventExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.virgil.nekokjs.api.event.CallbackList;
+import org.virgil.nekokjs.api.event.EventsAPI;
+import org.virgil.nekokjs.api.event.ScriptCallback;
+import org.virgil.nekokjs.event.TickBudgetManager;
+import org.virgil.nekokjs.event.TimingWheel;
+import org.virgil.nekokjs.lang.LanguageManager;
+import org.virgil.nekokjs.script.ContextPool;
+import org.virgil.nekokjs.script.ScriptEngine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事件分发基准
+ * 通过 EventsAPI.createExecutor 得到与注册到 Bukkit 时相同的执行器，直接调用它分发事件：
+ * 借出一次 Context、包装一次事件对象，再在看门狗 guard 中依次调用 N 个回调
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventDispatchBenchmark {
+    @Param({"1", "4", "16"})
+    public int callbacks;
+
+    private final CallbackList callbackList = new CallbackList();
+    private final SampleEvent event = new SampleEvent();
+    private EventExecutor executor;
+
+    /**
+     * 被包装为 JS 对象的事件
+     */
+    public static class SampleEvent extends Event {
+        private static final HandlerList HANDLERS = new HandlerList();
+
+        public int count;
+
+        public String getName() {
+            return "benchmark";
+        }
+
+        @Override
+        public HandlerList getHandlers() {
+            return HANDLERS;
+        }
+
+        public static HandlerList getHandlerList() {
+            return HANDLERS;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        ScriptEngine scriptEngine = BenchmarkEnvironment.createEngine(BenchmarkEnvironment.createTempDir());
+        EventsAPI eventsAPI = new EventsAPI(BenchmarkEnvironment.LOGGER, new LanguageManager(new YamlConfiguration()),
+                scriptEngine, new TickBudgetManager(BenchmarkEnvironment.LOGGER, null),
+                new TimingWheel(BenchmarkEnvironment.LOGGER), 1);
+        try (ContextPool.Lease lease = scriptEngine.acquire()) {
+            Scriptable scope = scriptEngine.createChildScope(lease.context());
+            for (int i = 0; i < callbacks; i++) {
+                Function function = (Function) scriptEngine.evaluate(scope,
+                        "(function (event) { event.count = event.count + " + i + "; return event.getName(); })",
+                        "callback" + i + ".js", null);
+                callbackList.add(new ScriptCallback(function));
+            }
+        }
+        executor = eventsAPI.createExecutor(SampleEvent.class, SampleEvent.class.getName(), callbackList);
+    }
+
+    @Benchmark
+    public int dispatch() throws Exception {
+        executor.execute(null, event);
+        return event.count;
+    }
+}
@@ -0,0 +1,88 @@
+package org.virgil.nekokjs.benchmark;
+
+import net.minecraft.SharedConstants;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.level.levelgen.DensityFunction;
+import net.minecraft.world.level.levelgen.DensityFunctions;
+import net.minecraft.world.level.levelgen.synth.BlendedNoise;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.virgil.nekokjs.api.event.CallbackList;
+import org.virgil.nekokjs.mixin.bridge.HookCapabilities;
+import org.virgil.nekokjs.mixin.metrics.HookMetrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 没有脚本监听时世界生成钩子的开销
+ * 密度函数为原版主世界的 base_3d_noise 加上高度梯度，与 NoiseChunk.fillSlice 中一次采样的工作量相当
+ * - vanilla：只有原版的一次密度采样
+ * - gated：采样后检查能力位，与 DensityFunctionMixin 在没有监听时执行的代码相同
+ * - ungated：采样后计时并查找空的 worldgen.density 回调列表（加入能力位之前经过 Bridge → EventsAPI 的路径）
+ *
+ * gated 应与 vanilla 没有可测量的差别
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HookGateBenchmark {
+    private static final String DENSITY_HOOK = "worldgen.density";
+
+    private final Map<String, CallbackList> eventCallbacks = new ConcurrentHashMap<>();
+    private DensityFunction density;
+    private int x;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // 原版密度函数的编解码器依赖内置注册表
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+        HookCapabilities.set(0);
+        density = DensityFunctions.add(
+                BlendedNoise.createUnseeded(0.25, 0.125, 80.0, 160.0, 8.0),
+                DensityFunctions.yClampedGradient(-64, 320, 1.5, -1.5)).clamp(-64.0, 64.0);
+        eventCallbacks.put(DENSITY_HOOK, new CallbackList());
+    }
+
+    private double sample() {
+        x = (x + 1) & 4095;
+        return density.compute(new DensityFunction.SinglePointContext(x & 15, (x >> 4) - 64, x >> 8));
+    }
+
+    @Benchmark
+    public double vanilla() {
+        return sample();
+    }
+
+    @Benchmark
+    public double gated() {
+        double value = sample();
+        if (!HookCapabilities.has(HookCapabilities.DENSITY_COMPUTE)) {
+            return value;
+        }
+        return -value;
+    }
+
+    @Benchmark
+    public double ungated() {
+        double value = sample();
+        long start = System.nanoTime();
+        try {
+            CallbackList callbacks = eventCallbacks.get(DENSITY_HOOK);
+            if (callbacks == null || callbacks.get().length == 0) {
+                return value;
+            }
+            return -value;
+        } finally {
+            HookMetrics.DENSITY_COMPUTE.stop(start);
+        }
+    }
+}
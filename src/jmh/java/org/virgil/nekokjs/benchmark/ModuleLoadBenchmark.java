@@ -0,0 +1,91 @@
+package org.virgil.nekokjs.benchmark;
+
+import dev.latvian.mods.rhino.Scriptable;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.virgil.nekokjs.api.core.ScriptLoaderAPI;
+import org.virgil.nekokjs.lang.LanguageManager;
+import org.virgil.nekokjs.script.ContextPool;
+import org.virgil.nekokjs.script.ScriptEngine;
+import org.virgil.nekokjs.script.ScriptPack;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模块加载基准
+ * - loadCold：每次使用新的 ScriptLoaderAPI，读取、解析并在包作用域中执行普通脚本
+ * - requireCold：每次使用新的 ScriptLoaderAPI，读取、包装并执行 CommonJS 模块
+ * - requireWarm：模块已在 exports 缓存中，只返回 module.exports
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ModuleLoadBenchmark {
+    private static final String SCRIPT_PATH = "data/lib/helpers.js";
+    private static final String MODULE_PATH = "data/lib/math.js";
+
+    private ScriptEngine scriptEngine;
+    private LanguageManager lang;
+    private ScriptPack pack;
+    private Scriptable globalScope;
+    private ScriptLoaderAPI warmLoader;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Path dataFolder = BenchmarkEnvironment.createTempDir();
+        Path packDir = Files.createDirectories(dataFolder.resolve("resources/benchmark"));
+        Files.writeString(packDir.resolve("pack.yml"), "pack:\n  name: benchmark\n");
+        Path module = packDir.resolve(MODULE_PATH);
+        Files.createDirectories(module.getParent());
+        Files.writeString(module, """
+                function lerp(a, b, t) { return a + (b - a) * t; }
+                function clamp(v, min, max) { return v < min ? min : (v > max ? max : v); }
+                const table = [];
+                for (let i = 0; i < 64; i++) { table.push(Math.sin(i / 10)); }
+                module.exports = { lerp: lerp, clamp: clamp, table: table };
+                """);
+        Files.writeString(packDir.resolve(SCRIPT_PATH), """
+                function helperLerp(a, b, t) { return a + (b - a) * t; }
+                const helperTable = [];
+                for (let i = 0; i < 64; i++) { helperTable.push(Math.cos(i / 10)); }
+                """);
+
+        scriptEngine = BenchmarkEnvironment.createEngine(dataFolder);
+        lang = new LanguageManager(new YamlConfiguration());
+        pack = new ScriptPack(packDir.toFile());
+        try (ContextPool.Lease lease = scriptEngine.acquire()) {
+            globalScope = scriptEngine.createChildScope(lease.context());
+        }
+        warmLoader = newLoader();
+        warmLoader.require(MODULE_PATH);
+    }
+
+    private ScriptLoaderAPI newLoader() {
+        return new ScriptLoaderAPI(BenchmarkEnvironment.LOGGER, lang, scriptEngine,
+                scriptEngine.createPackScope(globalScope, pack), pack);
+    }
+
+    @Benchmark
+    public Object loadCold() {
+        return newLoader().load(SCRIPT_PATH);
+    }
+
+    @Benchmark
+    public Object requireCold() {
+        return newLoader().require(MODULE_PATH);
+    }
+
+    @Benchmark
+    public Object requireWarm() {
+        return warmLoader.require(MODULE_PATH);
+    }
+}
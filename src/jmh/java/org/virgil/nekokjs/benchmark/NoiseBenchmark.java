@@ -0,0 +1,80 @@
+package org.virgil.nekokjs.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.virgil.nekokjs.api.worldgen.NoiseAPI;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NoiseAPI 基准
+ * - generatorValue：每种 NoiseType 单次 getValue（4 个八度）
+ * - composedDensity：噪声 + 高度梯度 + 样条 + 钳制组合而成的密度函数，经 getDensity 按 ID 求值
+ * - graphDensity / expressionDensity：同一个 clamp(噪声 + 高度梯度) 分别以密度函数图和表达式注册，getDensity 都链接为同一种编译后的节点树
+ *
+ * 坐标按区块内的方块顺序推进，和世界生成时的访问模式一致
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NoiseBenchmark {
+    @Param({"PERLIN", "SIMPLEX", "CELLULAR", "VALUE", "RIDGED"})
+    public NoiseAPI.NoiseType type;
+
+    private NoiseAPI.NoiseGenerator generator;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        generator = new NoiseAPI.NoiseGenerator("benchmark:" + type.name().toLowerCase(), type, 0.01, 4, 0.5, 2.0, 42L);
+
+        NoiseAPI.setCacheEnabled(false);
+        NoiseAPI.registerNoise("benchmark:terrain", Map.of("type", type.name(), "frequency", 0.01, "octaves", 4, "seed", 42L));
+        NoiseAPI.registerDensityFunction("benchmark:noise", Map.of("type", "NOISE", "noise", "benchmark:terrain", "scale", 1.0));
+        NoiseAPI.registerDensityFunction("benchmark:gradient", Map.of(
+                "type", "Y_CLAMPED_GRADIENT", "fromY", -64, "toY", 320, "fromValue", 1.0, "toValue", -1.0));
+        NoiseAPI.registerDensityFunction("benchmark:sum", Map.of("type", "ADD", "input1", "benchmark:noise", "input2", "benchmark:gradient"));
+        NoiseAPI.registerDensityFunction("benchmark:shaped", Map.of(
+                "type", "SPLINE", "input", "benchmark:sum",
+                "points", List.of(-1.0, -0.2, 0.0, 0.3, 1.0),
+                "values", List.of(-1.0, -0.5, 0.0, 0.6, 1.0)));
+        NoiseAPI.registerDensityFunction("benchmark:final", Map.of("type", "CLAMP", "input", "benchmark:shaped", "min", -1.0, "max", 1.0));
+
+        NoiseAPI.registerDensityFunction("benchmark:clamped", Map.of("type", "CLAMP", "input", "benchmark:sum", "min", -1.0, "max", 1.0));
+        NoiseAPI.registerDensityExpression("benchmark:expression",
+                "clamp(noise('benchmark:terrain') + y_gradient(-64, 320, 1, -1), -1, 1)");
+    }
+
+    @Benchmark
+    public double generatorValue() {
+        int i = index++;
+        return generator.getValue(i & 15, (i >> 8) & 255, (i >> 4) & 15);
+    }
+
+    @Benchmark
+    public double composedDensity() {
+        int i = index++;
+        return NoiseAPI.getDensity("benchmark:final", i & 15, ((i >> 8) & 255) - 64, (i >> 4) & 15);
+    }
+
+    @Benchmark
+    public double graphDensity() {
+        int i = index++;
+        return NoiseAPI.getDensity("benchmark:clamped", i & 15, ((i >> 8) & 255) - 64, (i >> 4) & 15);
+    }
+
+    @Benchmark
+    public double expressionDensity() {
+        int i = index++;
+        return NoiseAPI.getDensity("benchmark:expression", i & 15, ((i >> 8) & 255) - 64, (i >> 4) & 15);
+    }
+}
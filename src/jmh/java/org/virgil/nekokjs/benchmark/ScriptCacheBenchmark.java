@@ -0,0 +1,104 @@
+package org.virgil.nekokjs.benchmark;
+
+import dev.latvian.mods.rhino.Context;
+import dev.latvian.mods.rhino.Script;
+import dev.latvian.mods.rhino.Scriptable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.virgil.nekokjs.script.ContextPool;
+import org.virgil.nekokjs.script.ScriptCache;
+import org.virgil.nekokjs.script.ScriptEngine;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 编译脚本磁盘缓存基准
+ * setup 中把一个脚本包的模块编译后写入磁盘缓存，再用新的 ScriptCache（内存为空）读回并执行，
+ * 结果必须与直接编译执行一致；磁盘缓存被关闭（当前 Rhino 版本无法序列化或反序列化）时抛出异常
+ *
+ * - compile：每次重新解析编译
+ * - diskHit：从磁盘缓存反序列化
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScriptCacheBenchmark {
+    private static final String SOURCE_NAME = "data/main.js";
+    private static final String SOURCE = """
+            function lerp(a, b, t) { return a + (b - a) * t; }
+            const table = [];
+            for (let i = 0; i < 64; i++) { table.push(Math.sin(i / 10)); }
+            const settings = { scale: 0.5, name: "benchmark", layers: [1, 2, 3] };
+            const result = lerp(table[3], table[40], settings.scale) + settings.layers.length;
+            String(result);
+            """;
+
+    private ScriptEngine scriptEngine;
+    private File cacheDir;
+    private ScriptCache reader;
+    private String key;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Path dataFolder = BenchmarkEnvironment.createTempDir();
+        scriptEngine = BenchmarkEnvironment.createEngine(dataFolder);
+        cacheDir = dataFolder.resolve("cache/scripts").toFile();
+
+        ScriptCache writer = newCache();
+        key = writer.key(SOURCE, SOURCE_NAME);
+        Object expected;
+        try (ContextPool.Lease lease = scriptEngine.acquire()) {
+            Script script = scriptEngine.getCompiler().compile(lease.context(), SOURCE, SOURCE_NAME);
+            writer.put(key, script);
+            expected = exec(lease.context(), script);
+        }
+        if (!writer.isDiskEnabled()) {
+            throw new IllegalStateException("Compiled scripts cannot be written to the disk cache");
+        }
+
+        reader = newCache();
+        Script cached = reader.get(key);
+        if (cached == null || reader.getDiskHits() != 1 || !reader.isDiskEnabled()) {
+            throw new IllegalStateException("Compiled script did not round-trip through the disk cache");
+        }
+        try (ContextPool.Lease lease = scriptEngine.acquire()) {
+            Object actual = exec(lease.context(), cached);
+            if (!Objects.equals(String.valueOf(expected), String.valueOf(actual))) {
+                throw new IllegalStateException("Cached script returned " + actual + ", expected " + expected);
+            }
+        }
+    }
+
+    /**
+     * 内存缓存容量为 0，每次 get 都读取磁盘
+     */
+    private ScriptCache newCache() {
+        return new ScriptCache(BenchmarkEnvironment.LOGGER, cacheDir, true, 0, 16L * 1024 * 1024, "benchmark", 0);
+    }
+
+    private Object exec(Context cx, Script script) {
+        Scriptable scope = scriptEngine.createChildScope(cx);
+        return script.exec(cx, scope, scope);
+    }
+
+    @Benchmark
+    public Script compile() {
+        try (ContextPool.Lease lease = scriptEngine.acquire()) {
+            return scriptEngine.getCompiler().compile(lease.context(), SOURCE, SOURCE_NAME);
+        }
+    }
+
+    @Benchmark
+    public Script diskHit() {
+        return reader.get(key);
+    }
+}
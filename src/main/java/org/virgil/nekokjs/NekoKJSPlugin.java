@@ -8,6 +8,9 @@ import org.bukkit.plugin.java.JavaPlugin;
 import org.virgil.nekokjs.command.NekoKJSCommand;
 import org.virgil.nekokjs.config.ConfigManager;
 import org.virgil.nekokjs.lang.LanguageManager;
+import org.virgil.nekokjs.mixin.cache.BiomeGridCacheManager;
+import org.virgil.nekokjs.mixin.metrics.HookMetrics;
+import org.virgil.nekokjs.script.ScriptEngine;
 import org.virgil.nekokjs.script.ScriptManager;
 import org.virgil.nekokjs.event.EventManager;
 import org.virgil.nekokjs.dimension.DimensionManager;
@@ -24,6 +27,7 @@ import java.util.logging.Logger;
 public class NekoKJSPlugin extends JavaPlugin {
     private static NekoKJSPlugin instance;
     private ConfigManager configManager;
+    private ScriptEngine scriptEngine;
     private ScriptManager scriptManager;
     private EventManager eventManager;
     private DimensionManager dimensionManager;
@@ -70,9 +74,21 @@ public class NekoKJSPlugin extends JavaPlugin {
         
         logger.info(lang.pluginStarting());
         
+        // 发布钩子、事件和脚本包指标到 JMX
+        if (configManager.getConfig().getBoolean("metrics.jmx", true)) {
+            HookMetrics.publish();
+        }
+        
+        // 生物群系网格缓存容量（区块数），在区块生成开始前确定
+        BiomeGridCacheManager.configure(configManager.getConfig().getInt(
+                "performance.worldgen-cache.biome-chunks", BiomeGridCacheManager.DEFAULT_MAX_CHUNKS));
+        
         // 使用 resources 文件夹作为脚本目录
         File scriptsDir = configManager.getResourcesFolder();
         
+        // 初始化脚本引擎（共享的 ContextFactory 和标准对象作用域，必须最先创建）
+        scriptEngine = new ScriptEngine(this);
+        
         // 初始化事件管理器（必须在脚本管理器之前，因为 ScriptContext 需要访问 EventsAPI）
         eventManager = new EventManager(this);
         
@@ -112,6 +128,8 @@ public class NekoKJSPlugin extends JavaPlugin {
             eventManager.cleanup();
         }
         
+        HookMetrics.unpublish();
+        
         if (lang != null) {
             logger.info(lang.pluginStopped());
         } else {
@@ -127,6 +145,10 @@ public class NekoKJSPlugin extends JavaPlugin {
         return configManager;
     }
 
+    public ScriptEngine getScriptEngine() {
+        return scriptEngine;
+    }
+
     public ScriptManager getScriptManager() {
         return scriptManager;
     }
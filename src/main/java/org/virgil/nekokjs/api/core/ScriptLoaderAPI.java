@@ -1,37 +1,59 @@
 package org.virgil.nekokjs.api.core;
 
 import dev.latvian.mods.rhino.Context;
-import dev.latvian.mods.rhino.ContextFactory;
+import dev.latvian.mods.rhino.CustomFunction;
+import dev.latvian.mods.rhino.Function;
 import dev.latvian.mods.rhino.Scriptable;
+import dev.latvian.mods.rhino.ScriptableObject;
+import dev.latvian.mods.rhino.type.TypeInfo;
+import org.virgil.nekokjs.jfr.JfrEvents;
+import org.virgil.nekokjs.jfr.ModuleLoadEvent;
 import org.virgil.nekokjs.lang.LanguageManager;
+import org.virgil.nekokjs.script.ContextPool;
+import org.virgil.nekokjs.script.ScriptEngine;
 import org.virgil.nekokjs.script.ScriptPack;
+import org.virgil.nekokjs.script.ScriptTimeoutError;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
  * 脚本加载器 API
  * 用于在主脚本中加载其他模块脚本
+ *
+ * - load(path)：在脚本包作用域中直接执行文件，顶层变量对整个脚本包可见，只执行一次
+ * - require(path)：CommonJS 模块，文件包裹在函数作用域中执行，
+ *   返回 module.exports，按规范化路径缓存，重复 require 返回同一个对象
+ * - require.lazy(path)：返回一个函数，第一次调用时才加载模块，用于按需加载子模块
  */
 public class ScriptLoaderAPI {
+    // 包裹头与源码第一行放在同一行，保证错误信息中的行号不变
+    private static final String MODULE_HEADER = "(function (exports, require, module, __filename, __dirname) {";
+    private static final String MODULE_FOOTER = "\n})";
+    
     private final Logger logger;
     private final LanguageManager lang;
-    private final ContextFactory contextFactory;
+    private final ScriptEngine scriptEngine;
     private final Scriptable scope;
     private final ScriptPack pack;
     private final Set<String> loadedScripts;
+    private final Map<String, Scriptable> moduleCache;
     
-    public ScriptLoaderAPI(Logger logger, LanguageManager lang, ContextFactory contextFactory, Scriptable scope, ScriptPack pack) {
+    public ScriptLoaderAPI(Logger logger, LanguageManager lang, ScriptEngine scriptEngine, Scriptable scope, ScriptPack pack) {
         this.logger = logger;
         this.lang = lang;
-        this.contextFactory = contextFactory;
+        this.scriptEngine = scriptEngine;
         this.scope = scope;
         this.pack = pack;
-        this.loadedScripts = new HashSet<>();
+        this.loadedScripts = ConcurrentHashMap.newKeySet();
+        this.moduleCache = new ConcurrentHashMap<>();
     }
     
     /**
@@ -52,38 +74,14 @@ public class ScriptLoaderAPI {
             return null;
         }
         
-        // 构建完整路径
-        File scriptFile = new File(pack.getPackDir(), path);
-        
-        // 验证文件
-        if (!scriptFile.exists()) {
-            logger.warning(lang.scriptModuleNotFound(path));
-            return null;
-        }
-        
-        if (!scriptFile.isFile()) {
-            logger.warning(lang.scriptModuleNotFile(path));
-            return null;
-        }
-        
-        // 安全检查：确保文件在包目录内
-        try {
-            String canonicalPackPath = pack.getPackDir().getCanonicalPath();
-            String canonicalScriptPath = scriptFile.getCanonicalPath();
-            
-            if (!canonicalScriptPath.startsWith(canonicalPackPath)) {
-                logger.warning(lang.scriptModuleSecurityError(path));
-                return null;
-            }
-        } catch (IOException e) {
-            logger.warning(lang.scriptModulePathValidationFailed(e.getMessage()));
+        File scriptFile = resolveFile(path);
+        if (scriptFile == null) {
             return null;
         }
         
         // 加载并执行脚本
         try {
             String scriptContent = Files.readString(scriptFile.toPath());
-            Context ctx = contextFactory.enter();
             
             // 标记为已加载
             loadedScripts.add(path);
@@ -91,7 +89,7 @@ public class ScriptLoaderAPI {
             logger.info(lang.scriptModuleLoading(pack.getNamespace(), path));
             
             // 在同一个 scope 中执行，共享变量和函数
-            return ctx.evaluateString(scope, scriptContent, path, 1, null);
+            return evaluateScript(path, scriptContent);
         } catch (IOException e) {
             logger.severe(lang.scriptModuleReadFailed(path, e.getMessage()));
             return null;
@@ -103,38 +101,221 @@ public class ScriptLoaderAPI {
     }
     
     /**
-     * 加载脚本文件（别名）
+     * 在脚本包作用域中执行脚本，记录 JFR 模块加载事件
+     */
+    private Object evaluateScript(String path, String source) {
+        ModuleLoadEvent jfrEvent = JfrEvents.beginModuleLoad();
+        long startTime = System.nanoTime();
+        boolean success = false;
+        try {
+            Object result = scriptEngine.evaluate(scope, source, path, pack);
+            success = true;
+            return result;
+        } finally {
+            JfrEvents.commitModuleLoad(jfrEvent, pack.getNamespace(), path, success, System.nanoTime() - startTime);
+        }
+    }
+    
+    /**
+     * 加载 CommonJS 模块（路径相对于包根目录）
+     *
+     * @param path 模块路径，例如 "data/utils/helper"
+     * @return 模块的 module.exports，加载失败时抛出异常
      */
     public Object require(String path) {
-        return load(path);
+        return require("", path);
+    }
+    
+    /**
+     * 加载 CommonJS 模块
+     * 以 ./ 或 ../ 开头的路径相对于发起 require 的模块所在目录，其他路径相对于包根目录
+     *
+     * @param baseDir 发起 require 的模块所在目录（相对于包根目录）
+     * @param request 模块路径
+     * @return 模块的 module.exports
+     */
+    public Object require(String baseDir, String request) {
+        String path = resolveModulePath(baseDir, request);
+        
+        // 已缓存（包括正在加载中的循环依赖）直接返回当前的 exports
+        Scriptable cached = moduleCache.get(path);
+        if (cached != null) {
+            try (ContextPool.Lease lease = scriptEngine.acquire()) {
+                return ScriptableObject.getProperty(cached, "exports", lease.context());
+            }
+        }
+        
+        File scriptFile = resolveFile(path);
+        if (scriptFile == null) {
+            throw new IllegalArgumentException("Cannot find module: " + request);
+        }
+        
+        String source;
+        try {
+            source = Files.readString(scriptFile.toPath());
+        } catch (IOException e) {
+            logger.severe(lang.scriptModuleReadFailed(path, e.getMessage()));
+            throw new IllegalStateException("Cannot read module: " + path, e);
+        }
+        
+        try (ContextPool.Lease lease = scriptEngine.acquire()) {
+            return evaluateModule(lease.context(), path, source);
+        }
     }
     
     /**
-     * 检查脚本是否已加载
+     * 在函数作用域中执行模块并缓存 module 对象
+     */
+    private Object evaluateModule(Context cx, String path, String source) {
+        Scriptable module = cx.newObject(scope);
+        Scriptable exports = cx.newObject(scope);
+        String moduleDir = getParentDir(path);
+        ScriptableObject.putProperty(module, "exports", exports, cx);
+        ScriptableObject.putProperty(module, "id", path, cx);
+        moduleCache.put(path, module);
+        
+        logger.info(lang.scriptModuleLoading(pack.getNamespace(), path));
+        ModuleLoadEvent jfrEvent = JfrEvents.beginModuleLoad();
+        long startTime = System.nanoTime();
+        boolean success = false;
+        try {
+            // 模块在独立的函数作用域中执行，父作用域为脚本包作用域
+            Function factory = (Function) scriptEngine.evaluate(scope, MODULE_HEADER + source + MODULE_FOOTER, path, pack);
+            factory.call(cx, scope, exports, new Object[]{
+                exports,
+                createRequireFunction(cx, moduleDir),
+                module,
+                path,
+                moduleDir
+            });
+            success = true;
+            return ScriptableObject.getProperty(module, "exports", cx);
+        } catch (RuntimeException | ScriptTimeoutError e) {
+            // 加载失败的模块不缓存，下次 require 时重新尝试
+            moduleCache.remove(path);
+            logger.severe(lang.scriptModuleExecuteFailed(path, e.getMessage()));
+            throw e;
+        } finally {
+            JfrEvents.commitModuleLoad(jfrEvent, pack.getNamespace(), path, success, System.nanoTime() - startTime);
+        }
+    }
+    
+    /**
+     * 创建 require 函数
+     * 返回的函数附带 lazy 属性：require.lazy(path) 返回一个按需加载模块的函数
+     *
+     * @param baseDir 相对路径的基准目录（相对于包根目录），包根目录为 ""
+     */
+    public Function createRequireFunction(Context cx, String baseDir) {
+        CustomFunction requireFunc = new CustomFunction(
+            "require",
+            (context, args) -> args.length > 0 ? require(baseDir, context.toString(args[0])) : null,
+            new TypeInfo[]{TypeInfo.STRING}
+        );
+        
+        CustomFunction lazyFunc = new CustomFunction(
+            "lazy",
+            (context, args) -> {
+                if (args.length == 0) {
+                    return null;
+                }
+                String request = context.toString(args[0]);
+                return new CustomFunction(
+                    "lazyModule",
+                    (callContext, callArgs) -> require(baseDir, request),
+                    new TypeInfo[0]
+                );
+            },
+            new TypeInfo[]{TypeInfo.STRING}
+        );
+        ScriptableObject.putProperty(requireFunc, "lazy", lazyFunc, cx);
+        return requireFunc;
+    }
+    
+    /**
+     * 检查脚本是否已加载（load 或 require）
      */
     public boolean isLoaded(String path) {
         path = normalizePath(path);
-        return loadedScripts.contains(path);
+        return loadedScripts.contains(path) || moduleCache.containsKey(path);
     }
     
     /**
      * 获取已加载的脚本列表
      */
     public String[] getLoadedScripts() {
-        return loadedScripts.toArray(new String[0]);
+        Set<String> all = new HashSet<>(loadedScripts);
+        all.addAll(moduleCache.keySet());
+        return all.toArray(new String[0]);
     }
     
     /**
      * 获取已加载脚本数量
      */
     public int getLoadedCount() {
-        return loadedScripts.size();
+        return getLoadedScripts().length;
+    }
+    
+    /**
+     * 验证脚本文件
+     *
+     * @return 包目录内存在的脚本文件，验证失败时返回 null
+     */
+    private File resolveFile(String path) {
+        // 构建完整路径
+        File scriptFile = new File(pack.getPackDir(), path);
+        
+        // 验证文件
+        if (!scriptFile.exists()) {
+            logger.warning(lang.scriptModuleNotFound(path));
+            return null;
+        }
+        
+        if (!scriptFile.isFile()) {
+            logger.warning(lang.scriptModuleNotFile(path));
+            return null;
+        }
+        
+        // 安全检查：确保文件在包目录内
+        try {
+            String canonicalPackPath = pack.getPackDir().getCanonicalPath();
+            String canonicalScriptPath = scriptFile.getCanonicalPath();
+            
+            if (!canonicalScriptPath.startsWith(canonicalPackPath)) {
+                logger.warning(lang.scriptModuleSecurityError(path));
+                return null;
+            }
+        } catch (IOException e) {
+            logger.warning(lang.scriptModulePathValidationFailed(e.getMessage()));
+            return null;
+        }
+        return scriptFile;
+    }
+    
+    /**
+     * 解析模块路径
+     * ./ 和 ../ 开头的路径相对于 baseDir，其他路径相对于包根目录
+     */
+    private String resolveModulePath(String baseDir, String request) {
+        String path = request.replace("\\", "/");
+        if (!baseDir.isEmpty() && (path.startsWith("./") || path.startsWith("../"))) {
+            path = Path.of(baseDir).resolve(path).normalize().toString();
+        }
+        return normalizePath(path);
+    }
+    
+    private static String getParentDir(String path) {
+        int index = path.lastIndexOf('/');
+        return index > 0 ? path.substring(0, index) : "";
     }
     
     /**
      * 规范化路径
      */
     private String normalizePath(String path) {
+        // 替换反斜杠为正斜杠
+        path = path.replace("\\", "/");
+        
         // 移除开头的 /
         if (path.startsWith("/")) {
             path = path.substring(1);
@@ -150,9 +331,6 @@ public class ScriptLoaderAPI {
             path = path + ".js";
         }
         
-        // 替换反斜杠为正斜杠
-        path = path.replace("\\", "/");
-        
         return path;
     }
 }
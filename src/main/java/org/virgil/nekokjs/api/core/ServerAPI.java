@@ -4,7 +4,13 @@ import org.bukkit.Bukkit;
 import org.bukkit.Server;
 import org.bukkit.entity.Player;
 import org.virgil.nekokjs.NekoKJSPlugin;
+import org.virgil.nekokjs.event.TimingWheel;
+import org.virgil.nekokjs.script.ScriptEngine;
+import org.virgil.nekokjs.script.ScriptPack;
+import org.virgil.nekokjs.script.ScriptTimeoutError;
+import org.virgil.nekokjs.script.WatchdogContextFactory;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 
 /**
@@ -111,41 +117,74 @@ public class ServerAPI {
      * 延迟执行命令（tick）
      * @param command 命令
      * @param delay 延迟时间（tick）
+     * @return 可取消的任务句柄
      */
-    public void runCommandLater(String command, long delay) {
-        try {
-            // Folia：使用全局区域调度器
-            var globalRegionScheduler = Bukkit.getGlobalRegionScheduler();
-            globalRegionScheduler.runDelayed(plugin, task -> {
-                Bukkit.dispatchCommand(Bukkit.getConsoleSender(), command);
-            }, delay);
-        } catch (NoSuchMethodError e) {
-            // Paper/Spigot：使用传统调度器
-            server.getScheduler().runTaskLater(plugin, () -> {
-                Bukkit.dispatchCommand(Bukkit.getConsoleSender(), command);
-            }, delay);
-        }
+    public TimingWheel.Task runCommandLater(String command, long delay) {
+        ScriptPack pack = plugin.getScriptEngine().getCallingPack();
+        return getTimingWheel().schedule(pack, createCommandTask(pack, command), delay, 0, 0);
     }
 
     /**
      * 延迟执行任务（tick）
      * JavaScript 可以传入回调函数
+     * 用法: const task = Server.runTaskLater(() => { ... }, 40); task.cancel()
      * @param task 要执行的任务（Runnable 或 JavaScript 函数）
      * @param delay 延迟时间（tick）
+     * @return 可取消的任务句柄
      */
-    public void runTaskLater(Object task, long delay) {
-        try {
-            // Folia：使用全局区域调度器
-            var globalRegionScheduler = Bukkit.getGlobalRegionScheduler();
-            globalRegionScheduler.runDelayed(plugin, scheduledTask -> {
-                executeTask(task);
-            }, delay);
-        } catch (NoSuchMethodError e) {
-            // Paper/Spigot：使用传统调度器
-            server.getScheduler().runTaskLater(plugin, () -> {
-                executeTask(task);
-            }, delay);
-        }
+    public TimingWheel.Task runTaskLater(Object task, long delay) {
+        return getTimingWheel().schedule(getOwner(task), createBudgetedTask(task), delay, 0, 0);
+    }
+
+    /**
+     * 定时重复执行任务
+     * 用法: const task = Server.runTaskTimer(() => { ... }, 20, 100)
+     * @param task 要执行的任务（Runnable 或 JavaScript 函数）
+     * @param delay 初始延迟（tick）
+     * @param period 重复间隔（tick）
+     * @return 可取消的任务句柄
+     */
+    public TimingWheel.Task runTaskTimer(Object task, long delay, long period) {
+        return runTaskTimer(task, delay, period, 0);
+    }
+
+    /**
+     * 定时重复执行任务，首次执行加入随机抖动
+     * 大量相同间隔的任务可以用 jitter 错开到不同 tick
+     * 用法: Server.runTaskTimer(() => { ... }, 20, 100, 20)
+     * @param jitter 首次执行的随机抖动上限（tick）
+     */
+    public TimingWheel.Task runTaskTimer(Object task, long delay, long period, long jitter) {
+        return getTimingWheel().schedule(getOwner(task), createBudgetedTask(task), delay, Math.max(1, period), jitter);
+    }
+
+    /**
+     * 将任务包装为受 Tick 预算管理器控制的动作
+     * 所属脚本包本 tick 的预算用尽时，任务顺延到下一 tick 执行
+     */
+    private Runnable createBudgetedTask(Object task) {
+        ScriptPack pack = getOwner(task);
+        String packNamespace = pack != null ? pack.getNamespace() : null;
+        Runnable runnable = () -> executeTask(task);
+        return () -> {
+            // 热重载期间未激活的脚本包不执行任务
+            if (pack != null && !pack.isActive()) {
+                return;
+            }
+            plugin.getEventManager().getTickBudget().submit(packNamespace, runnable, runnable);
+        };
+    }
+
+    /**
+     * 获取 JS 任务所属的脚本包，卸载或重载脚本包时据此取消任务
+     */
+    @Nullable
+    private static ScriptPack getOwner(Object task) {
+        return task instanceof dev.latvian.mods.rhino.Function function ? ScriptEngine.getOwningPack(function) : null;
+    }
+
+    private TimingWheel getTimingWheel() {
+        return plugin.getEventManager().getTimingWheel();
     }
 
     /**
@@ -155,11 +194,14 @@ public class ServerAPI {
         if (task instanceof Runnable runnable) {
             runnable.run();
         } else if (task instanceof dev.latvian.mods.rhino.Function function) {
-            try {
-                var contextFactory = new dev.latvian.mods.rhino.ContextFactory();
-                var ctx = contextFactory.enter();
-                var scope = ctx.initStandardObjects();
-                function.call(ctx, scope, scope, new Object[0]);
+            ScriptEngine scriptEngine = plugin.getScriptEngine();
+            try (var lease = scriptEngine.acquire();
+                 var guard = scriptEngine.guard(WatchdogContextFactory.Phase.EVENT, ScriptEngine.getOwningPack(function), "Server task", function)) {
+                // 在注册任务的脚本包作用域中执行，Context 从池中借出
+                var scope = ScriptEngine.getCallbackScope(function);
+                function.call(lease.context(), scope, scope, new Object[0]);
+            } catch (ScriptTimeoutError e) {
+                plugin.getLogger().severe(plugin.getConfigManager().getLanguageManager().scriptTimeout(e.getMessage()));
             } catch (Exception e) {
                 plugin.getLogger().warning("执行延迟任务时出错: " + e.getMessage());
                 e.printStackTrace();
@@ -172,20 +214,25 @@ public class ServerAPI {
      * @param command 命令
      * @param delay 初始延迟（tick）
      * @param period 重复间隔（tick）
+     * @return 可取消的任务句柄
      */
-    public void runCommandTimer(String command, long delay, long period) {
-        try {
-            // Folia：使用全局区域调度器
-            var globalRegionScheduler = Bukkit.getGlobalRegionScheduler();
-            globalRegionScheduler.runAtFixedRate(plugin, task -> {
-                Bukkit.dispatchCommand(Bukkit.getConsoleSender(), command);
-            }, delay, period);
-        } catch (NoSuchMethodError e) {
-            // Paper/Spigot：使用传统调度器
-            server.getScheduler().runTaskTimer(plugin, () -> {
-                Bukkit.dispatchCommand(Bukkit.getConsoleSender(), command);
-            }, delay, period);
-        }
+    public TimingWheel.Task runCommandTimer(String command, long delay, long period) {
+        ScriptPack pack = plugin.getScriptEngine().getCallingPack();
+        return getTimingWheel().schedule(pack, createCommandTask(pack, command), delay, Math.max(1, period), 0);
+    }
+
+    /**
+     * 将命令包装为定时任务
+     * 任务归属于调度它的脚本包，卸载或重载脚本包时随之取消
+     */
+    private Runnable createCommandTask(@Nullable ScriptPack pack, String command) {
+        return () -> {
+            // 热重载期间未激活的脚本包不执行任务
+            if (pack != null && !pack.isActive()) {
+                return;
+            }
+            Bukkit.dispatchCommand(Bukkit.getConsoleSender(), command);
+        };
     }
 
     /**
@@ -0,0 +1,57 @@
+package org.virgil.nekokjs.api.event;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * 写时复制的回调数组
+ * 派发线程（主线程、区域线程、世界生成线程）只读取 volatile 数组，无需加锁；
+ * 注册和注销很少发生，在锁内复制整个数组
+ */
+public class CallbackList {
+    static final ScriptCallback[] EMPTY = new ScriptCallback[0];
+
+    private volatile ScriptCallback[] callbacks = EMPTY;
+
+    /**
+     * 获取当前回调快照，调用方不得修改返回的数组
+     */
+    public ScriptCallback[] get() {
+        return callbacks;
+    }
+
+    public synchronized void add(ScriptCallback callback) {
+        ScriptCallback[] current = callbacks;
+        ScriptCallback[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = callback;
+        callbacks = updated;
+    }
+
+    /**
+     * 移除满足条件的回调
+     *
+     * @return 移除的数量
+     */
+    public synchronized int removeIf(Predicate<ScriptCallback> predicate) {
+        ScriptCallback[] current = callbacks;
+        ScriptCallback[] updated = Arrays.stream(current)
+                .filter(predicate.negate())
+                .toArray(ScriptCallback[]::new);
+        if (updated.length != current.length) {
+            callbacks = updated.length == 0 ? EMPTY : updated;
+        }
+        return current.length - updated.length;
+    }
+
+    public synchronized void clear() {
+        callbacks = EMPTY;
+    }
+
+    public int size() {
+        return callbacks.length;
+    }
+
+    public boolean isEmpty() {
+        return callbacks.length == 0;
+    }
+}
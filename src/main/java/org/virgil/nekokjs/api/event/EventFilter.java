@@ -0,0 +1,266 @@
+package org.virgil.nekokjs.api.event;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Registry;
+import org.bukkit.Tag;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityEvent;
+import org.bukkit.event.player.PlayerEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.world.WorldEvent;
+import org.virgil.nekokjs.lang.LanguageManager;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * 事件过滤器
+ * 将 Events 注册选项中的声明式过滤条件编译为 Java 断言，
+ * 在 Bukkit 执行器中先行判断，不匹配的事件不会进入 JS 引擎
+ *
+ * 支持的选项（值可以是单个字符串或数组）：
+ * - world: 世界名称
+ * - material: 事件涉及的方块材质（方块事件的方块、交互事件点击的方块）
+ * - blockTag: 方块标签，例如 "minecraft:logs"
+ * - item: 交互事件中手持物品的材质
+ * - entityType: 实体类型，例如 "zombie"（玩家事件视为 player）
+ * - permission: 触发事件的玩家需要拥有的权限
+ * - cancelled: 事件的取消状态（true/false）
+ */
+public final class EventFilter {
+
+    private EventFilter() {}
+
+    /**
+     * 编译过滤选项
+     *
+     * 名称全部无法解析的选项编译为永远不匹配的断言，回调不会被触发
+     *
+     * @return 组合后的断言，没有任何过滤条件时返回 null
+     */
+    @Nullable
+    public static Predicate<Event> compile(@Nullable Map<String, Object> options, Logger logger, LanguageManager lang) {
+        if (options == null || options.isEmpty()) {
+            return null;
+        }
+
+        List<Predicate<Event>> predicates = new ArrayList<>();
+
+        Set<String> worlds = toStringSet(options.get("world"));
+        if (!worlds.isEmpty()) {
+            predicates.add(event -> {
+                World world = getWorld(event);
+                return world != null && worlds.contains(world.getName());
+            });
+        }
+
+        // 给出了选项但没有任何名称能解析时仍然添加断言（永远不匹配），不能退化为不过滤
+        Set<Material> materials = toMaterials(options.get("material"), logger, lang);
+        if (options.get("material") != null) {
+            warnIfEmpty(materials, "material", logger, lang);
+            predicates.add(event -> {
+                Block block = getBlock(event);
+                return block != null && materials.contains(block.getType());
+            });
+        }
+
+        List<Tag<Material>> blockTags = toBlockTags(options.get("blockTag"), logger, lang);
+        if (options.get("blockTag") != null) {
+            warnIfEmpty(blockTags, "blockTag", logger, lang);
+            predicates.add(event -> {
+                Block block = getBlock(event);
+                if (block == null) {
+                    return false;
+                }
+                Material type = block.getType();
+                for (Tag<Material> tag : blockTags) {
+                    if (tag.isTagged(type)) {
+                        return true;
+                    }
+                }
+                return false;
+            });
+        }
+
+        Set<Material> items = toMaterials(options.get("item"), logger, lang);
+        if (options.get("item") != null) {
+            warnIfEmpty(items, "item", logger, lang);
+            predicates.add(event -> event instanceof PlayerInteractEvent interactEvent
+                    && items.contains(interactEvent.getMaterial()));
+        }
+
+        Set<EntityType> entityTypes = toEntityTypes(options.get("entityType"), logger, lang);
+        if (options.get("entityType") != null) {
+            warnIfEmpty(entityTypes, "entityType", logger, lang);
+            predicates.add(event -> {
+                EntityType type = getEntityType(event);
+                return type != null && entityTypes.contains(type);
+            });
+        }
+
+        Object permissionOption = options.get("permission");
+        if (permissionOption != null) {
+            String permission = permissionOption.toString();
+            predicates.add(event -> {
+                Player player = getPlayer(event);
+                return player != null && player.hasPermission(permission);
+            });
+        }
+
+        Object cancelledOption = options.get("cancelled");
+        if (cancelledOption != null) {
+            boolean cancelled = cancelledOption instanceof Boolean bool ? bool : Boolean.parseBoolean(cancelledOption.toString());
+            predicates.add(event -> (event instanceof Cancellable cancellable && cancellable.isCancelled()) == cancelled);
+        }
+
+        if (predicates.isEmpty()) {
+            return null;
+        }
+
+        Predicate<Event> combined = predicates.get(0);
+        for (int i = 1; i < predicates.size(); i++) {
+            combined = combined.and(predicates.get(i));
+        }
+        return combined;
+    }
+
+    // ===== 事件属性提取 =====
+
+    @Nullable
+    private static World getWorld(Event event) {
+        if (event instanceof PlayerEvent playerEvent) {
+            return playerEvent.getPlayer().getWorld();
+        }
+        if (event instanceof BlockEvent blockEvent) {
+            return blockEvent.getBlock().getWorld();
+        }
+        if (event instanceof EntityEvent entityEvent) {
+            return entityEvent.getEntity().getWorld();
+        }
+        if (event instanceof WorldEvent worldEvent) {
+            return worldEvent.getWorld();
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Block getBlock(Event event) {
+        if (event instanceof BlockEvent blockEvent) {
+            return blockEvent.getBlock();
+        }
+        if (event instanceof PlayerInteractEvent interactEvent) {
+            return interactEvent.getClickedBlock();
+        }
+        return null;
+    }
+
+    @Nullable
+    private static EntityType getEntityType(Event event) {
+        if (event instanceof EntityEvent entityEvent) {
+            return entityEvent.getEntityType();
+        }
+        if (event instanceof PlayerEvent) {
+            return EntityType.PLAYER;
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Player getPlayer(Event event) {
+        if (event instanceof PlayerEvent playerEvent) {
+            return playerEvent.getPlayer();
+        }
+        if (event instanceof BlockBreakEvent breakEvent) {
+            return breakEvent.getPlayer();
+        }
+        if (event instanceof BlockPlaceEvent placeEvent) {
+            return placeEvent.getPlayer();
+        }
+        if (event instanceof EntityEvent entityEvent) {
+            Entity entity = entityEvent.getEntity();
+            return entity instanceof Player player ? player : null;
+        }
+        return null;
+    }
+
+    // ===== 选项解析 =====
+
+    private static Set<String> toStringSet(@Nullable Object value) {
+        Set<String> result = new HashSet<>();
+        if (value instanceof Collection<?> collection) {
+            for (Object element : collection) {
+                result.add(String.valueOf(element));
+            }
+        } else if (value != null) {
+            result.add(value.toString());
+        }
+        return result;
+    }
+
+    private static void warnIfEmpty(Collection<?> resolved, String option, Logger logger, LanguageManager lang) {
+        if (resolved.isEmpty()) {
+            logger.warning(lang.eventFilterMatchesNothing(option));
+        }
+    }
+
+    private static Set<Material> toMaterials(@Nullable Object value, Logger logger, LanguageManager lang) {
+        Set<Material> result = EnumSet.noneOf(Material.class);
+        for (String name : toStringSet(value)) {
+            Material material = Material.matchMaterial(name);
+            if (material != null) {
+                result.add(material);
+            } else {
+                logger.warning(lang.eventFilterUnknownMaterial(name));
+            }
+        }
+        return result;
+    }
+
+    private static List<Tag<Material>> toBlockTags(@Nullable Object value, Logger logger, LanguageManager lang) {
+        List<Tag<Material>> result = new ArrayList<>();
+        for (String name : toStringSet(value)) {
+            NamespacedKey key = NamespacedKey.fromString(name.toLowerCase(Locale.ROOT));
+            Tag<Material> tag = key != null ? Bukkit.getTag(Tag.REGISTRY_BLOCKS, key, Material.class) : null;
+            if (tag != null) {
+                result.add(tag);
+            } else {
+                logger.warning(lang.eventFilterUnknownBlockTag(name));
+            }
+        }
+        return result;
+    }
+
+    private static Set<EntityType> toEntityTypes(@Nullable Object value, Logger logger, LanguageManager lang) {
+        Set<EntityType> result = EnumSet.noneOf(EntityType.class);
+        for (String name : toStringSet(value)) {
+            NamespacedKey key = NamespacedKey.fromString(name.toLowerCase(Locale.ROOT));
+            EntityType type = key != null ? Registry.ENTITY_TYPE.get(key) : null;
+            if (type != null) {
+                result.add(type);
+            } else {
+                logger.warning(lang.eventFilterUnknownEntityType(name));
+            }
+        }
+        return result;
+    }
+}
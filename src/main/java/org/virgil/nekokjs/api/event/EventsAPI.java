@@ -3,7 +3,6 @@ package org.virgil.nekokjs.api.event;
 import net.minecraft.core.Holder;
 import net.minecraft.server.level.WorldGenRegion;
 import net.minecraft.world.level.biome.Biome;
-import net.minecraft.world.level.biome.Climate;
 import net.minecraft.world.level.chunk.ChunkAccess;
 import net.minecraft.world.level.levelgen.RandomState;
 import org.bukkit.Bukkit;
@@ -13,39 +12,99 @@ import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.plugin.EventExecutor;
 import dev.latvian.mods.rhino.Context;
-import dev.latvian.mods.rhino.ContextFactory;
 import dev.latvian.mods.rhino.Function;
 import dev.latvian.mods.rhino.Scriptable;
 import org.virgil.nekokjs.NekoKJSPlugin;
+import org.virgil.nekokjs.event.TickBudgetManager;
+import org.virgil.nekokjs.event.TimingWheel;
 import org.virgil.nekokjs.lang.LanguageManager;
-import org.bukkit.entity.Player;
-import net.kyori.adventure.text.Component;
+import org.virgil.nekokjs.api.worldgen.WorldGenAPI;
+import org.virgil.nekokjs.mixin.bridge.ChunkBiomeGrid;
+import org.virgil.nekokjs.mixin.bridge.DensitySlice;
+import org.virgil.nekokjs.mixin.bridge.HookCapabilities;
+import org.virgil.nekokjs.mixin.bridge.SurfaceColumns;
+import org.virgil.nekokjs.mixin.cache.BiomeGridCacheManager;
+import org.virgil.nekokjs.mixin.metrics.HookMetrics;
+import org.virgil.nekokjs.mixin.metrics.HookTimer;
+import org.virgil.nekokjs.script.ContextPool;
+import org.virgil.nekokjs.script.ScriptEngine;
+import org.virgil.nekokjs.script.ScriptPack;
+import org.virgil.nekokjs.script.ScriptTimeoutError;
+import org.virgil.nekokjs.script.WatchdogContextFactory.Phase;
 
 import javax.annotation.Nullable;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
 
 /**
  * Events API
  * 使用 NMS 反射动态注册事件监听器
  * 参考 KubeJS 的事件系统设计
+ * 
+ * 每个 (事件类, 优先级, ignoreCancelled) 组合只向 Bukkit 注册一个执行器，
+ * 执行器遍历该组合下所有脚本回调，回调数量增加不会导致重复执行
  */
 public class EventsAPI {
+    // 世界生成事件对应的钩子能力位，Mixin 据此跳过没有脚本监听的钩子
+    private static final Map<String, Integer> WORLDGEN_HOOKS = Map.of(
+            "worldgen.chunk.surface", HookCapabilities.CHUNK_SURFACE,
+            "worldgen.chunk.noise", HookCapabilities.CHUNK_NOISE,
+            "worldgen.chunk.carver", HookCapabilities.CHUNK_CARVER,
+            "worldgen.biome.select", HookCapabilities.BIOME_SELECT,
+            "worldgen.density", HookCapabilities.DENSITY_COMPUTE,
+            "worldgen.density.slice", HookCapabilities.DENSITY_SLICE,
+            "worldgen.surface.update", HookCapabilities.SURFACE_RULE_UPDATE,
+            "worldgen.surface.block", HookCapabilities.SURFACE_BLOCK_SELECT);
+
+    @Nullable
     private final NekoKJSPlugin plugin;
-    private final Map<String, List<Function>> eventCallbacks;
+    private final Logger logger;
+    // 脚本自定义事件（server.tick、worldgen.* 等）
+    private final Map<String, CallbackList> eventCallbacks;
+    // Bukkit 事件，每个 key 对应一个已注册的执行器
+    private final Map<BukkitListenerKey, CallbackList> bukkitListeners;
     private final Listener dummyListener;
-    private final ContextFactory contextFactory;
+    private final ScriptEngine scriptEngine;
+    private final TickBudgetManager tickBudget;
+    private final TimingWheel timingWheel;
+    private final int tickInterval;
     private final LanguageManager lang;
+    // 生物群系网格调色板 ID 到生物群系的解析结果，无效 ID 记为空
+    private final Map<String, Optional<Holder<Biome>>> biomeHolders = new ConcurrentHashMap<>();
+    // 地表列调色板 ID 到方块状态的解析结果，无效 ID 记为空
+    private final Map<String, Optional<net.minecraft.world.level.block.state.BlockState>> blockStates = new ConcurrentHashMap<>();
 
-    public EventsAPI(NekoKJSPlugin plugin) {
+    public EventsAPI(NekoKJSPlugin plugin, TickBudgetManager tickBudget, TimingWheel timingWheel, int tickInterval) {
+        this(plugin, plugin.getLogger(), plugin.getConfigManager().getLanguageManager(), plugin.getScriptEngine(),
+                tickBudget, timingWheel, tickInterval);
+    }
+
+    /**
+     * 不依赖插件实例创建（基准测试等场景）
+     * 没有插件实例时不能向 Bukkit 注册监听器，Bukkit 事件通过 {@link #createExecutor} 返回的执行器分发
+     */
+    public EventsAPI(Logger logger, LanguageManager lang, ScriptEngine scriptEngine,
+                     TickBudgetManager tickBudget, TimingWheel timingWheel, int tickInterval) {
+        this(null, logger, lang, scriptEngine, tickBudget, timingWheel, tickInterval);
+    }
+
+    private EventsAPI(@Nullable NekoKJSPlugin plugin, Logger logger, LanguageManager lang, ScriptEngine scriptEngine,
+                      TickBudgetManager tickBudget, TimingWheel timingWheel, int tickInterval) {
         this.plugin = plugin;
-        this.eventCallbacks = new HashMap<>();
+        this.logger = logger;
+        this.tickBudget = tickBudget;
+        this.timingWheel = timingWheel;
+        this.tickInterval = tickInterval;
+        this.eventCallbacks = new ConcurrentHashMap<>();
+        this.bukkitListeners = new ConcurrentHashMap<>();
         this.dummyListener = new Listener() {};
-        this.contextFactory = new ContextFactory();
-        this.lang = plugin.getConfigManager().getLanguageManager();
+        this.scriptEngine = scriptEngine;
+        this.lang = lang;
     }
 
     /**
@@ -56,6 +115,13 @@ public class EventsAPI {
         registerEvent("org.bukkit.event.player.PlayerJoinEvent", callback);
     }
 
+    /**
+     * 监听玩家加入事件（带选项，见 {@link #on(String, Map, Function)}）
+     */
+    public void playerJoin(Map<String, Object> options, Function callback) {
+        registerEvent("org.bukkit.event.player.PlayerJoinEvent", options, callback);
+    }
+
     /**
      * 监听玩家退出事件
      * 用法: Events.playerQuit(event => { ... })
@@ -64,6 +130,13 @@ public class EventsAPI {
         registerEvent("org.bukkit.event.player.PlayerQuitEvent", callback);
     }
 
+    /**
+     * 监听玩家退出事件（带选项，见 {@link #on(String, Map, Function)}）
+     */
+    public void playerQuit(Map<String, Object> options, Function callback) {
+        registerEvent("org.bukkit.event.player.PlayerQuitEvent", options, callback);
+    }
+
     /**
      * 监听玩家聊天事件
      * 用法: Events.playerChat(event => { ... })
@@ -72,12 +145,45 @@ public class EventsAPI {
         registerEvent("org.bukkit.event.player.AsyncPlayerChatEvent", callback);
     }
 
+    /**
+     * 监听玩家聊天事件（带选项，见 {@link #on(String, Map, Function)}）
+     */
+    public void playerChat(Map<String, Object> options, Function callback) {
+        registerEvent("org.bukkit.event.player.AsyncPlayerChatEvent", options, callback);
+    }
+
     /**
      * 监听服务器 Tick 事件
-     * 用法: Events.serverTick(event => { ... })
+     * 按配置的 events.tick-interval 周期执行，不同回调的触发 tick 会被错开
+     * 用法: const task = Events.serverTick(() => { ... }); task.cancel()
      */
-    public void serverTick(Function callback) {
-        registerCallback("server.tick", callback);
+    public TimingWheel.Task serverTick(Function callback) {
+        ScriptCallback scriptCallback = new ScriptCallback(callback);
+        return timingWheel.scheduleSpread(scriptCallback.getPack(), () -> submitServerTick(scriptCallback), tickInterval);
+    }
+
+    /**
+     * 监听服务器 Tick 事件（带选项）
+     * 用法: Events.serverTick({ interval: 100, delay: 20, jitter: 10 }, () => { ... })
+     *
+     * 选项:
+     * - interval: 执行间隔（tick），默认为 events.tick-interval
+     * - delay: 首次执行前的延迟（tick），不指定时自动错开
+     * - jitter: 首次执行的随机抖动上限（tick）
+     */
+    public TimingWheel.Task serverTick(Map<String, Object> options, Function callback) {
+        ScriptCallback scriptCallback = new ScriptCallback(callback);
+        Runnable action = () -> submitServerTick(scriptCallback);
+        long interval = Math.max(1, getLongOption(options, "interval", tickInterval));
+        long jitter = getLongOption(options, "jitter", 0);
+        ScriptPack owner = scriptCallback.getPack();
+        if (options != null && options.get("delay") != null) {
+            return timingWheel.schedule(owner, action, getLongOption(options, "delay", interval), interval, jitter);
+        }
+        if (jitter > 0) {
+            return timingWheel.schedule(owner, action, interval, interval, jitter);
+        }
+        return timingWheel.scheduleSpread(owner, action, interval);
     }
 
     /**
@@ -88,6 +194,13 @@ public class EventsAPI {
         registerEvent("org.bukkit.event.block.BlockBreakEvent", callback);
     }
 
+    /**
+     * 监听方块破坏事件（带选项，见 {@link #on(String, Map, Function)}）
+     */
+    public void blockBreak(Map<String, Object> options, Function callback) {
+        registerEvent("org.bukkit.event.block.BlockBreakEvent", options, callback);
+    }
+
     /**
      * 监听方块放置事件
      * 用法: Events.blockPlace(event => { ... })
@@ -96,6 +209,13 @@ public class EventsAPI {
         registerEvent("org.bukkit.event.block.BlockPlaceEvent", callback);
     }
 
+    /**
+     * 监听方块放置事件（带选项，见 {@link #on(String, Map, Function)}）
+     */
+    public void blockPlace(Map<String, Object> options, Function callback) {
+        registerEvent("org.bukkit.event.block.BlockPlaceEvent", options, callback);
+    }
+
     /**
      * 监听实体死亡事件
      * 用法: Events.entityDeath(event => { ... })
@@ -104,6 +224,13 @@ public class EventsAPI {
         registerEvent("org.bukkit.event.entity.EntityDeathEvent", callback);
     }
 
+    /**
+     * 监听实体死亡事件（带选项，见 {@link #on(String, Map, Function)}）
+     */
+    public void entityDeath(Map<String, Object> options, Function callback) {
+        registerEvent("org.bukkit.event.entity.EntityDeathEvent", options, callback);
+    }
+
     /**
      * 监听玩家交互事件
      * 用法: Events.playerInteract(event => { ... })
@@ -112,6 +239,13 @@ public class EventsAPI {
         registerEvent("org.bukkit.event.player.PlayerInteractEvent", callback);
     }
 
+    /**
+     * 监听玩家交互事件（带选项，见 {@link #on(String, Map, Function)}）
+     */
+    public void playerInteract(Map<String, Object> options, Function callback) {
+        registerEvent("org.bukkit.event.player.PlayerInteractEvent", options, callback);
+    }
+
     /**
      * 通用事件注册方法
      * 使用反射动态注册任意 Bukkit 事件
@@ -120,109 +254,287 @@ public class EventsAPI {
      * @param callback JavaScript 回调函数
      */
     public void on(String eventClassName, Function callback) {
-        registerEvent(eventClassName, callback);
+        registerEvent(eventClassName, null, callback);
     }
 
     /**
-     * 使用反射注册事件监听器
+     * 通用事件注册方法（带选项）
+     * 用法: Events.on("org.bukkit.event.block.BlockBreakEvent", {priority: "HIGH", ignoreCancelled: true}, event => { ... })
+     * 
+     * 支持的选项：
+     * - priority: 事件优先级（LOWEST, LOW, NORMAL, HIGH, HIGHEST, MONITOR），默认 NORMAL
+     * - ignoreCancelled: 为 true 时不接收已被取消的事件，默认 false
+     * - world / material / blockTag / item / entityType / permission / cancelled:
+     *   在 Java 侧判断的过滤条件，见 {@link EventFilter}
+     * 
+     * @param eventClassName 事件类的完整名称
+     * @param options 注册选项
+     * @param callback JavaScript 回调函数
      */
+    public void on(String eventClassName, Map<String, Object> options, Function callback) {
+        registerEvent(eventClassName, options, callback);
+    }
+
     private void registerEvent(String eventClassName, Function callback) {
+        registerEvent(eventClassName, null, callback);
+    }
+
+    /**
+     * 使用反射注册事件监听器
+     * 相同 (事件类, 优先级, ignoreCancelled) 的回调共享同一个 Bukkit 执行器
+     */
+    private void registerEvent(String eventClassName, @Nullable Map<String, Object> options, Function callback) {
         try {
             // 加载事件类
             Class<?> eventClass = Class.forName(eventClassName);
             
             // 检查是否是 Event 的子类
             if (!Event.class.isAssignableFrom(eventClass)) {
-                plugin.getLogger().warning(eventClassName + " is not an Event class");
+                logger.warning(eventClassName + " is not an Event class");
                 return;
             }
 
             @SuppressWarnings("unchecked")
             Class<? extends Event> event = (Class<? extends Event>) eventClass;
             
-            // 注册回调
-            registerCallback(eventClassName, callback);
+            EventPriority priority = getPriorityOption(options);
+            boolean ignoreCancelled = getBooleanOption(options, "ignoreCancelled");
+            BukkitListenerKey key = new BukkitListenerKey(event, priority, ignoreCancelled);
             
-            // 创建事件执行器
-            EventExecutor executor = (listener, eventInstance) -> {
-                if (event.isInstance(eventInstance)) {
-                    executeCallbacks(eventClassName, eventInstance);
+            // 该组合第一次注册时创建执行器，之后只追加回调
+            // 向 Bukkit 注册放在 ConcurrentHashMap 的映射函数之外，只由 putIfAbsent 成功的线程执行
+            CallbackList callbacks = bukkitListeners.get(key);
+            if (callbacks == null) {
+                CallbackList list = new CallbackList();
+                CallbackList existing = bukkitListeners.putIfAbsent(key, list);
+                if (existing != null) {
+                    callbacks = existing;
+                } else {
+                    try {
+                        registerExecutor(key, eventClassName, list);
+                    } catch (RuntimeException e) {
+                        bukkitListeners.remove(key, list);
+                        throw e;
+                    }
+                    callbacks = list;
                 }
-            };
+            }
             
-            // 注册到 Bukkit 事件系统
-            Bukkit.getPluginManager().registerEvent(
-                event,
-                dummyListener,
-                EventPriority.NORMAL,
-                executor,
-                plugin
-            );
+            // 注册回调，过滤条件编译为 Java 断言
+            callbacks.add(new ScriptCallback(callback, EventFilter.compile(options, logger, lang)));
             
-            plugin.getLogger().info(lang.eventRegistered(eventClass.getSimpleName()));
+            logger.info(lang.eventRegistered(eventClass.getSimpleName()));
         } catch (ClassNotFoundException e) {
-            plugin.getLogger().warning(lang.eventNotFound(eventClassName));
+            logger.warning(lang.eventNotFound(eventClassName));
         } catch (Exception e) {
-            plugin.getLogger().severe(lang.eventRegisterFailed(e.getMessage()));
+            logger.severe(lang.eventRegisterFailed(e.getMessage()));
             e.printStackTrace();
         }
     }
 
+    /**
+     * 为 (事件类, 优先级, ignoreCancelled) 组合向 Bukkit 注册执行器
+     */
+    private void registerExecutor(BukkitListenerKey key, String eventClassName, CallbackList list) {
+        if (plugin == null) {
+            throw new IllegalStateException("Bukkit listeners require a plugin instance");
+        }
+        
+        // 注册到 Bukkit 事件系统
+        Bukkit.getPluginManager().registerEvent(
+            key.eventClass(),
+            dummyListener,
+            key.priority(),
+            createExecutor(key.eventClass(), eventClassName, list),
+            plugin,
+            key.ignoreCancelled()
+        );
+    }
+
+    /**
+     * 创建分发 Bukkit 事件的执行器
+     * 执行器每次遍历 callbacks 的最新快照，先执行 Java 侧过滤器，再在各回调的作用域中调用
+     *
+     * @param eventName 事件名称，用于错误信息
+     */
+    public EventExecutor createExecutor(Class<? extends Event> event, String eventName, CallbackList callbacks) {
+        HookTimer timer = HookMetrics.timer(HookMetrics.EVENT, event.getSimpleName());
+        return (listener, eventInstance) -> {
+            if (event.isInstance(eventInstance)) {
+                long start = System.nanoTime();
+                try {
+                    executeCallbacks(eventName, callbacks.get(), eventInstance);
+                } finally {
+                    timer.stop(start);
+                }
+            }
+        };
+    }
+
+    /**
+     * 解析事件优先级选项
+     */
+    private EventPriority getPriorityOption(@Nullable Map<String, Object> options) {
+        if (options == null || options.get("priority") == null) {
+            return EventPriority.NORMAL;
+        }
+        
+        String priority = options.get("priority").toString();
+        try {
+            return EventPriority.valueOf(priority.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.warning("Unknown event priority: " + priority + ", using NORMAL");
+            return EventPriority.NORMAL;
+        }
+    }
+    
+    /**
+     * 解析布尔选项
+     */
+    private static boolean getBooleanOption(@Nullable Map<String, Object> options, String key) {
+        if (options == null) {
+            return false;
+        }
+        Object value = options.get(key);
+        return value instanceof Boolean bool ? bool : value != null && Boolean.parseBoolean(value.toString());
+    }
+
+    private static long getLongOption(@Nullable Map<String, Object> options, String key, long defaultValue) {
+        if (options == null || options.get(key) == null) {
+            return defaultValue;
+        }
+        Object value = options.get(key);
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        try {
+            return (long) Double.parseDouble(value.toString());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
     /**
      * 注册回调函数
      */
     private void registerCallback(String eventName, Function callback) {
-        eventCallbacks.computeIfAbsent(eventName, k -> new ArrayList<>()).add(callback);
+        eventCallbacks.computeIfAbsent(eventName, k -> new CallbackList()).add(new ScriptCallback(callback));
+        if (WORLDGEN_HOOKS.containsKey(eventName)) {
+            updateHookCapabilities();
+        }
+    }
+    
+    /**
+     * 根据当前的世界生成回调重新发布钩子能力位
+     * 串行执行，保证最后发布的是最新的回调状态
+     */
+    private synchronized void updateHookCapabilities() {
+        int mask = 0;
+        for (Map.Entry<String, Integer> entry : WORLDGEN_HOOKS.entrySet()) {
+            if (getCallbacks(entry.getKey()).length > 0) {
+                mask |= entry.getValue();
+            }
+        }
+        HookCapabilities.set(mask);
+        // 回调变化后缓存的区块生物群系结果不再有效
+        BiomeGridCacheManager.clear();
+    }
+    
+    /**
+     * 获取脚本自定义事件的回调快照
+     */
+    private ScriptCallback[] getCallbacks(String eventName) {
+        CallbackList callbacks = eventCallbacks.get(eventName);
+        return callbacks != null ? callbacks.get() : CallbackList.EMPTY;
     }
 
     /**
-     * 执行回调函数
+     * 执行脚本自定义事件的回调
      */
     private void executeCallbacks(String eventName, Object event) {
-        List<Function> callbacks = eventCallbacks.get(eventName);
-        if (callbacks == null || callbacks.isEmpty()) {
+        executeCallbacks(eventName, getCallbacks(eventName), event);
+    }
+
+    /**
+     * 执行回调函数
+     * 先执行 Java 侧过滤器，只有存在匹配的回调时才进入 JS 引擎；
+     * 事件对象只包装一次，每个回调在注册它的脚本包作用域中执行
+     */
+    private void executeCallbacks(String eventName, ScriptCallback[] callbacks, Object event) {
+        if (callbacks.length == 0) {
             return;
         }
 
-        Context ctx = contextFactory.enter();
+        // 只有存在匹配的回调时才借出 Context
+        ContextPool.Lease lease = null;
+        Object jsEvent = null;
         try {
-            Scriptable scope = ctx.initStandardObjects();
-            
-            // 注入 PlayerMessageHelper 到作用域，提供安全的 sendMessage 方法
-            Object helper = ctx.javaToJS(PlayerMessageHelper.class, scope);
-            scope.put(ctx, "PlayerMessageHelper", scope, helper);
-            
-            for (Function callback : callbacks) {
-                try {
-                    // 将 Java 对象包装为 JS 对象
-                    Object jsEvent = ctx.javaToJS(event, scope);
-                    
-                    // 如果是 PlayerEvent，额外提供一个包装的 player 对象
-                    if (event instanceof org.bukkit.event.player.PlayerEvent playerEvent) {
-                        Scriptable eventObj = (Scriptable) jsEvent;
-                        // 创建一个包装函数来安全地调用 sendMessage
-                        Object wrappedPlayer = ctx.javaToJS(playerEvent.getPlayer(), scope);
-                        eventObj.put(ctx, "_player", eventObj, wrappedPlayer);
-                    }
-                    
-                    callback.call(ctx, scope, scope, new Object[]{jsEvent});
-                } catch (Exception e) {
-                    plugin.getLogger().severe(lang.eventCallbackFailed(eventName, e.getMessage()));
-                    e.printStackTrace();
+            for (ScriptCallback callback : callbacks) {
+                if (!callback.isActive() || !callback.accepts(event)) {
+                    continue;
+                }
+                
+                if (lease == null) {
+                    lease = scriptEngine.acquire();
+                    jsEvent = wrapEvent(lease.context(), event);
                 }
+                
+                invokeCallback(lease.context(), eventName, callback, jsEvent);
             }
         } catch (Exception e) {
-            plugin.getLogger().severe(lang.eventCallbacksFailed(eventName, e.getMessage()));
+            logger.severe(lang.eventCallbacksFailed(eventName, e.getMessage()));
             e.printStackTrace();
+        } finally {
+            if (lease != null) {
+                lease.close();
+            }
         }
     }
 
     /**
-     * 触发服务器 Tick 事件
-     * 由 EventManager 调用
+     * 在回调所属作用域中调用单个回调
      */
-    public void triggerServerTick() {
-        executeCallbacks("server.tick", null);
+    private void invokeCallback(Context ctx, String eventName, ScriptCallback callback, Object jsEvent) {
+        try (var guard = scriptEngine.guard(Phase.EVENT, callback.getPack(), eventName, callback.getFunction())) {
+            Scriptable scope = callback.getScope();
+            callback.getFunction().call(ctx, scope, scope, new Object[]{jsEvent});
+        } catch (ScriptTimeoutError e) {
+            logger.severe(lang.scriptTimeout(e.getMessage()));
+        } catch (Exception e) {
+            logger.severe(lang.eventCallbackFailed(eventName, e.getMessage()));
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * 将 Java 事件对象包装为 JS 对象
+     */
+    private Object wrapEvent(Context ctx, Object event) {
+        Scriptable threadScope = scriptEngine.getThreadScope();
+        Object jsEvent = ctx.javaToJS(event, threadScope);
+        
+        // 如果是 PlayerEvent，额外提供一个包装的 player 对象
+        if (event instanceof org.bukkit.event.player.PlayerEvent playerEvent) {
+            Scriptable eventObj = (Scriptable) jsEvent;
+            Object wrappedPlayer = ctx.javaToJS(playerEvent.getPlayer(), threadScope);
+            eventObj.put(ctx, "_player", eventObj, wrappedPlayer);
+        }
+        return jsEvent;
+    }
+
+    /**
+     * 执行一次服务器 Tick 回调
+     * 由时间轮在回调到期时调用，交给 Tick 预算管理器，预算用尽时顺延到下一 tick
+     */
+    private void submitServerTick(ScriptCallback callback) {
+        if (!callback.isActive()) {
+            return;
+        }
+        tickBudget.submit(callback.getPackNamespace(), callback, () -> {
+            try (ContextPool.Lease lease = scriptEngine.acquire()) {
+                invokeCallback(lease.context(), "server.tick", callback, null);
+            }
+        });
     }
     
     // ===== 世界生成相关方法 =====
@@ -241,18 +553,25 @@ public class EventsAPI {
      * @return true 表示脚本已处理，取消原版逻辑
      */
     public boolean triggerChunkSurfaceGenerate(WorldGenRegion level, ChunkAccess chunk) {
-        List<Function> callbacks = eventCallbacks.get("worldgen.chunk.surface");
-        if (callbacks == null || callbacks.isEmpty()) {
+        ScriptCallback[] callbacks = getCallbacks("worldgen.chunk.surface");
+        if (callbacks.length == 0) {
             return false;
         }
         
-        Context ctx = contextFactory.enter();
-        try {
-            Scriptable scope = ctx.initStandardObjects();
+        try (ContextPool.Lease lease = scriptEngine.acquire()) {
+            Context ctx = lease.context();
             boolean handled = false;
             
-            for (Function callback : callbacks) {
-                Object result = callback.call(ctx, scope, scope, new Object[]{level, chunk});
+            for (ScriptCallback callback : callbacks) {
+                if (!callback.isActive()) {
+                    continue;
+                }
+                Scriptable scope = callback.getScope();
+                Object result;
+                try (var guard = scriptEngine.guard(Phase.WORLDGEN, callback.getPack(), "worldgen.chunk.surface", callback.getFunction())) {
+                    guard.at(chunk.getPos().x, chunk.getPos().z);
+                    result = callback.getFunction().call(ctx, scope, scope, new Object[]{level, chunk});
+                }
                 // 如果任何回调返回 true，表示已处理
                 if (result instanceof Boolean && (Boolean) result) {
                     handled = true;
@@ -260,12 +579,13 @@ public class EventsAPI {
             }
             
             return handled;
+        } catch (ScriptTimeoutError e) {
+            logger.severe(lang.scriptTimeout(e.getMessage()));
+            return false;
         } catch (Exception e) {
-            plugin.getLogger().severe("Error in chunk surface generation callback: " + e.getMessage());
+            logger.severe("Error in chunk surface generation callback: " + e.getMessage());
             e.printStackTrace();
             return false;
-        } finally {
-            // Context 会自动清理
         }
     }
     
@@ -284,8 +604,8 @@ public class EventsAPI {
      */
     @Nullable
     public CompletableFuture<ChunkAccess> triggerChunkNoiseGenerate(ChunkAccess chunk, RandomState randomState) {
-        List<Function> callbacks = eventCallbacks.get("worldgen.chunk.noise");
-        if (callbacks == null || callbacks.isEmpty()) {
+        ScriptCallback[] callbacks = getCallbacks("worldgen.chunk.noise");
+        if (callbacks.length == 0) {
             return null;
         }
         
@@ -308,56 +628,99 @@ public class EventsAPI {
      * @return true 表示脚本已处理，取消原版逻辑
      */
     public boolean triggerChunkCarverGenerate(WorldGenRegion level, ChunkAccess chunk, long seed) {
-        List<Function> callbacks = eventCallbacks.get("worldgen.chunk.carver");
-        if (callbacks == null || callbacks.isEmpty()) {
+        ScriptCallback[] callbacks = getCallbacks("worldgen.chunk.carver");
+        if (callbacks.length == 0) {
             return false;
         }
         
-        Context ctx = contextFactory.enter();
-        try {
-            Scriptable scope = ctx.initStandardObjects();
+        try (ContextPool.Lease lease = scriptEngine.acquire()) {
+            Context ctx = lease.context();
             boolean handled = false;
             
-            for (Function callback : callbacks) {
-                Object result = callback.call(ctx, scope, scope, new Object[]{level, chunk, seed});
+            for (ScriptCallback callback : callbacks) {
+                if (!callback.isActive()) {
+                    continue;
+                }
+                Scriptable scope = callback.getScope();
+                Object result;
+                try (var guard = scriptEngine.guard(Phase.WORLDGEN, callback.getPack(), "worldgen.chunk.carver", callback.getFunction())) {
+                    guard.at(chunk.getPos().x, chunk.getPos().z);
+                    result = callback.getFunction().call(ctx, scope, scope, new Object[]{level, chunk, seed});
+                }
                 if (result instanceof Boolean && (Boolean) result) {
                     handled = true;
                 }
             }
             
             return handled;
+        } catch (ScriptTimeoutError e) {
+            logger.severe(lang.scriptTimeout(e.getMessage()));
+            return false;
         } catch (Exception e) {
-            plugin.getLogger().severe("Error in chunk carver generation callback: " + e.getMessage());
+            logger.severe("Error in chunk carver generation callback: " + e.getMessage());
             e.printStackTrace();
             return false;
-        } finally {
-            // Context 会自动清理
         }
     }
     
     /**
      * 监听生物群系选择事件
-     * 用法: Events.biomeSelect((x, y, z, sampler) => { return "minecraft:plains"; })
+     * 每个区块调用一次，grid 提供整个区块按 quart 划分的气候参数（4 x sizeY x 4），
+     * 回调用 paletteIndex 登记生物群系，再把下标写入 biomes；保持 -1 的位置使用原版生物群系
+     * 结果用于该区块的所有生物群系查询（区块填充、结构生成、/locate biome 等），按区块缓存；
+     * 缓存淘汰后可能再次调用，回调的结果应当只取决于 grid 中的参数
+     * 用法:
+     * Events.biomeSelect((grid) => {
+     *     const desert = grid.paletteIndex("minecraft:desert");
+     *     for (let i = 0; i < grid.size; i++) {
+     *         if (grid.temperature[i] > 0.6 && grid.humidity[i] < -0.3) grid.biomes[i] = desert;
+     *     }
+     * })
      */
     public void biomeSelect(Function callback) {
         registerCallback("worldgen.biome.select", callback);
     }
     
     /**
-     * 触发生物群系选择事件
-     * 由 EventManager 调用
-     * @return 如果脚本提供了自定义生物群系，返回 Holder<Biome>；否则返回 null
+     * 触发区块生物群系网格事件
+     * 由 EventManager 调用，回调结束后把调色板解析为生物群系；
+     * 回调抛出异常或超时时撤销它对网格的修改，其他脚本包的回调照常执行
      */
-    @Nullable
-    public Holder<Biome> triggerBiomeSelect(int x, int y, int z, Climate.Sampler sampler) {
-        List<Function> callbacks = eventCallbacks.get("worldgen.biome.select");
-        if (callbacks == null || callbacks.isEmpty()) {
-            return null;
+    public void triggerChunkBiomeGrid(ChunkBiomeGrid grid) {
+        ScriptCallback[] callbacks = getCallbacks("worldgen.biome.select");
+        if (callbacks.length == 0) {
+            return;
         }
         
-        // 注意：生物群系选择是极高频操作，暂时返回 null 使用原版逻辑
-        // 如果需要自定义，需要非常小心性能问题
-        return null;
+        try (ContextPool.Lease lease = scriptEngine.acquire()) {
+            Context cx = lease.context();
+            Object jsGrid = cx.javaToJS(grid, lease.scratchScope());
+            int chunkX = grid.getMinQuartX() >> 2;
+            int chunkZ = grid.getMinQuartZ() >> 2;
+            for (ScriptCallback callback : callbacks) {
+                if (!callback.isActive()) {
+                    continue;
+                }
+                grid.checkpoint();
+                if (!callWorldgenCallback(cx, callback, "worldgen.biome.select", chunkX, chunkZ, jsGrid)) {
+                    grid.rollback();
+                }
+            }
+        } catch (Exception e) {
+            logger.warning("Biome select event error: " + e.getMessage());
+        }
+        
+        List<String> palette = grid.getPalette();
+        if (palette.isEmpty()) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Holder<Biome>[] resolved = new Holder[palette.size()];
+        for (int i = 0; i < resolved.length; i++) {
+            resolved[i] = biomeHolders.computeIfAbsent(palette.get(i),
+                    id -> Optional.ofNullable(WorldGenAPI.getBiome(id))).orElse(null);
+        }
+        grid.setResolvedPalette(resolved);
     }
 
     // ===== 高级世界生成钩子 =====
@@ -369,6 +732,13 @@ public class EventsAPI {
     public void worldLoad(Function callback) {
         registerEvent("org.bukkit.event.world.WorldLoadEvent", callback);
     }
+
+    /**
+     * 监听世界加载前事件（带选项，见 {@link #on(String, Map, Function)}）
+     */
+    public void worldLoad(Map<String, Object> options, Function callback) {
+        registerEvent("org.bukkit.event.world.WorldLoadEvent", options, callback);
+    }
     
     /**
      * 监听世界初始化事件
@@ -377,6 +747,13 @@ public class EventsAPI {
     public void worldInit(Function callback) {
         registerEvent("org.bukkit.event.world.WorldInitEvent", callback);
     }
+
+    /**
+     * 监听世界初始化事件（带选项，见 {@link #on(String, Map, Function)}）
+     */
+    public void worldInit(Map<String, Object> options, Function callback) {
+        registerEvent("org.bukkit.event.world.WorldInitEvent", options, callback);
+    }
     
     /**
      * 监听区块加载事件
@@ -385,6 +762,13 @@ public class EventsAPI {
     public void chunkLoad(Function callback) {
         registerEvent("org.bukkit.event.world.ChunkLoadEvent", callback);
     }
+
+    /**
+     * 监听区块加载事件（带选项，见 {@link #on(String, Map, Function)}）
+     */
+    public void chunkLoad(Map<String, Object> options, Function callback) {
+        registerEvent("org.bukkit.event.world.ChunkLoadEvent", options, callback);
+    }
     
     /**
      * 监听区块卸载事件
@@ -393,6 +777,13 @@ public class EventsAPI {
     public void chunkUnload(Function callback) {
         registerEvent("org.bukkit.event.world.ChunkUnloadEvent", callback);
     }
+
+    /**
+     * 监听区块卸载事件（带选项，见 {@link #on(String, Map, Function)}）
+     */
+    public void chunkUnload(Map<String, Object> options, Function callback) {
+        registerEvent("org.bukkit.event.world.ChunkUnloadEvent", options, callback);
+    }
     
     /**
      * 监听区块生成完成事件（包含所有装饰）
@@ -401,6 +792,13 @@ public class EventsAPI {
     public void chunkPopulate(Function callback) {
         registerEvent("org.bukkit.event.world.ChunkPopulateEvent", callback);
     }
+
+    /**
+     * 监听区块生成完成事件（包含所有装饰）（带选项，见 {@link #on(String, Map, Function)}）
+     */
+    public void chunkPopulate(Map<String, Object> options, Function callback) {
+        registerEvent("org.bukkit.event.world.ChunkPopulateEvent", options, callback);
+    }
     
     /**
      * 监听结构生成事件
@@ -409,6 +807,13 @@ public class EventsAPI {
     public void structureGenerate(Function callback) {
         registerEvent("org.bukkit.event.world.StructureGrowEvent", callback);
     }
+
+    /**
+     * 监听结构生成事件（带选项，见 {@link #on(String, Map, Function)}）
+     */
+    public void structureGenerate(Map<String, Object> options, Function callback) {
+        registerEvent("org.bukkit.event.world.StructureGrowEvent", options, callback);
+    }
     
     /**
      * 监听方块形成事件（如冰、雪形成）
@@ -417,6 +822,13 @@ public class EventsAPI {
     public void blockForm(Function callback) {
         registerEvent("org.bukkit.event.block.BlockFormEvent", callback);
     }
+
+    /**
+     * 监听方块形成事件（如冰、雪形成）（带选项，见 {@link #on(String, Map, Function)}）
+     */
+    public void blockForm(Map<String, Object> options, Function callback) {
+        registerEvent("org.bukkit.event.block.BlockFormEvent", options, callback);
+    }
     
     /**
      * 监听方块蔓延事件（如火、藤蔓蔓延）
@@ -425,6 +837,13 @@ public class EventsAPI {
     public void blockSpread(Function callback) {
         registerEvent("org.bukkit.event.block.BlockSpreadEvent", callback);
     }
+
+    /**
+     * 监听方块蔓延事件（如火、藤蔓蔓延）（带选项，见 {@link #on(String, Map, Function)}）
+     */
+    public void blockSpread(Map<String, Object> options, Function callback) {
+        registerEvent("org.bukkit.event.block.BlockSpreadEvent", options, callback);
+    }
     
     /**
      * 监听方块生长事件（如作物、树苗生长）
@@ -433,6 +852,13 @@ public class EventsAPI {
     public void blockGrow(Function callback) {
         registerEvent("org.bukkit.event.block.BlockGrowEvent", callback);
     }
+
+    /**
+     * 监听方块生长事件（如作物、树苗生长）（带选项，见 {@link #on(String, Map, Function)}）
+     */
+    public void blockGrow(Map<String, Object> options, Function callback) {
+        registerEvent("org.bukkit.event.block.BlockGrowEvent", options, callback);
+    }
     
     /**
      * 监听生物生成事件
@@ -441,6 +867,13 @@ public class EventsAPI {
     public void creatureSpawn(Function callback) {
         registerEvent("org.bukkit.event.entity.CreatureSpawnEvent", callback);
     }
+
+    /**
+     * 监听生物生成事件（带选项，见 {@link #on(String, Map, Function)}）
+     */
+    public void creatureSpawn(Map<String, Object> options, Function callback) {
+        registerEvent("org.bukkit.event.entity.CreatureSpawnEvent", options, callback);
+    }
     
     /**
      * 监听天气变化事件
@@ -449,6 +882,13 @@ public class EventsAPI {
     public void weatherChange(Function callback) {
         registerEvent("org.bukkit.event.weather.WeatherChangeEvent", callback);
     }
+
+    /**
+     * 监听天气变化事件（带选项，见 {@link #on(String, Map, Function)}）
+     */
+    public void weatherChange(Map<String, Object> options, Function callback) {
+        registerEvent("org.bukkit.event.weather.WeatherChangeEvent", options, callback);
+    }
     
     /**
      * 监听雷击事件
@@ -457,6 +897,13 @@ public class EventsAPI {
     public void lightningStrike(Function callback) {
         registerEvent("org.bukkit.event.weather.LightningStrikeEvent", callback);
     }
+
+    /**
+     * 监听雷击事件（带选项，见 {@link #on(String, Map, Function)}）
+     */
+    public void lightningStrike(Map<String, Object> options, Function callback) {
+        registerEvent("org.bukkit.event.weather.LightningStrikeEvent", options, callback);
+    }
     
     /**
      * 清理所有事件监听器
@@ -466,26 +913,69 @@ public class EventsAPI {
         try {
             HandlerList.unregisterAll(dummyListener);
         } catch (Exception e) {
-            plugin.getLogger().warning(lang.eventCleanupFailed(e.getMessage()));
+            logger.warning(lang.eventCleanupFailed(e.getMessage()));
         }
         
         eventCallbacks.clear();
-        plugin.getLogger().info(lang.eventListenersCleaned());
+        bukkitListeners.clear();
+        timingWheel.clear();
+        biomeHolders.clear();
+        blockStates.clear();
+        updateHookCapabilities();
+        logger.info(lang.eventListenersCleaned());
+    }
+
+    /**
+     * 注销某个脚本包注册的全部回调和定时任务
+     * 共享的 Bukkit 执行器保留，回调为空时直接返回，不会进入 JS 引擎
+     *
+     * @return 注销的回调和任务数量
+     */
+    public int unregisterPack(ScriptPack pack) {
+        int removed = 0;
+        for (CallbackList callbacks : eventCallbacks.values()) {
+            removed += callbacks.removeIf(callback -> callback.getPack() == pack);
+        }
+        for (CallbackList callbacks : bukkitListeners.values()) {
+            removed += callbacks.removeIf(callback -> callback.getPack() == pack);
+        }
+        removed += timingWheel.cancelOwner(pack);
+        updateHookCapabilities();
+        return removed;
     }
 
     /**
      * 获取已注册的事件数量
      */
     public int getRegisteredEventCount() {
-        return eventCallbacks.size();
+        long bukkitEvents = bukkitListeners.keySet().stream()
+                .map(BukkitListenerKey::eventClass)
+                .distinct()
+                .count();
+        return eventCallbacks.size() + (int) bukkitEvents;
     }
 
     /**
      * 获取指定事件的回调数量
      */
     public int getCallbackCount(String eventName) {
-        List<Function> callbacks = eventCallbacks.get(eventName);
-        return callbacks != null ? callbacks.size() : 0;
+        int count = getCallbacks(eventName).length;
+        for (Map.Entry<BukkitListenerKey, CallbackList> entry : bukkitListeners.entrySet()) {
+            if (entry.getKey().eventClass().getName().equals(eventName)) {
+                count += entry.getValue().size();
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * 监听密度函数计算事件
+     * 回调返回数字时替换原始密度，event 包含 x、y、z、density
+     * 每个采样点调用一次 JS，开销很高，修改地形时优先使用 densitySlice
+     * 用法: Events.densityCompute((event) => event.y > 200 ? -1 : undefined)
+     */
+    public void densityCompute(Function callback) {
+        registerCallback("worldgen.density", callback);
     }
     
     /**
@@ -499,17 +989,15 @@ public class EventsAPI {
      */
     @Nullable
     public Double triggerDensityFunctionCompute(int blockX, int blockY, int blockZ, double originalDensity) {
-        List<Function> callbacks = eventCallbacks.get("worldgen.density");
-        if (callbacks == null || callbacks.isEmpty()) {
+        ScriptCallback[] callbacks = getCallbacks("worldgen.density");
+        if (callbacks.length == 0) {
             return null;
         }
         
-        Context cx = contextFactory.enter();
-        try {
-            Scriptable scope = cx.initStandardObjects();
-            
-            // 创建事件对象
-            Scriptable event = cx.newObject(scope);
+        try (ContextPool.Lease lease = scriptEngine.acquire()) {
+            Context cx = lease.context();
+            // 事件对象在当前线程的临时作用域中创建
+            Scriptable event = cx.newObject(lease.scratchScope());
             event.put(cx, "x", event, blockX);
             event.put(cx, "y", event, blockY);
             event.put(cx, "z", event, blockZ);
@@ -517,103 +1005,177 @@ public class EventsAPI {
             event.put(cx, "cancelled", event, false);
             
             // 执行回调
-            for (Function callback : callbacks) {
-                Object result = callback.call(cx, scope, scope, new Object[]{event});
+            for (ScriptCallback callback : callbacks) {
+                if (!callback.isActive()) {
+                    continue;
+                }
+                Scriptable scope = callback.getScope();
+                Object result;
+                try (var guard = scriptEngine.guard(Phase.WORLDGEN, callback.getPack(), "worldgen.density", callback.getFunction())) {
+                    guard.at(blockX >> 4, blockZ >> 4);
+                    result = callback.getFunction().call(cx, scope, scope, new Object[]{event});
+                }
                 
                 // 如果返回了数字，使用自定义密度
                 if (result instanceof Number) {
                     return ((Number) result).doubleValue();
                 }
             }
+        } catch (ScriptTimeoutError e) {
+            logger.severe(lang.scriptTimeout(e.getMessage()));
         } catch (Exception e) {
-            plugin.getLogger().warning("Density function event error: " + e.getMessage());
+            logger.warning("Density function event error: " + e.getMessage());
         }
         
         return null;
     }
     
     /**
-     * 触发地表规则更新事件
-     * 
-     * @param blockX X 坐标
-     * @param blockY Y 坐标
-     * @param blockZ Z 坐标
-     * @param stoneDepthAbove 上方石头深度
-     * @param stoneDepthBelow 下方石头深度
-     * @param waterHeight 水位高度
-     */
-    public void triggerSurfaceRuleUpdate(int blockX, int blockY, int blockZ, 
-                                        int stoneDepthAbove, int stoneDepthBelow, int waterHeight) {
-        List<Function> callbacks = eventCallbacks.get("worldgen.surface.update");
-        if (callbacks == null || callbacks.isEmpty()) {
-            return;
+     * 监听批量密度事件
+     * NoiseChunk 每填充完一个切片，对每个插值器调用一次回调，回调直接修改 slice.values
+     * values[z * slice.sizeY + y] 对应方块坐标 (slice.blockX, slice.blockY(y), slice.blockZ(z))
+     * 用法:
+     * Events.densitySlice((slice) => {
+     *     const values = slice.values;
+     *     for (let z = 0; z < slice.sizeZ; z++)
+     *         for (let y = 0; y < slice.sizeY; y++)
+     *             if (slice.blockY(y) > 200) values[z * slice.sizeY + y] = -1;
+     * })
+     */
+    public void densitySlice(Function callback) {
+        registerCallback("worldgen.density.slice", callback);
+    }
+    
+    /**
+     * 触发批量密度事件
+     * 切片对象直接包装给脚本，不创建事件对象，double[] 的修改直接写入切片；
+     * 回调抛出异常或超时时撤销它对切片的修改，不影响其他回调
+     *
+     * @return 是否有回调正常返回，需要把切片写回 NoiseChunk
+     */
+    public boolean triggerDensitySlice(DensitySlice slice) {
+        ScriptCallback[] callbacks = getCallbacks("worldgen.density.slice");
+        if (callbacks.length == 0) {
+            return false;
         }
         
-        Context cx = contextFactory.enter();
-        try {
-            Scriptable scope = cx.initStandardObjects();
-            
-            // 创建事件对象
-            Scriptable event = cx.newObject(scope);
-            event.put(cx, "x", event, blockX);
-            event.put(cx, "y", event, blockY);
-            event.put(cx, "z", event, blockZ);
-            event.put(cx, "stoneDepthAbove", event, stoneDepthAbove);
-            event.put(cx, "stoneDepthBelow", event, stoneDepthBelow);
-            event.put(cx, "waterHeight", event, waterHeight);
-            
-            // 执行回调
-            for (Function callback : callbacks) {
-                callback.call(cx, scope, scope, new Object[]{event});
+        boolean modified = false;
+        try (ContextPool.Lease lease = scriptEngine.acquire()) {
+            Context cx = lease.context();
+            Object jsSlice = cx.javaToJS(slice, lease.scratchScope());
+            int chunkX = slice.getBlockX() >> 4;
+            int chunkZ = slice.getMinBlockZ() >> 4;
+            for (ScriptCallback callback : callbacks) {
+                if (!callback.isActive()) {
+                    continue;
+                }
+                slice.checkpoint();
+                if (callWorldgenCallback(cx, callback, "worldgen.density.slice", chunkX, chunkZ, jsSlice)) {
+                    modified = true;
+                } else {
+                    slice.rollback();
+                }
             }
         } catch (Exception e) {
-            plugin.getLogger().warning("Surface rule update event error: " + e.getMessage());
+            logger.warning("Density slice event error: " + e.getMessage());
         }
+        return modified;
     }
     
     /**
-     * 触发地表方块选择事件
-     * 
-     * @param blockX X 坐标
-     * @param blockY Y 坐标
-     * @param blockZ Z 坐标
-     * @param surfaceDepth 地表深度
-     * @return 自定义方块状态，null 表示使用原版逻辑
+     * 监听地表规则更新事件
+     * 每个区块地表生成结束后调用一次，columns 包含区块内每个方块的地表规则参数（只读）：
+     * stoneDepthAbove、stoneDepthBelow、waterHeight 按 columns.index(x, y, z) 取值，surfaceDepth 按 columns.column(x, z) 取值
+     * 用法: Events.surfaceRuleUpdate((columns) => { ... })
      */
-    @Nullable
-    public net.minecraft.world.level.block.state.BlockState triggerSurfaceBlockSelect(
-            int blockX, int blockY, int blockZ, int surfaceDepth) {
-        List<Function> callbacks = eventCallbacks.get("worldgen.surface.block");
-        if (callbacks == null || callbacks.isEmpty()) {
-            return null;
+    public void surfaceRuleUpdate(Function callback) {
+        registerCallback("worldgen.surface.update", callback);
+    }
+    
+    /**
+     * 监听地表方块选择事件
+     * 与 surfaceRuleUpdate 收到同一个 columns，在其之后调用；
+     * 回调用 paletteIndex 登记方块，再把下标写入 blocks，保持 -1 的位置保留原方块
+     * 用法:
+     * Events.surfaceBlockSelect((columns) => {
+     *     const sand = columns.paletteIndex("minecraft:sand");
+     *     for (let i = 0; i < columns.size; i++) {
+     *         if (columns.stoneDepthAbove[i] === 1 && columns.waterHeight[i] === -2147483648) columns.blocks[i] = sand;
+     *     }
+     * })
+     */
+    public void surfaceBlockSelect(Function callback) {
+        registerCallback("worldgen.surface.block", callback);
+    }
+    
+    /**
+     * 触发区块地表列事件
+     * 先调用 surfaceRuleUpdate 回调，再调用 surfaceBlockSelect 回调，结束后把调色板解析为方块状态
+     */
+    public void triggerSurfaceColumns(SurfaceColumns columns) {
+        ScriptCallback[] updateCallbacks = getCallbacks("worldgen.surface.update");
+        ScriptCallback[] blockCallbacks = getCallbacks("worldgen.surface.block");
+        if (updateCallbacks.length == 0 && blockCallbacks.length == 0) {
+            return;
         }
         
-        Context cx = contextFactory.enter();
-        try {
-            Scriptable scope = cx.initStandardObjects();
-            
-            // 创建事件对象
-            Scriptable event = cx.newObject(scope);
-            event.put(cx, "x", event, blockX);
-            event.put(cx, "y", event, blockY);
-            event.put(cx, "z", event, blockZ);
-            event.put(cx, "surfaceDepth", event, surfaceDepth);
-            event.put(cx, "block", event, null);
-            
-            // 执行回调
-            for (Function callback : callbacks) {
-                callback.call(cx, scope, scope, new Object[]{event});
-                
-                // 检查是否设置了自定义方块
-                Object blockObj = event.get(cx, "block", event);
-                if (blockObj instanceof net.minecraft.world.level.block.state.BlockState) {
-                    return (net.minecraft.world.level.block.state.BlockState) blockObj;
-                }
-            }
+        try (ContextPool.Lease lease = scriptEngine.acquire()) {
+            Context cx = lease.context();
+            Object jsColumns = cx.javaToJS(columns, lease.scratchScope());
+            callSurfaceCallbacks(cx, updateCallbacks, "worldgen.surface.update", columns, jsColumns);
+            callSurfaceCallbacks(cx, blockCallbacks, "worldgen.surface.block", columns, jsColumns);
         } catch (Exception e) {
-            plugin.getLogger().warning("Surface block select event error: " + e.getMessage());
+            logger.warning("Surface columns event error: " + e.getMessage());
         }
         
-        return null;
+        List<String> palette = columns.getPalette();
+        if (palette.isEmpty()) {
+            return;
+        }
+        net.minecraft.world.level.block.state.BlockState[] resolved = new net.minecraft.world.level.block.state.BlockState[palette.size()];
+        for (int i = 0; i < resolved.length; i++) {
+            resolved[i] = blockStates.computeIfAbsent(palette.get(i),
+                    id -> Optional.ofNullable(WorldGenAPI.getBlockState(id))).orElse(null);
+        }
+        columns.setResolvedPalette(resolved);
+    }
+    
+    private void callSurfaceCallbacks(Context cx, ScriptCallback[] callbacks, String label,
+                                      SurfaceColumns columns, Object jsColumns) {
+        for (ScriptCallback callback : callbacks) {
+            if (!callback.isActive()) {
+                continue;
+            }
+            columns.checkpoint();
+            if (!callWorldgenCallback(cx, callback, label, columns.getChunkX(), columns.getChunkZ(), jsColumns)) {
+                columns.rollback();
+            }
+        }
+    }
+    
+    /**
+     * 调用一个世界生成回调，异常和超时只影响这一个回调
+     *
+     * @return 回调是否正常返回
+     */
+    private boolean callWorldgenCallback(Context cx, ScriptCallback callback, String label,
+                                         int chunkX, int chunkZ, Object arg) {
+        Scriptable scope = callback.getScope();
+        try (var guard = scriptEngine.guard(Phase.WORLDGEN, callback.getPack(), label, callback.getFunction())) {
+            guard.at(chunkX, chunkZ);
+            callback.getFunction().call(cx, scope, scope, new Object[]{arg});
+            return true;
+        } catch (ScriptTimeoutError e) {
+            logger.severe(lang.scriptTimeout(e.getMessage()));
+        } catch (Exception e) {
+            logger.warning("Error in " + label + " callback of " + callback.getPackNamespace() + ": " + e.getMessage());
+        }
+        return false;
+    }
+    
+    /**
+     * Bukkit 执行器的唯一标识
+     */
+    private record BukkitListenerKey(Class<? extends Event> eventClass, EventPriority priority, boolean ignoreCancelled) {
     }
 }
@@ -0,0 +1,77 @@
+package org.virgil.nekokjs.api.event;
+
+import dev.latvian.mods.rhino.Function;
+import dev.latvian.mods.rhino.Scriptable;
+import org.bukkit.event.Event;
+import org.virgil.nekokjs.script.ScriptEngine;
+import org.virgil.nekokjs.script.ScriptPack;
+
+import javax.annotation.Nullable;
+import java.util.function.Predicate;
+
+/**
+ * 脚本回调
+ * 封装一次 Events 注册：JS 函数、它所属的顶层作用域以及可选的 Java 侧过滤器
+ */
+public class ScriptCallback {
+    private final Function function;
+    private final Scriptable scope;
+    @Nullable
+    private final Predicate<Event> filter;
+    @Nullable
+    private final ScriptPack pack;
+
+    public ScriptCallback(Function function) {
+        this(function, null);
+    }
+
+    public ScriptCallback(Function function, @Nullable Predicate<Event> filter) {
+        this.function = function;
+        this.scope = ScriptEngine.getCallbackScope(function);
+        this.filter = filter;
+        this.pack = ScriptEngine.getOwningPack(function);
+    }
+
+    /**
+     * 判断事件是否需要交给此回调处理
+     * 过滤器在进入 JS 引擎之前执行
+     */
+    public boolean accepts(Object event) {
+        return filter == null || (event instanceof Event bukkitEvent && filter.test(bukkitEvent));
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    /**
+     * 回调所属的顶层作用域（注册它的脚本包作用域）
+     */
+    public Scriptable getScope() {
+        return scope;
+    }
+
+    /**
+     * 注册此回调的脚本包，无法确定时返回 null
+     */
+    @Nullable
+    public ScriptPack getPack() {
+        return pack;
+    }
+
+    /**
+     * 注册此回调的脚本包命名空间，无法确定时返回 null
+     */
+    @Nullable
+    public String getPackNamespace() {
+        return pack != null ? pack.getNamespace() : null;
+    }
+
+    /**
+     * 所属脚本包是否处于激活状态
+     * 热重载期间新版本脚本包在替换完成前处于未激活状态，其回调不会被派发
+     */
+    public boolean isActive() {
+        return pack == null || pack.isActive();
+    }
+}
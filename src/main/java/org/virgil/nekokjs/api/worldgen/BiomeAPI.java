@@ -10,9 +10,10 @@ import net.minecraft.world.level.biome.Biome;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.craftbukkit.CraftWorld;
+import org.virgil.nekokjs.script.PackResources;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
@@ -22,7 +23,7 @@ import java.util.logging.Logger;
 public class BiomeAPI {
     
     private static final Logger LOGGER = Logger.getLogger("NekoKJS-Biome");
-    private static final Map<String, BiomeModifier> biomeModifiers = new HashMap<>();
+    private static final Map<String, BiomeModifier> biomeModifiers = new ConcurrentHashMap<>();
     
     // ===== 生物群系查询 =====
     
@@ -250,7 +251,7 @@ public class BiomeAPI {
                 }
             }
             
-            biomeModifiers.put(biomeId, biomeModifier);
+            PackResources.put(biomeModifiers, biomeId, biomeModifier);
             LOGGER.info("Registered biome modifier for: " + biomeId);
             return true;
         } catch (Exception e) {
@@ -299,7 +300,7 @@ public class BiomeAPI {
                 customBiome.waterFogColor = ((Number) config.get("waterFogColor")).intValue();
             }
             
-            biomeModifiers.put(biomeId, customBiome);
+            PackResources.put(biomeModifiers, biomeId, customBiome);
             LOGGER.info("Registered custom biome: " + biomeId + " (runtime only)");
             return true;
         } catch (Exception e) {
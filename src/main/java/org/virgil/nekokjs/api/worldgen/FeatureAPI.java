@@ -7,8 +7,10 @@ import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.craftbukkit.CraftWorld;
+import org.virgil.nekokjs.script.PackResources;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
@@ -18,8 +20,8 @@ import java.util.logging.Logger;
 public class FeatureAPI {
     
     private static final Logger LOGGER = Logger.getLogger("NekoKJS-Feature");
-    private static final Map<String, OreConfig> oreConfigs = new HashMap<>();
-    private static final Map<String, TreeConfig> treeConfigs = new HashMap<>();
+    private static final Map<String, OreConfig> oreConfigs = new ConcurrentHashMap<>();
+    private static final Map<String, TreeConfig> treeConfigs = new ConcurrentHashMap<>();
     private static final Random random = new Random();
     
     // ===== 矿石生成 =====
@@ -71,7 +73,7 @@ public class FeatureAPI {
                 }
             }
             
-            oreConfigs.put(oreId, oreConfig);
+            PackResources.put(oreConfigs, oreId, oreConfig);
             LOGGER.info("Registered ore config: " + oreId);
             return true;
         } catch (Exception e) {
@@ -189,7 +191,7 @@ public class FeatureAPI {
                 }
             }
             
-            treeConfigs.put(treeId, treeConfig);
+            PackResources.put(treeConfigs, treeId, treeConfig);
             LOGGER.info("Registered tree config: " + treeId);
             return true;
         } catch (Exception e) {
@@ -406,7 +408,7 @@ public class FeatureAPI {
                 }
             }
             
-            customFeatures.put(featureId, feature);
+            PackResources.put(customFeatures, featureId, feature);
             LOGGER.info("Registered custom feature: " + featureId);
             return true;
         } catch (Exception e) {
@@ -416,7 +418,7 @@ public class FeatureAPI {
         }
     }
     
-    private static final Map<String, CustomFeature> customFeatures = new HashMap<>();
+    private static final Map<String, CustomFeature> customFeatures = new ConcurrentHashMap<>();
     
     /**
      * 生成自定义特征
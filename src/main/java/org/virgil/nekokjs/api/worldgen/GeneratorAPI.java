@@ -8,10 +8,11 @@ import net.minecraft.world.level.levelgen.NoiseGeneratorSettings;
 import org.bukkit.World;
 import org.bukkit.WorldCreator;
 import org.bukkit.generator.ChunkGenerator.ChunkData;
+import org.virgil.nekokjs.script.PackResources;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
@@ -21,7 +22,7 @@ import java.util.logging.Logger;
 public class GeneratorAPI {
     
     private static final Logger LOGGER = Logger.getLogger("NekoKJS-Generator");
-    private static final Map<String, CustomGenerator> customGenerators = new HashMap<>();
+    private static final Map<String, CustomGenerator> customGenerators = new ConcurrentHashMap<>();
     
     /**
      * 注册自定义生成器
@@ -33,7 +34,7 @@ public class GeneratorAPI {
     public static boolean registerGenerator(String generatorId, Map<String, Object> config) {
         try {
             CustomGenerator generator = new CustomGenerator(generatorId, config);
-            customGenerators.put(generatorId, generator);
+            PackResources.put(customGenerators, generatorId, generator);
             LOGGER.info("Registered custom generator: " + generatorId);
             return true;
         } catch (Exception e) {
@@ -5,8 +5,10 @@ import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.data.BlockData;
+import org.virgil.nekokjs.script.PackResources;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
@@ -16,8 +18,8 @@ import java.util.logging.Logger;
 public class JigsawAPI {
     
     private static final Logger LOGGER = Logger.getLogger("NekoKJS-Jigsaw");
-    private static final Map<String, JigsawPool> pools = new HashMap<>();
-    private static final Map<String, JigsawPiece> pieces = new HashMap<>();
+    private static final Map<String, JigsawPool> pools = new ConcurrentHashMap<>();
+    private static final Map<String, JigsawPiece> pieces = new ConcurrentHashMap<>();
     
     /**
      * 注册拼图池
@@ -46,7 +48,7 @@ public class JigsawAPI {
                 pool.fallbackPool = config.get("fallback").toString();
             }
             
-            pools.put(poolId, pool);
+            PackResources.put(pools, poolId, pool);
             LOGGER.info("Registered jigsaw pool: " + poolId);
             return true;
         } catch (Exception e) {
@@ -112,7 +114,7 @@ public class JigsawAPI {
                 }
             }
             
-            pieces.put(pieceId, piece);
+            PackResources.put(pieces, pieceId, piece);
             LOGGER.info("Registered jigsaw piece: " + pieceId);
             return true;
         } catch (Exception e) {
@@ -1,9 +1,17 @@
 package org.virgil.nekokjs.api.worldgen;
 
+import org.virgil.nekokjs.api.worldgen.density.DensityExpression;
+import org.virgil.nekokjs.api.worldgen.density.DensityGraphLinker;
+import org.virgil.nekokjs.api.worldgen.density.DensityMath;
+import org.virgil.nekokjs.api.worldgen.density.DensityNode;
+import org.virgil.nekokjs.api.worldgen.density.VanillaDensityFunction;
+import org.virgil.nekokjs.script.PackResources;
+
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
@@ -13,11 +21,13 @@ import java.util.logging.Logger;
 public class NoiseAPI {
     
     private static final Logger LOGGER = Logger.getLogger("NekoKJS-Noise");
-    private static final Map<String, NoiseGenerator> noiseGenerators = new HashMap<>();
-    private static final Map<String, DensityFunction> densityFunctions = new HashMap<>();
+    private static final Map<String, NoiseGenerator> noiseGenerators = new ConcurrentHashMap<>();
+    private static final Map<String, DensityFunction> densityFunctions = new ConcurrentHashMap<>();
+    // 按 ID 链接并编译后的密度函数图，注册表变化时整体替换为新的空表，计算中的旧图不受影响
+    private static volatile Map<String, DensityExpression> linkedDensities = new ConcurrentHashMap<>();
     
     // 噪声缓存 - 提高性能
-    private static final Map<String, Map<Long, Double>> noiseCache = new HashMap<>();
+    private static final Map<String, Map<Long, Double>> noiseCache = new ConcurrentHashMap<>();
     private static final int MAX_CACHE_SIZE = 10000; // 每个噪声生成器最多缓存 10000 个值
     private static boolean cacheEnabled = true;
     
@@ -74,7 +84,10 @@ public class NoiseAPI {
             }
             
             NoiseGenerator generator = new NoiseGenerator(noiseId, noiseType, frequency, octaves, persistence, lacunarity, seed);
-            noiseGenerators.put(noiseId, generator);
+            // 同名噪声重新注册（热重载）时丢弃旧参数的缓存值
+            noiseCache.remove(noiseId);
+            PackResources.put(noiseGenerators, noiseId, generator, () -> noiseCache.remove(noiseId));
+            densityGraphChanged();
             
             LOGGER.info("Registered noise generator: " + noiseId + " (type=" + noiseType + ")");
             return true;
@@ -196,6 +209,9 @@ public class NoiseAPI {
             
             DensityFunction function;
             switch (type) {
+                case "EXPRESSION":
+                    return registerDensityExpression(functionId, config.get("expression").toString());
+                    
                 case "NOISE":
                     String noiseId = config.get("noise").toString();
                     double scale = config.containsKey("scale") ? 
@@ -308,7 +324,8 @@ public class NoiseAPI {
                     return false;
             }
             
-            densityFunctions.put(functionId, function);
+            PackResources.put(densityFunctions, functionId, function);
+            densityGraphChanged();
             LOGGER.info("Registered density function: " + functionId + " (type=" + type + ")");
             return true;
         } catch (Exception e) {
@@ -318,8 +335,46 @@ public class NoiseAPI {
         }
     }
     
+    /**
+     * 注册密度表达式
+     * 表达式在注册时编译为 Java 字节码，计算时不进入 JS 引擎
+     * 用法: NoiseAPI.registerDensityExpression("mypack:terrain", "clamp(noise('mypack:base') * 0.5 + y_gradient(-64, 320, 1, -1), -1, 1)")
+     * 
+     * 引用的噪声和密度函数必须先注册，注册时即绑定
+     * 
+     * @param functionId 函数 ID
+     * @param expression 表达式，语法见 DensityExpressionParser
+     * @return 是否注册成功
+     */
+    public static boolean registerDensityExpression(String functionId, String expression) {
+        try {
+            DensityExpression compiled = DensityExpression.create(expression, noiseGenerators::get, densityFunctions::get);
+            PackResources.put(densityFunctions, functionId, compiled);
+            densityGraphChanged();
+            LOGGER.info("Registered density expression: " + functionId + (compiled.isCompiled() ? " (compiled)" : " (interpreted)"));
+            return true;
+        } catch (Exception e) {
+            LOGGER.severe("Failed to register density expression " + functionId + ": " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * 获取密度函数对应的原版 DensityFunction
+     * 使用链接后的密度函数图，带有取值范围
+     * 
+     * @param functionId 函数 ID
+     * @return 原版密度函数，未注册时返回 null
+     */
+    public static net.minecraft.world.level.levelgen.DensityFunction getVanillaDensityFunction(String functionId) {
+        DensityExpression graph = getLinkedDensity(functionId);
+        return graph != null ? graph.toVanilla() : null;
+    }
+    
     /**
      * 计算密度函数值
+     * 第一次计算时把函数及其引用的全部密度函数、噪声链接为一棵节点树并编译，
+     * 之后的计算不再按 ID 查找输入
      * 
      * @param functionId 函数 ID
      * @param x X 坐标
@@ -328,12 +383,46 @@ public class NoiseAPI {
      * @return 密度值
      */
     public static double getDensity(String functionId, double x, double y, double z) {
-        DensityFunction function = densityFunctions.get(functionId);
-        if (function == null) {
+        DensityExpression graph = getLinkedDensity(functionId);
+        if (graph == null) {
             LOGGER.warning("Density function not found: " + functionId);
             return 0.0;
         }
-        return function.compute(x, y, z);
+        return graph.compute(x, y, z);
+    }
+    
+    /**
+     * 获取链接后的密度函数图，未链接时链接并编译
+     * 
+     * @return 未注册时返回 null
+     */
+    private static DensityExpression getLinkedDensity(String functionId) {
+        Map<String, DensityExpression> linked = linkedDensities;
+        DensityExpression graph = linked.get(functionId);
+        if (graph != null) {
+            return graph;
+        }
+        DensityFunction function = densityFunctions.get(functionId);
+        if (function == null) {
+            return null;
+        }
+        return linked.computeIfAbsent(functionId, id -> {
+            try {
+                DensityNode root = new DensityGraphLinker(noiseGenerators::get, densityFunctions::get).density(id);
+                return DensityExpression.compile("density('" + id + "')", root);
+            } catch (Exception e) {
+                LOGGER.severe("Failed to link density function " + id + ": " + e.getMessage());
+                return DensityExpression.compile("density('" + id + "')", new DensityNode.Density(id, function));
+            }
+        });
+    }
+    
+    /**
+     * 噪声或密度函数注册、重新注册或随脚本包卸载后，丢弃已链接的密度函数图
+     */
+    private static void densityGraphChanged() {
+        linkedDensities = new ConcurrentHashMap<>();
+        PackResources.track(() -> linkedDensities = new ConcurrentHashMap<>());
     }
     
     /**
@@ -555,6 +644,14 @@ public class NoiseAPI {
      */
     public interface DensityFunction {
         double compute(double x, double y, double z);
+        
+        /**
+         * 链接为节点树，输入引用通过 linker 按 ID 解析
+         * 默认作为不透明的函数直接调用
+         */
+        default DensityNode link(DensityGraphLinker linker) {
+            return linker.opaque(this);
+        }
     }
     
     /**
@@ -573,6 +670,12 @@ public class NoiseAPI {
         public double compute(double x, double y, double z) {
             return getNoise(noiseId, x, y, z) * scale;
         }
+        
+        @Override
+        public DensityNode link(DensityGraphLinker linker) {
+            DensityNode noise = linker.noise(noiseId, false);
+            return scale == 1.0 ? noise : linker.intern(DensityNode.Binary.of('*', noise, new DensityNode.Const(scale)));
+        }
     }
     
     /**
@@ -589,6 +692,11 @@ public class NoiseAPI {
         public double compute(double x, double y, double z) {
             return value;
         }
+        
+        @Override
+        public DensityNode link(DensityGraphLinker linker) {
+            return linker.intern(new DensityNode.Const(value));
+        }
     }
     
     /**
@@ -607,6 +715,11 @@ public class NoiseAPI {
         public double compute(double x, double y, double z) {
             return getDensity(input1, x, y, z) + getDensity(input2, x, y, z);
         }
+        
+        @Override
+        public DensityNode link(DensityGraphLinker linker) {
+            return linker.intern(DensityNode.Binary.of('+', linker.density(input1), linker.density(input2)));
+        }
     }
     
     /**
@@ -625,6 +738,11 @@ public class NoiseAPI {
         public double compute(double x, double y, double z) {
             return getDensity(input1, x, y, z) * getDensity(input2, x, y, z);
         }
+        
+        @Override
+        public DensityNode link(DensityGraphLinker linker) {
+            return linker.intern(DensityNode.Binary.of('*', linker.density(input1), linker.density(input2)));
+        }
     }
     
     /**
@@ -646,6 +764,12 @@ public class NoiseAPI {
             double value = getDensity(input, x, y, z);
             return Math.max(min, Math.min(max, value));
         }
+        
+        @Override
+        public DensityNode link(DensityGraphLinker linker) {
+            return linker.intern(DensityNode.Call.of(DensityMath.Builtin.CLAMP, List.of(
+                    linker.density(input), new DensityNode.Const(min), new DensityNode.Const(max))));
+        }
     }
     
     /**
@@ -672,6 +796,12 @@ public class NoiseAPI {
             double t = (y - fromY) / (toY - fromY);
             return fromValue + t * (toValue - fromValue);
         }
+        
+        @Override
+        public DensityNode link(DensityGraphLinker linker) {
+            return linker.intern(DensityNode.Call.of(DensityMath.Builtin.Y_GRADIENT, List.of(new DensityNode.Var(1),
+                    new DensityNode.Const(fromY), new DensityNode.Const(toY), new DensityNode.Const(fromValue), new DensityNode.Const(toValue))));
+        }
     }
     
     // ===== 高级密度函数 =====
@@ -690,6 +820,11 @@ public class NoiseAPI {
         public double compute(double x, double y, double z) {
             return Math.abs(getDensity(input, x, y, z));
         }
+        
+        @Override
+        public DensityNode link(DensityGraphLinker linker) {
+            return linker.intern(DensityNode.Call.of(DensityMath.Builtin.ABS, List.of(linker.density(input))));
+        }
     }
     
     /**
@@ -707,6 +842,11 @@ public class NoiseAPI {
             double value = getDensity(input, x, y, z);
             return value * value;
         }
+        
+        @Override
+        public DensityNode link(DensityGraphLinker linker) {
+            return linker.intern(DensityNode.Call.of(DensityMath.Builtin.SQUARE, List.of(linker.density(input))));
+        }
     }
     
     /**
@@ -724,6 +864,11 @@ public class NoiseAPI {
             double value = getDensity(input, x, y, z);
             return value * value * value;
         }
+        
+        @Override
+        public DensityNode link(DensityGraphLinker linker) {
+            return linker.intern(DensityNode.Call.of(DensityMath.Builtin.CUBE, List.of(linker.density(input))));
+        }
     }
     
     /**
@@ -742,6 +887,11 @@ public class NoiseAPI {
         public double compute(double x, double y, double z) {
             return Math.min(getDensity(input1, x, y, z), getDensity(input2, x, y, z));
         }
+        
+        @Override
+        public DensityNode link(DensityGraphLinker linker) {
+            return linker.intern(DensityNode.Call.of(DensityMath.Builtin.MIN, List.of(linker.density(input1), linker.density(input2))));
+        }
     }
     
     /**
@@ -760,6 +910,11 @@ public class NoiseAPI {
         public double compute(double x, double y, double z) {
             return Math.max(getDensity(input1, x, y, z), getDensity(input2, x, y, z));
         }
+        
+        @Override
+        public DensityNode link(DensityGraphLinker linker) {
+            return linker.intern(DensityNode.Call.of(DensityMath.Builtin.MAX, List.of(linker.density(input1), linker.density(input2))));
+        }
     }
     
     /**
@@ -783,6 +938,13 @@ public class NoiseAPI {
             double t = getDensity(delta, x, y, z);
             return a + t * (b - a);
         }
+        
+        @Override
+        public DensityNode link(DensityGraphLinker linker) {
+            // a + t * (b - a)
+            return linker.intern(DensityNode.Call.of(DensityMath.Builtin.LERP, List.of(
+                    linker.density(delta), linker.density(input1), linker.density(input2))));
+        }
     }
     
     /**
@@ -801,26 +963,19 @@ public class NoiseAPI {
         
         @Override
         public double compute(double x, double y, double z) {
-            double value = getDensity(input, x, y, z);
-            
             // 简单的线性插值样条
-            if (value <= points[0]) return values[0];
-            if (value >= points[points.length - 1]) return values[values.length - 1];
-            
-            for (int i = 0; i < points.length - 1; i++) {
-                if (value >= points[i] && value <= points[i + 1]) {
-                    double t = (value - points[i]) / (points[i + 1] - points[i]);
-                    return values[i] + t * (values[i + 1] - values[i]);
-                }
-            }
-            
-            return 0.0;
+            return DensityMath.spline(getDensity(input, x, y, z), points, values);
+        }
+        
+        @Override
+        public DensityNode link(DensityGraphLinker linker) {
+            return linker.intern(DensityNode.Spline.of(linker.density(input), points, values));
         }
     }
     
     // ===== 噪声路由器 =====
     
-    private static final Map<String, NoiseRouter> noiseRouters = new HashMap<>();
+    private static final Map<String, NoiseRouter> noiseRouters = new ConcurrentHashMap<>();
     
     /**
      * 注册噪声路由器
@@ -871,7 +1026,7 @@ public class NoiseAPI {
                 router.finalDensity = config.get("finalDensity").toString();
             }
             
-            noiseRouters.put(routerId, router);
+            PackResources.put(noiseRouters, routerId, router);
             LOGGER.info("Registered noise router: " + routerId);
             return true;
         } catch (Exception e) {
@@ -16,16 +16,17 @@ import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.craftbukkit.CraftServer;
 import org.bukkit.craftbukkit.CraftWorld;
+import org.virgil.nekokjs.script.PackResources;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
@@ -35,7 +36,7 @@ import java.util.logging.Logger;
 public class StructureAPI {
     
     private static final Logger LOGGER = Logger.getLogger("NekoKJS-Structure");
-    private static final Map<String, StructureTemplate> customStructures = new HashMap<>();
+    private static final Map<String, StructureTemplate> customStructures = new ConcurrentHashMap<>();
     
     // ===== 结构查找 =====
     
@@ -150,12 +151,12 @@ public class StructureAPI {
             if (!(template instanceof StructureTemplate)) {
                 // 尝试从 JavaScript 对象转换
                 StructureTemplate structureTemplate = new StructureTemplate(structureId);
-                customStructures.put(structureId, structureTemplate);
+                PackResources.put(customStructures, structureId, structureTemplate);
                 LOGGER.info("Registered custom structure: " + structureId);
                 return true;
             }
             
-            customStructures.put(structureId, (StructureTemplate) template);
+            PackResources.put(customStructures, structureId, (StructureTemplate) template);
             LOGGER.info("Registered custom structure: " + structureId);
             return true;
         } catch (Exception e) {
@@ -199,7 +200,7 @@ public class StructureAPI {
                 
                 // 转换为我们的 StructureTemplate
                 StructureTemplate customTemplate = convertFromNMS(structureId, nmsTemplate);
-                customStructures.put(structureId, customTemplate);
+                PackResources.put(customStructures, structureId, customTemplate);
                 
                 LOGGER.info("Loaded structure from NBT: " + structureId + " (" + nbtFilePath + ")");
                 return true;
@@ -213,7 +214,7 @@ public class StructureAPI {
                         templateManager.readStructure(inputStream);
                     
                     StructureTemplate customTemplate = convertFromNMS(structureId, nmsTemplate);
-                    customStructures.put(structureId, customTemplate);
+                    PackResources.put(customStructures, structureId, customTemplate);
                     
                     LOGGER.info("Loaded structure from file: " + structureId + " (" + nbtFilePath + ")");
                     return true;
@@ -566,7 +567,7 @@ public class StructureAPI {
          * 构建并注册结构
          */
         public StructureTemplate build() {
-            customStructures.put(template.getId(), template);
+            PackResources.put(customStructures, template.getId(), template);
             LOGGER.info("Built structure: " + template.getId() + " with " + template.getBlockCount() + " blocks");
             return template;
         }
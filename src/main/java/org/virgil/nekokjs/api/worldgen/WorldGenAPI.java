@@ -216,7 +216,7 @@ public class WorldGenAPI {
      * 根据方块 ID 获取 BlockState
      */
     @Nullable
-    private static BlockState getBlockState(String blockId) {
+    public static BlockState getBlockState(String blockId) {
         try {
             ResourceLocation location = ResourceLocation.parse(blockId);
             // 使用 BuiltInRegistries 替代 Bukkit.getServer().getRegistry()
@@ -245,7 +245,7 @@ public class WorldGenAPI {
      * 根据生物群系 ID 获取 Holder<Biome>
      */
     @Nullable
-    private static Holder<Biome> getBiome(String biomeId) {
+    public static Holder<Biome> getBiome(String biomeId) {
         try {
             ResourceLocation location = ResourceLocation.parse(biomeId);
             ResourceKey<Biome> key = ResourceKey.create(Registries.BIOME, location);
@@ -0,0 +1,110 @@
+package org.virgil.nekokjs.api.worldgen.density;
+
+import org.virgil.nekokjs.api.worldgen.NoiseAPI;
+
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * 编译后的密度表达式
+ * 脚本在启动时注册一次，之后世界生成直接调用编译出的 Java 代码，不进入 JS 引擎
+ *
+ * 噪声和密度函数引用在解析时绑定为对象；通过 NoiseAPI.getDensity 计算时，
+ * 表达式作为密度函数图的一部分重新按 ID 链接，被引用的条目重新注册后自动生效
+ */
+public final class DensityExpression implements NoiseAPI.DensityFunction {
+    private static final Logger LOGGER = Logger.getLogger("NekoKJS-Noise");
+
+    private final String source;
+    private final DensityNode root;
+    private final NoiseAPI.DensityFunction function;
+    private final boolean compiled;
+
+    private DensityExpression(String source, DensityNode root, NoiseAPI.DensityFunction function, boolean compiled) {
+        this.source = source;
+        this.root = root;
+        this.function = function;
+        this.compiled = compiled;
+    }
+
+    /**
+     * 解析并编译表达式，字节码无法定义时退回解释执行
+     *
+     * @param noises 噪声 ID 到噪声生成器，未注册时返回 null
+     * @param densities 密度函数 ID 到密度函数，未注册时返回 null
+     * @throws IllegalArgumentException 语法错误或引用不存在
+     */
+    public static DensityExpression create(String source, Function<String, NoiseAPI.NoiseGenerator> noises,
+                                           Function<String, NoiseAPI.DensityFunction> densities) {
+        return compile(source, DensityExpressionParser.parse(source, noises, densities));
+    }
+
+    /**
+     * 编译已有的节点树，字节码无法定义时退回解释执行
+     *
+     * @param source 表达式源码或描述，只用于 toString 和日志
+     */
+    public static DensityExpression compile(String source, DensityNode root) {
+        try {
+            return new DensityExpression(source, root, DensityExpressionCompiler.compile(root, source), true);
+        } catch (RuntimeException | LinkageError e) {
+            LOGGER.warning("Failed to compile density expression " + source + ", falling back to interpreter: " + e.getMessage());
+            return new DensityExpression(source, root, root::eval, false);
+        }
+    }
+
+    @Override
+    public double compute(double x, double y, double z) {
+        return function.compute(x, y, z);
+    }
+
+    @Override
+    public DensityNode link(DensityGraphLinker linker) {
+        return linker.relink(root);
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public DensityNode getRoot() {
+        return root;
+    }
+
+    /**
+     * 计算密度的函数，编译成功时是生成的隐藏类实例
+     */
+    public NoiseAPI.DensityFunction getFunction() {
+        return function;
+    }
+
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    /**
+     * 取值范围下界的保守估计，无法确定时为负无穷
+     */
+    public double minValue() {
+        return root.minValue();
+    }
+
+    /**
+     * 取值范围上界的保守估计，无法确定时为正无穷
+     */
+    public double maxValue() {
+        return root.maxValue();
+    }
+
+    /**
+     * 包装为原版 DensityFunction，可以放入自定义 NoiseRouter
+     */
+    public VanillaDensityFunction toVanilla() {
+        return new VanillaDensityFunction(function, minValue(), maxValue());
+    }
+}
@@ -0,0 +1,303 @@
+package org.virgil.nekokjs.api.worldgen.density;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.virgil.nekokjs.api.worldgen.NoiseAPI;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把密度表达式的语法树编译为隐藏类
+ *
+ * 生成的类实现 NoiseAPI.DensityFunction，compute(x, y, z) 是一段没有分支的字节码：
+ * 四则运算直接使用 dadd / dmul 等指令，内置函数 invokestatic 到 DensityMath 或 Math，
+ * 引用的噪声生成器、密度函数和样条保存在 final 字段中（隐藏类的 final 字段被 JIT 视为常量）
+ *
+ * 被多个父节点共享的节点（DensityGraphLinker 合并出的公共子树）第一次计算后存入局部变量，
+ * 之后直接读取，每次 compute 只计算一次
+ *
+ * 字节码由 ASM 生成（运行时由服务端提供），操作数栈深度和栈帧由 ClassWriter 计算
+ *
+ * 隐藏类没有名字、不被类加载器强引用，表达式不再使用后可以被卸载
+ */
+public final class DensityExpressionCompiler {
+    private static final String CLASS_NAME =
+            DensityExpressionCompiler.class.getPackageName().replace('.', '/') + "/CompiledDensityFunction";
+    private static final String OBJECT = "java/lang/Object";
+    private static final String DENSITY_FUNCTION = internalName(NoiseAPI.DensityFunction.class);
+    private static final String NOISE_GENERATOR = internalName(NoiseAPI.NoiseGenerator.class);
+    private static final String SPLINE = internalName(DensityNode.Spline.class);
+    private static final String COMPUTE_DESCRIPTOR = "(DDD)D";
+    private static final String NOISE_DESCRIPTOR = "(DDD)D";
+    private static final String SPLINE_DESCRIPTOR = "(D)D";
+    // toString 返回的表达式源码长度上限，避免超过常量池 Utf8 的长度限制
+    private static final int MAX_SOURCE_LENGTH = 4096;
+    // HotSpot 默认不编译超过 8000 字节的方法（-XX:HugeMethodLimit），这样的方法解释执行不如直接遍历节点
+    private static final int HUGE_METHOD_LIMIT = 8000;
+    // compute 的参数占用局部变量 0 到 6，共享节点的值从 7 开始存放
+    private static final int FIRST_SHARED_LOCAL = 7;
+
+    private final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    // 字段保存的引用：噪声生成器、密度函数或样条节点
+    private final List<Object> references = new ArrayList<>();
+    private final Map<Object, Integer> fieldIndex = new IdentityHashMap<>();
+    // 每个节点被父节点引用的次数
+    private final Map<DensityNode, Integer> uses = new IdentityHashMap<>();
+    // 已经计算过的共享节点所在的局部变量
+    private final Map<DensityNode, Integer> sharedLocals = new IdentityHashMap<>();
+    private int nextLocal = FIRST_SHARED_LOCAL;
+
+    private DensityExpressionCompiler() {
+    }
+
+    /**
+     * 编译表达式
+     *
+     * @param source 表达式源码，只用于 toString
+     * @throws IllegalStateException 生成的类无法定义或过大时
+     */
+    public static NoiseAPI.DensityFunction compile(DensityNode root, String source) {
+        DensityExpressionCompiler compiler = new DensityExpressionCompiler();
+        compiler.collect(root);
+        return compiler.define(root, source);
+    }
+
+    private NoiseAPI.DensityFunction define(DensityNode root, String source) {
+        writer.visit(Opcodes.V21, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+                CLASS_NAME, null, OBJECT, new String[]{DENSITY_FUNCTION});
+        for (int i = 0; i < references.size(); i++) {
+            writer.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "r" + i, referenceDescriptor(i), null, null)
+                    .visitEnd();
+        }
+        writeConstructor();
+        writeCompute(root);
+        writeToString(source);
+        writer.visitEnd();
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(writer.toByteArray(), true);
+            return (NoiseAPI.DensityFunction) lookup
+                    .findConstructor(lookup.lookupClass(), MethodType.methodType(void.class, Object[].class))
+                    .invoke(references.toArray());
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to define compiled density function: " + e, e);
+        }
+    }
+
+    /**
+     * 统计节点的引用次数，并收集需要保存在字段中的对象，同一个对象只占一个字段
+     * 共享节点的子树只遍历一次
+     */
+    private void collect(DensityNode node) {
+        if (uses.merge(node, 1, Integer::sum) > 1) {
+            return;
+        }
+        switch (node) {
+            case DensityNode.Noise noise -> addReference(noise.generator());
+            case DensityNode.Density density -> addReference(density.function());
+            case DensityNode.Spline spline -> {
+                addReference(spline);
+                collect(spline.input());
+            }
+            case DensityNode.Neg neg -> collect(neg.input());
+            case DensityNode.Binary binary -> {
+                collect(binary.left());
+                collect(binary.right());
+            }
+            case DensityNode.Call call -> {
+                for (DensityNode arg : call.args()) {
+                    collect(arg);
+                }
+            }
+            case DensityNode.Const ignored -> {
+            }
+            case DensityNode.Var ignored -> {
+            }
+        }
+    }
+
+    private void addReference(Object reference) {
+        if (!fieldIndex.containsKey(reference)) {
+            fieldIndex.put(reference, references.size());
+            references.add(reference);
+        }
+    }
+
+    private String referenceType(int index) {
+        Object reference = references.get(index);
+        return reference instanceof NoiseAPI.NoiseGenerator ? NOISE_GENERATOR
+                : reference instanceof DensityNode.Spline ? SPLINE
+                : DENSITY_FUNCTION;
+    }
+
+    private String referenceDescriptor(int index) {
+        return "L" + referenceType(index) + ";";
+    }
+
+    /**
+     * public CompiledDensityFunction(Object[] refs)：依次把 refs[i] 转换类型后写入字段 ri
+     */
+    private void writeConstructor() {
+        MethodVisitor code = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "([Ljava/lang/Object;)V", null, null);
+        code.visitCode();
+        code.visitVarInsn(Opcodes.ALOAD, 0);
+        code.visitMethodInsn(Opcodes.INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+        for (int i = 0; i < references.size(); i++) {
+            code.visitVarInsn(Opcodes.ALOAD, 0);
+            code.visitVarInsn(Opcodes.ALOAD, 1);
+            pushInt(code, i);
+            code.visitInsn(Opcodes.AALOAD);
+            code.visitTypeInsn(Opcodes.CHECKCAST, referenceType(i));
+            code.visitFieldInsn(Opcodes.PUTFIELD, CLASS_NAME, "r" + i, referenceDescriptor(i));
+        }
+        code.visitInsn(Opcodes.RETURN);
+        code.visitMaxs(0, 0);
+        code.visitEnd();
+    }
+
+    /**
+     * public double compute(double x, double y, double z)，局部变量 1、3、5 分别是 x、y、z
+     */
+    private void writeCompute(DensityNode root) {
+        MethodVisitor code = writer.visitMethod(Opcodes.ACC_PUBLIC, "compute", COMPUTE_DESCRIPTOR, null, null);
+        code.visitCode();
+        emit(code, root);
+        // 方法体直接写入 ClassWriter，标签的偏移量就是 dreturn 之前的字节数
+        Label end = new Label();
+        code.visitLabel(end);
+        code.visitInsn(Opcodes.DRETURN);
+        int length = end.getOffset() + 1;
+        if (length > HUGE_METHOD_LIMIT) {
+            throw new IllegalStateException("Compiled density function is too large to be JIT-compiled (" + length + " bytes)");
+        }
+        code.visitMaxs(0, 0);
+        code.visitEnd();
+    }
+
+    private void writeToString(String source) {
+        String text = source.length() > MAX_SOURCE_LENGTH ? source.substring(0, MAX_SOURCE_LENGTH) + "..." : source;
+        MethodVisitor code = writer.visitMethod(Opcodes.ACC_PUBLIC, "toString", "()Ljava/lang/String;", null, null);
+        code.visitCode();
+        code.visitLdcInsn(text);
+        code.visitInsn(Opcodes.ARETURN);
+        code.visitMaxs(0, 0);
+        code.visitEnd();
+    }
+
+    /**
+     * 生成计算节点值的指令，执行后操作数栈顶多一个 double
+     * 共享节点第一次计算后复制一份存入局部变量，之后直接读取
+     */
+    private void emit(MethodVisitor code, DensityNode node) {
+        Integer local = sharedLocals.get(node);
+        if (local != null) {
+            code.visitVarInsn(Opcodes.DLOAD, local);
+            return;
+        }
+        emitNode(code, node);
+        if (uses.get(node) > 1 && !(node instanceof DensityNode.Const) && !(node instanceof DensityNode.Var)) {
+            local = nextLocal;
+            nextLocal += 2;
+            sharedLocals.put(node, local);
+            code.visitInsn(Opcodes.DUP2);
+            code.visitVarInsn(Opcodes.DSTORE, local);
+        }
+    }
+
+    private void emitNode(MethodVisitor code, DensityNode node) {
+        switch (node) {
+            case DensityNode.Const constant -> {
+                double value = constant.value();
+                if (Double.doubleToRawLongBits(value) == 0L) {
+                    code.visitInsn(Opcodes.DCONST_0);
+                } else if (value == 1.0) {
+                    code.visitInsn(Opcodes.DCONST_1);
+                } else {
+                    code.visitLdcInsn(value);
+                }
+            }
+            case DensityNode.Var variable -> loadCoordinate(code, variable.axis());
+            case DensityNode.Neg neg -> {
+                emit(code, neg.input());
+                code.visitInsn(Opcodes.DNEG);
+            }
+            case DensityNode.Binary binary -> {
+                emit(code, binary.left());
+                emit(code, binary.right());
+                code.visitInsn(switch (binary.op()) {
+                    case '+' -> Opcodes.DADD;
+                    case '-' -> Opcodes.DSUB;
+                    case '*' -> Opcodes.DMUL;
+                    default -> Opcodes.DDIV;
+                });
+            }
+            case DensityNode.Call call -> {
+                for (DensityNode arg : call.args()) {
+                    emit(code, arg);
+                }
+                DensityMath.Builtin function = call.function();
+                code.visitMethodInsn(Opcodes.INVOKESTATIC, function.getOwner(), function.getMethodName(),
+                        function.getDescriptor(), false);
+            }
+            case DensityNode.Spline spline -> {
+                loadReference(code, spline);
+                emit(code, spline.input());
+                code.visitMethodInsn(Opcodes.INVOKEVIRTUAL, SPLINE, "apply", SPLINE_DESCRIPTOR, false);
+            }
+            case DensityNode.Noise noise -> {
+                loadReference(code, noise.generator());
+                loadCoordinate(code, 0);
+                if (noise.flat()) {
+                    code.visitInsn(Opcodes.DCONST_0);
+                } else {
+                    loadCoordinate(code, 1);
+                }
+                loadCoordinate(code, 2);
+                code.visitMethodInsn(Opcodes.INVOKEVIRTUAL, NOISE_GENERATOR, "getValue", NOISE_DESCRIPTOR, false);
+            }
+            case DensityNode.Density density -> {
+                loadReference(code, density.function());
+                loadCoordinate(code, 0);
+                loadCoordinate(code, 1);
+                loadCoordinate(code, 2);
+                code.visitMethodInsn(Opcodes.INVOKEINTERFACE, DENSITY_FUNCTION, "compute", COMPUTE_DESCRIPTOR, true);
+            }
+        }
+    }
+
+    private void loadReference(MethodVisitor code, Object reference) {
+        int index = fieldIndex.get(reference);
+        code.visitVarInsn(Opcodes.ALOAD, 0);
+        code.visitFieldInsn(Opcodes.GETFIELD, CLASS_NAME, "r" + index, referenceDescriptor(index));
+    }
+
+    /**
+     * 加载坐标参数：x、y、z 分别在局部变量 1、3、5
+     */
+    private static void loadCoordinate(MethodVisitor code, int axis) {
+        code.visitVarInsn(Opcodes.DLOAD, 1 + 2 * Math.min(axis, 2));
+    }
+
+    private static void pushInt(MethodVisitor code, int value) {
+        if (value <= 5) {
+            code.visitInsn(Opcodes.ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            code.visitIntInsn(Opcodes.BIPUSH, value);
+        } else if (value <= Short.MAX_VALUE) {
+            code.visitIntInsn(Opcodes.SIPUSH, value);
+        } else {
+            code.visitLdcInsn(value);
+        }
+    }
+
+    private static String internalName(Class<?> type) {
+        return type.getName().replace('.', '/');
+    }
+}
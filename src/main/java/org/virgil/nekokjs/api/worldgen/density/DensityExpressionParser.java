@@ -0,0 +1,237 @@
+package org.virgil.nekokjs.api.worldgen.density;
+
+import org.virgil.nekokjs.api.worldgen.NoiseAPI;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * 密度表达式解析器
+ *
+ * 语法：
+ * - 数字常量和 x、y、z 坐标变量
+ * - 四则运算 + - * /、取负、括号
+ * - 内置函数：abs、square、cube、half_negative、quarter_negative、squeeze、min、max、clamp、lerp、
+ *   y_gradient(fromY, toY, fromValue, toValue)
+ * - noise('id') 引用已注册的噪声生成器，noise2d('id') 按 y = 0 取值
+ * - density('id') 引用已注册的密度函数
+ *
+ * 例如: clamp(noise('a') * 0.5 + y_gradient(-64, 320, 1, -1), -1, 1)
+ *
+ * 引用在解析时解析为对象，只含常量的子表达式在解析时折叠
+ */
+public final class DensityExpressionParser {
+    private final String source;
+    private final Function<String, NoiseAPI.NoiseGenerator> noises;
+    private final Function<String, NoiseAPI.DensityFunction> densities;
+    private int pos;
+
+    private DensityExpressionParser(String source, Function<String, NoiseAPI.NoiseGenerator> noises,
+                                    Function<String, NoiseAPI.DensityFunction> densities) {
+        this.source = source;
+        this.noises = noises;
+        this.densities = densities;
+    }
+
+    /**
+     * 解析表达式
+     *
+     * @param noises 噪声 ID 到噪声生成器，未注册时返回 null
+     * @param densities 密度函数 ID 到密度函数，未注册时返回 null
+     * @throws IllegalArgumentException 语法错误或引用不存在
+     */
+    public static DensityNode parse(String source, Function<String, NoiseAPI.NoiseGenerator> noises,
+                                    Function<String, NoiseAPI.DensityFunction> densities) {
+        DensityExpressionParser parser = new DensityExpressionParser(source, noises, densities);
+        DensityNode node = parser.parseExpression();
+        parser.skipWhitespace();
+        if (parser.pos < source.length()) {
+            throw parser.error("Unexpected '" + source.charAt(parser.pos) + "'");
+        }
+        return node;
+    }
+
+    private DensityNode parseExpression() {
+        DensityNode node = parseTerm();
+        while (true) {
+            if (accept('+')) {
+                node = DensityNode.fold(DensityNode.Binary.of('+', node, parseTerm()));
+            } else if (accept('-')) {
+                node = DensityNode.fold(DensityNode.Binary.of('-', node, parseTerm()));
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private DensityNode parseTerm() {
+        DensityNode node = parseUnary();
+        while (true) {
+            if (accept('*')) {
+                node = DensityNode.fold(DensityNode.Binary.of('*', node, parseUnary()));
+            } else if (accept('/')) {
+                node = DensityNode.fold(DensityNode.Binary.of('/', node, parseUnary()));
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private DensityNode parseUnary() {
+        if (accept('-')) {
+            return DensityNode.fold(DensityNode.Neg.of(parseUnary()));
+        }
+        if (accept('+')) {
+            return parseUnary();
+        }
+        return parsePrimary();
+    }
+
+    private DensityNode parsePrimary() {
+        skipWhitespace();
+        if (pos >= source.length()) {
+            throw error("Unexpected end of expression");
+        }
+        char c = source.charAt(pos);
+        if (c == '(') {
+            pos++;
+            DensityNode node = parseExpression();
+            expect(')');
+            return node;
+        }
+        if (Character.isDigit(c) || c == '.') {
+            return new DensityNode.Const(parseNumber());
+        }
+        if (Character.isLetter(c) || c == '_') {
+            String name = parseIdentifier();
+            if (accept('(')) {
+                return parseCall(name);
+            }
+            return switch (name.toLowerCase(Locale.ROOT)) {
+                case "x" -> new DensityNode.Var(0);
+                case "y" -> new DensityNode.Var(1);
+                case "z" -> new DensityNode.Var(2);
+                default -> throw error("Unknown variable '" + name + "'");
+            };
+        }
+        throw error("Unexpected '" + c + "'");
+    }
+
+    private DensityNode parseCall(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        switch (lower) {
+            case "noise", "noise2d" -> {
+                String id = parseString();
+                expect(')');
+                NoiseAPI.NoiseGenerator generator = noises.apply(id);
+                if (generator == null) {
+                    throw error("Noise generator not found: " + id);
+                }
+                return new DensityNode.Noise(id, generator, lower.equals("noise2d"));
+            }
+            case "density" -> {
+                String id = parseString();
+                expect(')');
+                NoiseAPI.DensityFunction function = densities.apply(id);
+                if (function == null) {
+                    throw error("Density function not found: " + id);
+                }
+                return new DensityNode.Density(id, function);
+            }
+            default -> {
+            }
+        }
+
+        DensityMath.Builtin builtin = DensityMath.Builtin.byName(name);
+        if (builtin == null) {
+            throw error("Unknown function '" + name + "'");
+        }
+        List<DensityNode> args = new ArrayList<>();
+        if (builtin == DensityMath.Builtin.Y_GRADIENT) {
+            args.add(new DensityNode.Var(1));
+        }
+        if (!accept(')')) {
+            do {
+                args.add(parseExpression());
+            } while (accept(','));
+            expect(')');
+        }
+        if (args.size() != builtin.getArity()) {
+            throw error(builtin.getScriptName() + " expects " + builtin.getScriptArity() + " arguments");
+        }
+        return DensityNode.fold(DensityNode.Call.of(builtin, List.copyOf(args)));
+    }
+
+    private double parseNumber() {
+        int start = pos;
+        while (pos < source.length() && (Character.isDigit(source.charAt(pos)) || source.charAt(pos) == '.')) {
+            pos++;
+        }
+        if (pos < source.length() && (source.charAt(pos) == 'e' || source.charAt(pos) == 'E')) {
+            pos++;
+            if (pos < source.length() && (source.charAt(pos) == '+' || source.charAt(pos) == '-')) {
+                pos++;
+            }
+            while (pos < source.length() && Character.isDigit(source.charAt(pos))) {
+                pos++;
+            }
+        }
+        try {
+            return Double.parseDouble(source.substring(start, pos));
+        } catch (NumberFormatException e) {
+            pos = start;
+            throw error("Invalid number");
+        }
+    }
+
+    private String parseIdentifier() {
+        int start = pos;
+        while (pos < source.length() && (Character.isLetterOrDigit(source.charAt(pos)) || source.charAt(pos) == '_')) {
+            pos++;
+        }
+        return source.substring(start, pos);
+    }
+
+    private String parseString() {
+        skipWhitespace();
+        if (pos >= source.length() || (source.charAt(pos) != '\'' && source.charAt(pos) != '"')) {
+            throw error("Expected quoted id");
+        }
+        char quote = source.charAt(pos++);
+        int start = pos;
+        while (pos < source.length() && source.charAt(pos) != quote) {
+            pos++;
+        }
+        if (pos >= source.length()) {
+            throw error("Unterminated string");
+        }
+        return source.substring(start, pos++);
+    }
+
+    private boolean accept(char c) {
+        skipWhitespace();
+        if (pos < source.length() && source.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!accept(c)) {
+            throw error("Expected '" + c + "'");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < source.length() && Character.isWhitespace(source.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + pos + " in: " + source);
+    }
+}
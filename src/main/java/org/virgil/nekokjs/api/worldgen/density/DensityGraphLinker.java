@@ -0,0 +1,165 @@
+package org.virgil.nekokjs.api.worldgen.density;
+
+import org.virgil.nekokjs.api.worldgen.NoiseAPI;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * 把按 ID 互相引用的密度函数链接为一棵节点树
+ *
+ * - 每个 ID 只链接一次，输入引用直接指向节点，计算时不再查注册表
+ * - 检测循环引用，形成循环的那条引用按 0 计算（原来会无限递归）
+ * - 不存在的密度函数和噪声按 0 计算，只在链接时警告一次
+ * - 只含常量的子树折叠为常量，结构相同的子树合并为同一个节点实例，
+ *   编译时共享节点只计算一次
+ *
+ * 每次链接使用一个新的实例，不是线程安全的
+ */
+public final class DensityGraphLinker {
+    private static final Logger LOGGER = Logger.getLogger("NekoKJS-Noise");
+
+    private final Function<String, NoiseAPI.NoiseGenerator> noises;
+    private final Function<String, NoiseAPI.DensityFunction> densities;
+    private final Map<String, DensityNode> linked = new HashMap<>();
+    private final Map<Shape, DensityNode> interned = new HashMap<>();
+    // 正在链接的 ID，按引用顺序排列，用于检测循环
+    private final List<String> linking = new ArrayList<>();
+
+    /**
+     * @param noises 噪声 ID 到噪声生成器，未注册时返回 null
+     * @param densities 密度函数 ID 到密度函数，未注册时返回 null
+     */
+    public DensityGraphLinker(Function<String, NoiseAPI.NoiseGenerator> noises,
+                              Function<String, NoiseAPI.DensityFunction> densities) {
+        this.noises = noises;
+        this.densities = densities;
+    }
+
+    /**
+     * 链接密度函数及其引用的全部密度函数
+     */
+    public DensityNode density(String id) {
+        DensityNode node = linked.get(id);
+        if (node != null) {
+            return node;
+        }
+        int index = linking.indexOf(id);
+        if (index >= 0) {
+            LOGGER.severe("Density function cycle detected: " + String.join(" -> ", linking.subList(index, linking.size()))
+                    + " -> " + id + ", evaluating the reference as 0");
+            return intern(new DensityNode.Const(0.0));
+        }
+        NoiseAPI.DensityFunction function = densities.apply(id);
+        if (function == null) {
+            LOGGER.warning("Density function not found: " + id);
+            node = intern(new DensityNode.Const(0.0));
+        } else {
+            linking.add(id);
+            try {
+                node = function.link(this);
+            } finally {
+                linking.remove(linking.size() - 1);
+            }
+        }
+        linked.put(id, node);
+        return node;
+    }
+
+    /**
+     * 噪声生成器节点
+     *
+     * @param flat 为 true 时按 y = 0 取值
+     */
+    public DensityNode noise(String id, boolean flat) {
+        NoiseAPI.NoiseGenerator generator = noises.apply(id);
+        if (generator == null) {
+            LOGGER.warning("Noise generator not found: " + id);
+            return intern(new DensityNode.Const(0.0));
+        }
+        return intern(new DensityNode.Noise(id, generator, flat));
+    }
+
+    /**
+     * 不能链接的密度函数，计算时直接调用
+     */
+    public DensityNode opaque(NoiseAPI.DensityFunction function) {
+        String id = linking.isEmpty() ? String.valueOf(function) : linking.get(linking.size() - 1);
+        return intern(new DensityNode.Density(id, function));
+    }
+
+    /**
+     * 折叠常量，并返回结构相同的已有节点
+     */
+    public DensityNode intern(DensityNode node) {
+        DensityNode folded = DensityNode.fold(node);
+        DensityNode existing = interned.putIfAbsent(Shape.of(folded), folded);
+        return existing != null ? existing : folded;
+    }
+
+    /**
+     * 重新链接已解析的表达式：噪声和密度函数按 ID 重新解析，不使用解析时绑定的对象
+     */
+    public DensityNode relink(DensityNode node) {
+        return switch (node) {
+            case DensityNode.Const constant -> intern(constant);
+            case DensityNode.Var variable -> intern(variable);
+            case DensityNode.Neg neg -> intern(DensityNode.Neg.of(relink(neg.input())));
+            case DensityNode.Binary binary -> intern(DensityNode.Binary.of(binary.op(), relink(binary.left()), relink(binary.right())));
+            case DensityNode.Call call -> {
+                List<DensityNode> args = new ArrayList<>(call.args().size());
+                for (DensityNode arg : call.args()) {
+                    args.add(relink(arg));
+                }
+                yield intern(DensityNode.Call.of(call.function(), List.copyOf(args)));
+            }
+            case DensityNode.Spline spline -> intern(DensityNode.Spline.of(relink(spline.input()), spline.points(), spline.values()));
+            case DensityNode.Noise noise -> noise(noise.id(), noise.flat());
+            case DensityNode.Density density -> density(density.id());
+        };
+    }
+
+    /**
+     * 合并节点用的键：节点自身的参数加上子节点的引用
+     * 子节点都已经合并过，按引用比较即可；直接用记录的 hashCode 会递归遍历整个子图，
+     * 共享子树较多时是指数级的
+     */
+    private record Shape(Class<?> type, Object data, List<Same> children) {
+        static Shape of(DensityNode node) {
+            return switch (node) {
+                case DensityNode.Const constant -> new Shape(DensityNode.Const.class, constant.value(), List.of());
+                case DensityNode.Var variable -> new Shape(DensityNode.Var.class, variable.axis(), List.of());
+                case DensityNode.Neg neg -> new Shape(DensityNode.Neg.class, null, List.of(new Same(neg.input())));
+                case DensityNode.Binary binary -> new Shape(DensityNode.Binary.class, binary.op(),
+                        List.of(new Same(binary.left()), new Same(binary.right())));
+                case DensityNode.Call call -> new Shape(DensityNode.Call.class, call.function(),
+                        call.args().stream().map(Same::new).toList());
+                case DensityNode.Spline spline -> new Shape(DensityNode.Spline.class,
+                        List.of(new Same(spline.points()), new Same(spline.values())), List.of(new Same(spline.input())));
+                case DensityNode.Noise noise -> new Shape(DensityNode.Noise.class,
+                        List.of(noise.id(), new Same(noise.generator()), noise.flat()), List.of());
+                case DensityNode.Density density -> new Shape(DensityNode.Density.class,
+                        List.of(density.id(), new Same(density.function())), List.of());
+            };
+        }
+    }
+
+    /**
+     * 按引用比较的包装
+     */
+    private record Same(Object value) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Same other && other.value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(value);
+        }
+    }
+}
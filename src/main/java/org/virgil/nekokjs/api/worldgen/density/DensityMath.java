@@ -0,0 +1,211 @@
+package org.virgil.nekokjs.api.worldgen.density;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 密度表达式的内置函数
+ * 编译后的代码直接 invokestatic 这些方法（abs、min、max 使用 java.lang.Math），JIT 会内联
+ * 语义与 NoiseAPI 中同名的密度函数和原版 DensityFunctions 一致
+ */
+public final class DensityMath {
+
+    private DensityMath() {
+    }
+
+    public static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * 与 Y_CLAMPED_GRADIENT 相同：y 在 [fromY, toY] 之间线性插值，区间外取端点值
+     */
+    public static double yGradient(double y, double fromY, double toY, double fromValue, double toValue) {
+        if (y <= fromY) {
+            return fromValue;
+        }
+        if (y >= toY) {
+            return toValue;
+        }
+        double t = (y - fromY) / (toY - fromY);
+        return fromValue + t * (toValue - fromValue);
+    }
+
+    public static double lerp(double delta, double start, double end) {
+        return start + delta * (end - start);
+    }
+
+    public static double square(double value) {
+        return value * value;
+    }
+
+    public static double cube(double value) {
+        return value * value * value;
+    }
+
+    public static double halfNegative(double value) {
+        return value > 0.0 ? value : value * 0.5;
+    }
+
+    public static double quarterNegative(double value) {
+        return value > 0.0 ? value : value * 0.25;
+    }
+
+    /**
+     * 与原版 squeeze 相同：先限制到 [-1, 1]，再计算 x / 2 - x^3 / 24
+     */
+    public static double squeeze(double value) {
+        double clamped = clamp(value, -1.0, 1.0);
+        return clamped / 2.0 - clamped * clamped * clamped / 24.0;
+    }
+
+    /**
+     * 分段线性样条：points 升序，区间外取端点值，找不到所在区间时（例如 NaN）返回 0
+     */
+    public static double spline(double value, double[] points, double[] values) {
+        if (value <= points[0]) return values[0];
+        if (value >= points[points.length - 1]) return values[values.length - 1];
+
+        for (int i = 0; i < points.length - 1; i++) {
+            if (value >= points[i] && value <= points[i + 1]) {
+                double t = (value - points[i]) / (points[i + 1] - points[i]);
+                return values[i] + t * (values[i + 1] - values[i]);
+            }
+        }
+
+        return 0.0;
+    }
+
+    /**
+     * 表达式中可用的函数
+     */
+    public enum Builtin {
+        ABS("abs", 1, "java/lang/Math", "abs"),
+        SQUARE("square", 1, null, "square"),
+        CUBE("cube", 1, null, "cube"),
+        HALF_NEGATIVE("half_negative", 1, null, "halfNegative"),
+        QUARTER_NEGATIVE("quarter_negative", 1, null, "quarterNegative"),
+        SQUEEZE("squeeze", 1, null, "squeeze"),
+        MIN("min", 2, "java/lang/Math", "min"),
+        MAX("max", 2, "java/lang/Math", "max"),
+        CLAMP("clamp", 3, null, "clamp"),
+        LERP("lerp", 3, null, "lerp"),
+        Y_GRADIENT("y_gradient", 5, null, "yGradient");
+
+        private static final String OWNER = DensityMath.class.getName().replace('.', '/');
+
+        private final String scriptName;
+        private final int arity;
+        private final String owner;
+        private final String methodName;
+
+        Builtin(String scriptName, int arity, String owner, String methodName) {
+            this.scriptName = scriptName;
+            this.arity = arity;
+            this.owner = owner;
+            this.methodName = methodName;
+        }
+
+        /**
+         * 根据表达式中的函数名查找，找不到返回 null
+         * y_clamped_gradient 是 y_gradient 的别名
+         */
+        public static Builtin byName(String name) {
+            String normalized = name.toLowerCase(Locale.ROOT);
+            if (normalized.equals("y_clamped_gradient")) {
+                return Y_GRADIENT;
+            }
+            for (Builtin builtin : values()) {
+                if (builtin.scriptName.equals(normalized)) {
+                    return builtin;
+                }
+            }
+            return null;
+        }
+
+        public String getScriptName() {
+            return scriptName;
+        }
+
+        /**
+         * 参数个数（包括 y_gradient 隐含的 y 参数）
+         */
+        public int getArity() {
+            return arity;
+        }
+
+        /**
+         * 表达式中书写的参数个数，y_gradient 的 y 由当前坐标提供
+         */
+        public int getScriptArity() {
+            return this == Y_GRADIENT ? arity - 1 : arity;
+        }
+
+        /**
+         * 实现该函数的类（内部名称）
+         */
+        public String getOwner() {
+            return owner != null ? owner : OWNER;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+
+        /**
+         * 方法描述符，参数和返回值都是 double
+         */
+        public String getDescriptor() {
+            return "(" + "D".repeat(arity) + ")D";
+        }
+
+        public double apply(double[] args) {
+            return switch (this) {
+                case ABS -> Math.abs(args[0]);
+                case SQUARE -> square(args[0]);
+                case CUBE -> cube(args[0]);
+                case HALF_NEGATIVE -> halfNegative(args[0]);
+                case QUARTER_NEGATIVE -> quarterNegative(args[0]);
+                case SQUEEZE -> squeeze(args[0]);
+                case MIN -> Math.min(args[0], args[1]);
+                case MAX -> Math.max(args[0], args[1]);
+                case CLAMP -> clamp(args[0], args[1], args[2]);
+                case LERP -> lerp(args[0], args[1], args[2]);
+                case Y_GRADIENT -> yGradient(args[0], args[1], args[2], args[3], args[4]);
+            };
+        }
+
+        /**
+         * 根据参数的取值范围估计结果范围
+         *
+         * @return {min, max}
+         */
+        double[] bounds(List<DensityNode> args) {
+            DensityNode a = args.get(0);
+            double min = a.minValue();
+            double max = a.maxValue();
+            return switch (this) {
+                case ABS -> min >= 0.0 ? new double[]{min, max}
+                        : max <= 0.0 ? new double[]{-max, -min}
+                        : new double[]{0.0, Math.max(-min, max)};
+                case SQUARE -> min >= 0.0 ? new double[]{min * min, max * max}
+                        : max <= 0.0 ? new double[]{max * max, min * min}
+                        : new double[]{0.0, Math.max(min * min, max * max)};
+                case CUBE -> new double[]{min * min * min, max * max * max};
+                case HALF_NEGATIVE -> new double[]{halfNegative(min), halfNegative(max)};
+                case QUARTER_NEGATIVE -> new double[]{quarterNegative(min), quarterNegative(max)};
+                case SQUEEZE -> new double[]{squeeze(min), squeeze(max)};
+                case MIN -> new double[]{Math.min(min, args.get(1).minValue()), Math.min(max, args.get(1).maxValue())};
+                case MAX -> new double[]{Math.max(min, args.get(1).minValue()), Math.max(max, args.get(1).maxValue())};
+                // max(lo, min(hi, v)) 对每个参数单调不减
+                case CLAMP -> new double[]{
+                        Math.max(args.get(1).minValue(), Math.min(args.get(2).minValue(), min)),
+                        Math.max(args.get(1).maxValue(), Math.min(args.get(2).maxValue(), max))};
+                case Y_GRADIENT -> new double[]{
+                        Math.min(args.get(3).minValue(), args.get(4).minValue()),
+                        Math.max(args.get(3).maxValue(), args.get(4).maxValue())};
+                case LERP -> new double[]{Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY};
+            };
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package org.virgil.nekokjs.api.worldgen.density;
+
+import org.virgil.nekokjs.api.worldgen.NoiseAPI;
+
+import java.util.List;
+
+/**
+ * 密度表达式的语法树节点
+ * 解析后由 DensityExpressionCompiler 编译为字节码；编译失败时直接用 eval 解释执行
+ * 密度函数图由 DensityGraphLinker 链接为同样的节点，相同的子树共享同一个节点实例
+ *
+ * minValue / maxValue 是节点取值范围的保守估计（区间运算），无法确定时为无穷；
+ * 复合节点在创建时计算一次并保存在记录中
+ */
+public sealed interface DensityNode {
+
+    double eval(double x, double y, double z);
+
+    double minValue();
+
+    double maxValue();
+
+    /**
+     * 所有操作数都是常量时折叠为常量
+     */
+    static DensityNode fold(DensityNode node) {
+        boolean constant = switch (node) {
+            case Neg neg -> neg.input() instanceof Const;
+            case Binary binary -> binary.left() instanceof Const && binary.right() instanceof Const;
+            case Call call -> call.args().stream().allMatch(arg -> arg instanceof Const);
+            case Spline spline -> spline.input() instanceof Const;
+            default -> false;
+        };
+        return constant ? new Const(node.eval(0.0, 0.0, 0.0)) : node;
+    }
+
+    /**
+     * 常量
+     */
+    record Const(double value) implements DensityNode {
+        @Override
+        public double eval(double x, double y, double z) {
+            return value;
+        }
+
+        @Override
+        public double minValue() {
+            return value;
+        }
+
+        @Override
+        public double maxValue() {
+            return value;
+        }
+    }
+
+    /**
+     * 坐标变量，axis 为 0、1、2 分别对应 x、y、z
+     */
+    record Var(int axis) implements DensityNode {
+        @Override
+        public double eval(double x, double y, double z) {
+            return axis == 0 ? x : axis == 1 ? y : z;
+        }
+
+        @Override
+        public double minValue() {
+            return Double.NEGATIVE_INFINITY;
+        }
+
+        @Override
+        public double maxValue() {
+            return Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * 取负
+     */
+    record Neg(DensityNode input, double minValue, double maxValue) implements DensityNode {
+        public static Neg of(DensityNode input) {
+            return new Neg(input, -input.maxValue(), -input.minValue());
+        }
+
+        @Override
+        public double eval(double x, double y, double z) {
+            return -input.eval(x, y, z);
+        }
+    }
+
+    /**
+     * 四则运算，op 为 '+'、'-'、'*'、'/'
+     */
+    record Binary(char op, DensityNode left, DensityNode right, double minValue, double maxValue) implements DensityNode {
+        public static Binary of(char op, DensityNode left, DensityNode right) {
+            double aMin = left.minValue();
+            double aMax = left.maxValue();
+            double bMin = right.minValue();
+            double bMax = right.maxValue();
+            return switch (op) {
+                case '+' -> new Binary(op, left, right, aMin + bMin, aMax + bMax);
+                case '-' -> new Binary(op, left, right, aMin - bMax, aMax - bMin);
+                case '*' -> {
+                    double p1 = product(aMin, bMin);
+                    double p2 = product(aMin, bMax);
+                    double p3 = product(aMax, bMin);
+                    double p4 = product(aMax, bMax);
+                    yield new Binary(op, left, right, Math.min(Math.min(p1, p2), Math.min(p3, p4)),
+                            Math.max(Math.max(p1, p2), Math.max(p3, p4)));
+                }
+                default -> new Binary(op, left, right, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+            };
+        }
+
+        /**
+         * 区间端点相乘，0 乘无穷按 0 处理
+         */
+        private static double product(double a, double b) {
+            double value = a * b;
+            return Double.isNaN(value) ? 0.0 : value;
+        }
+
+        @Override
+        public double eval(double x, double y, double z) {
+            double a = left.eval(x, y, z);
+            double b = right.eval(x, y, z);
+            return switch (op) {
+                case '+' -> a + b;
+                case '-' -> a - b;
+                case '*' -> a * b;
+                default -> a / b;
+            };
+        }
+    }
+
+    /**
+     * 内置函数调用，参数都是密度值
+     */
+    record Call(DensityMath.Builtin function, List<DensityNode> args, double minValue, double maxValue) implements DensityNode {
+        public static Call of(DensityMath.Builtin function, List<DensityNode> args) {
+            double[] bounds = function.bounds(args);
+            return new Call(function, args, bounds[0], bounds[1]);
+        }
+
+        @Override
+        public double eval(double x, double y, double z) {
+            double[] values = new double[args.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = args.get(i).eval(x, y, z);
+            }
+            return function.apply(values);
+        }
+    }
+
+    /**
+     * 分段线性样条，与 NoiseAPI 的 SPLINE 密度函数相同
+     * 数组按引用比较，只有同一个样条才会被合并
+     */
+    record Spline(DensityNode input, double[] points, double[] values, double minValue, double maxValue) implements DensityNode {
+        public static Spline of(DensityNode input, double[] points, double[] values) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (double value : values) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            return new Spline(input, points, values, min, max);
+        }
+
+        public double apply(double value) {
+            return DensityMath.spline(value, points, values);
+        }
+
+        @Override
+        public double eval(double x, double y, double z) {
+            return apply(input.eval(x, y, z));
+        }
+    }
+
+    /**
+     * 引用已注册的噪声生成器，flat 为 true 时按 y = 0 取值（二维噪声）
+     */
+    record Noise(String id, NoiseAPI.NoiseGenerator generator, boolean flat) implements DensityNode {
+        @Override
+        public double eval(double x, double y, double z) {
+            return generator.getValue(x, flat ? 0.0 : y, z);
+        }
+
+        @Override
+        public double minValue() {
+            return Double.NEGATIVE_INFINITY;
+        }
+
+        @Override
+        public double maxValue() {
+            return Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * 引用已注册的密度函数
+     */
+    record Density(String id, NoiseAPI.DensityFunction function) implements DensityNode {
+        @Override
+        public double eval(double x, double y, double z) {
+            return function.compute(x, y, z);
+        }
+
+        @Override
+        public double minValue() {
+            return Double.NEGATIVE_INFINITY;
+        }
+
+        @Override
+        public double maxValue() {
+            return Double.POSITIVE_INFINITY;
+        }
+    }
+}
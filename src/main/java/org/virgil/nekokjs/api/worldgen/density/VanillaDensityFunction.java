@@ -0,0 +1,26 @@
+package org.virgil.nekokjs.api.worldgen.density;
+
+import com.mojang.serialization.MapCodec;
+import net.minecraft.util.KeyDispatchDataCodec;
+import net.minecraft.world.level.levelgen.DensityFunction;
+import org.virgil.nekokjs.api.worldgen.NoiseAPI;
+
+/**
+ * 把 NoiseAPI 的密度函数包装为原版 DensityFunction
+ * 按方块坐标调用被包装的函数；包装的是编译后的表达式时，JIT 可以把调用内联到原版的密度计算中
+ *
+ * 只存在于运行时，codec 不会把函数本身写入数据包
+ */
+public record VanillaDensityFunction(NoiseAPI.DensityFunction function, double minValue, double maxValue)
+        implements DensityFunction.SimpleFunction {
+
+    @Override
+    public double compute(DensityFunction.FunctionContext context) {
+        return function.compute(context.blockX(), context.blockY(), context.blockZ());
+    }
+
+    @Override
+    public KeyDispatchDataCodec<? extends DensityFunction> codec() {
+        return KeyDispatchDataCodec.of(MapCodec.unit(this));
+    }
+}
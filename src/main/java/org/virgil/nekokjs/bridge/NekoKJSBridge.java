@@ -1,6 +1,11 @@
 package org.virgil.nekokjs.bridge;
 
 import org.virgil.nekokjs.mixin.bridge.Bridge;
+import org.virgil.nekokjs.mixin.bridge.ChunkBiomeGrid;
+import org.virgil.nekokjs.mixin.bridge.DensitySlice;
+import org.virgil.nekokjs.mixin.bridge.SurfaceColumns;
+import org.virgil.nekokjs.mixin.metrics.HookMetrics;
+import org.virgil.nekokjs.mixin.metrics.HookTimer;
 import org.virgil.nekokjs.NekoKJSPlugin;
 import org.virgil.nekokjs.event.EventManager;
 
@@ -8,6 +13,8 @@ import org.virgil.nekokjs.event.EventManager;
  * Bridge 实现类，用于 Mixin 和插件主类之间的通信
  * 这是 Leaves Mixin 插件开发的标准模式
  * 注意：此类在 main 模块中，可以直接访问插件类，无需反射
+ *
+ * 每个钩子的调用次数、失败次数和耗时记录在 HookMetrics 中，可通过 /nekokjs stats 或 JMX 查看
  */
 public class NekoKJSBridge implements Bridge {
     private final NekoKJSPlugin plugin;
@@ -28,7 +35,14 @@ public class NekoKJSBridge implements Bridge {
     public void onServerTick() {
         EventManager eventManager = plugin.getEventManager();
         if (eventManager != null) {
-            eventManager.onServerTick();
+            long start = System.nanoTime();
+            try {
+                eventManager.onServerTick();
+            } catch (RuntimeException e) {
+                throw failed(HookMetrics.SERVER_TICK, e);
+            } finally {
+                HookMetrics.SERVER_TICK.stop(start);
+            }
         }
     }
 
@@ -41,7 +55,14 @@ public class NekoKJSBridge implements Bridge {
     public boolean onChunkSurfaceGenerate(net.minecraft.server.level.WorldGenRegion level, net.minecraft.world.level.chunk.ChunkAccess chunk) {
         EventManager eventManager = plugin.getEventManager();
         if (eventManager != null) {
-            return eventManager.onChunkSurfaceGenerate(level, chunk);
+            long start = System.nanoTime();
+            try {
+                return eventManager.onChunkSurfaceGenerate(level, chunk);
+            } catch (RuntimeException e) {
+                throw failed(HookMetrics.CHUNK_SURFACE, e);
+            } finally {
+                HookMetrics.CHUNK_SURFACE.stop(start);
+            }
         }
         return false;
     }
@@ -63,7 +84,14 @@ public class NekoKJSBridge implements Bridge {
     ) {
         EventManager eventManager = plugin.getEventManager();
         if (eventManager != null) {
-            return eventManager.onChunkCarverGenerate(level, chunk, seed);
+            long start = System.nanoTime();
+            try {
+                return eventManager.onChunkCarverGenerate(level, chunk, seed);
+            } catch (RuntimeException e) {
+                throw failed(HookMetrics.CHUNK_CARVER, e);
+            } finally {
+                HookMetrics.CHUNK_CARVER.stop(start);
+            }
         }
         return false;
     }
@@ -76,40 +104,72 @@ public class NekoKJSBridge implements Bridge {
     }
 
     @Override
-    public net.minecraft.core.Holder<net.minecraft.world.level.biome.Biome> onBiomeSelect(
-        int x, int y, int z, 
-        net.minecraft.world.level.biome.Climate.Sampler sampler
-    ) {
+    public void onChunkBiomeGrid(ChunkBiomeGrid grid) {
         EventManager eventManager = plugin.getEventManager();
         if (eventManager != null) {
-            return eventManager.onBiomeSelect(x, y, z, sampler);
+            long start = System.nanoTime();
+            try {
+                eventManager.onChunkBiomeGrid(grid);
+            } catch (RuntimeException e) {
+                throw failed(HookMetrics.BIOME_GRID, e);
+            } finally {
+                HookMetrics.BIOME_GRID.stop(start);
+            }
         }
-        return null;
     }
 
     @Override
     public Double onDensityFunctionCompute(int blockX, int blockY, int blockZ, double originalDensity) {
         EventManager eventManager = plugin.getEventManager();
         if (eventManager != null) {
-            return eventManager.onDensityFunctionCompute(blockX, blockY, blockZ, originalDensity);
+            long start = System.nanoTime();
+            try {
+                return eventManager.onDensityFunctionCompute(blockX, blockY, blockZ, originalDensity);
+            } catch (RuntimeException e) {
+                throw failed(HookMetrics.DENSITY_COMPUTE, e);
+            } finally {
+                HookMetrics.DENSITY_COMPUTE.stop(start);
+            }
         }
         return null;
     }
 
     @Override
-    public void onSurfaceRuleUpdate(int blockX, int blockY, int blockZ, int stoneDepthAbove, int stoneDepthBelow, int waterHeight) {
+    public boolean onDensitySlice(DensitySlice slice) {
         EventManager eventManager = plugin.getEventManager();
         if (eventManager != null) {
-            eventManager.onSurfaceRuleUpdate(blockX, blockY, blockZ, stoneDepthAbove, stoneDepthBelow, waterHeight);
+            long start = System.nanoTime();
+            try {
+                return eventManager.onDensitySlice(slice);
+            } catch (RuntimeException e) {
+                throw failed(HookMetrics.DENSITY_SLICE, e);
+            } finally {
+                HookMetrics.DENSITY_SLICE.stop(start);
+            }
         }
+        return false;
     }
 
     @Override
-    public net.minecraft.world.level.block.state.BlockState onSurfaceBlockSelect(int blockX, int blockY, int blockZ, int surfaceDepth) {
+    public void onSurfaceColumns(SurfaceColumns columns) {
         EventManager eventManager = plugin.getEventManager();
         if (eventManager != null) {
-            return eventManager.onSurfaceBlockSelect(blockX, blockY, blockZ, surfaceDepth);
+            long start = System.nanoTime();
+            try {
+                eventManager.onSurfaceColumns(columns);
+            } catch (RuntimeException e) {
+                throw failed(HookMetrics.SURFACE_COLUMNS, e);
+            } finally {
+                HookMetrics.SURFACE_COLUMNS.stop(start);
+            }
         }
-        return null;
+    }
+
+    /**
+     * 记录钩子失败，原样抛出异常
+     */
+    private static RuntimeException failed(HookTimer timer, RuntimeException e) {
+        timer.error();
+        return e;
     }
 }
@@ -6,20 +6,35 @@ import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
 import org.jetbrains.annotations.NotNull;
 import org.virgil.nekokjs.NekoKJSPlugin;
+import org.virgil.nekokjs.mixin.metrics.HookMetrics;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * NekoKJS 主命令
  * 使用 Paper 命令 API
- * 用法: /nekokjs <reload|info|help>
+ * 用法: /nekokjs <reload|info|list|budget|stats|load|unload|profile|help>
  * 重载子命令: /nekokjs reload <all|config|dataconfig>
+ * 单个脚本包: /nekokjs load <pack>、/nekokjs unload <pack>
+ * 性能分析: /nekokjs profile start [秒数]、/nekokjs profile stop
+ * 性能指标: /nekokjs stats [hook|event|pack|cache|reset]
  */
 public class NekoKJSCommand implements BasicCommand {
+    private static final List<String> STATS_CATEGORIES = List.of(
+        HookMetrics.HOOK, HookMetrics.EVENT, HookMetrics.PACK, HookMetrics.CACHE
+    );
+    
     private final NekoKJSPlugin plugin;
     private final MiniMessage miniMessage;
+    // 每次开始分析递增，旧的定时停止任务不会停止新的分析
+    private final AtomicInteger profileSession = new AtomicInteger();
 
     public NekoKJSCommand(NekoKJSPlugin plugin) {
         this.plugin = plugin;
@@ -131,6 +146,145 @@ public class NekoKJSCommand implements BasicCommand {
                 }
             }
             
+            case "budget" -> {
+                var tickBudget = plugin.getEventManager().getTickBudget();
+                sendMessage(stack, "budget.header");
+                sendMessage(stack, "budget.status",
+                    "enabled", tickBudget.isEnabled(),
+                    "global", formatMillis(tickBudget.getGlobalBudgetNanos()),
+                    "deferred", tickBudget.getDeferredCount()
+                );
+                var stats = tickBudget.getPackStats();
+                if (stats.isEmpty()) {
+                    sendMessage(stack, "budget.no-data");
+                } else {
+                    stats.forEach((namespace, packStats) -> sendMessage(stack, "budget.pack-item",
+                        "namespace", namespace,
+                        "budget", formatMillis(packStats.budgetNanos),
+                        "total", formatMillis(packStats.totalNanos),
+                        "overruns", packStats.overruns,
+                        "deferred", packStats.deferred
+                    ));
+                }
+                sendMessage(stack, "budget.footer");
+            }
+            
+            case "stats" -> {
+                String category = args.length > 1 ? args[1].toLowerCase() : "";
+                if (category.equals("reset")) {
+                    if (!stack.getSender().hasPermission("nekokjs.command.reload")) {
+                        sendMessage(stack, "command.no-permission");
+                        return;
+                    }
+                    HookMetrics.reset();
+                    sendMessage(stack, "stats.reset");
+                    return;
+                }
+                if (!category.isEmpty() && !STATS_CATEGORIES.contains(category)) {
+                    sendMessage(stack, "stats.usage");
+                    return;
+                }
+                
+                sendMessage(stack, "stats.header");
+                boolean any = false;
+                for (String name : STATS_CATEGORIES) {
+                    if (category.isEmpty() || category.equals(name)) {
+                        any |= sendStats(stack, name);
+                    }
+                }
+                if (!any) {
+                    sendMessage(stack, "stats.no-data");
+                }
+                sendMessage(stack, "stats.footer");
+            }
+            
+            case "load" -> {
+                if (!stack.getSender().hasPermission("nekokjs.command.reload")) {
+                    sendMessage(stack, "command.no-permission");
+                    return;
+                }
+                if (args.length < 2) {
+                    sendMessage(stack, "pack.usage-load");
+                    return;
+                }
+                
+                String packName = args[1];
+                if (!new java.io.File(plugin.getScriptManager().getScriptsDir(), packName + "/pack.yml").isFile()) {
+                    sendMessage(stack, "pack.not-found", "name", packName);
+                    return;
+                }
+                
+                // 脚本在异步线程中执行，避免阻塞主线程
+                sendMessage(stack, "pack.loading", "name", packName);
+                long startTime = System.currentTimeMillis();
+                plugin.getScriptManager().loadPackAsync(packName, success -> {
+                    if (success) {
+                        sendMessage(stack, "pack.loaded", "name", packName, "time", System.currentTimeMillis() - startTime);
+                    } else {
+                        sendMessage(stack, "pack.load-failed", "name", packName);
+                    }
+                });
+            }
+            
+            case "unload" -> {
+                if (!stack.getSender().hasPermission("nekokjs.command.reload")) {
+                    sendMessage(stack, "command.no-permission");
+                    return;
+                }
+                if (args.length < 2) {
+                    sendMessage(stack, "pack.usage-unload");
+                    return;
+                }
+                
+                String packName = args[1];
+                var unloaded = plugin.getScriptManager().unloadPack(packName);
+                if (unloaded.isEmpty()) {
+                    sendMessage(stack, "pack.not-loaded", "name", packName);
+                } else {
+                    sendMessage(stack, "pack.unloaded", "packs", String.join(", ", unloaded));
+                }
+            }
+            
+            case "profile" -> {
+                if (!stack.getSender().hasPermission("nekokjs.command.reload")) {
+                    sendMessage(stack, "command.no-permission");
+                    return;
+                }
+                
+                String action = args.length > 1 ? args[1].toLowerCase() : "";
+                var profiler = plugin.getScriptEngine().getProfiler();
+                if (action.equals("start")) {
+                    long seconds = 0;
+                    if (args.length > 2) {
+                        try {
+                            seconds = Long.parseLong(args[2]);
+                        } catch (NumberFormatException e) {
+                            sendMessage(stack, "profile.usage");
+                            return;
+                        }
+                    }
+                    if (!profiler.start()) {
+                        sendMessage(stack, "profile.already-running");
+                        return;
+                    }
+                    int session = profileSession.incrementAndGet();
+                    if (seconds > 0) {
+                        sendMessage(stack, "profile.started-timed", "seconds", seconds);
+                        runDelayed(() -> {
+                            if (profileSession.get() == session) {
+                                stopProfile(stack);
+                            }
+                        }, seconds);
+                    } else {
+                        sendMessage(stack, "profile.started");
+                    }
+                } else if (action.equals("stop")) {
+                    stopProfile(stack);
+                } else {
+                    sendMessage(stack, "profile.usage");
+                }
+            }
+            
             case "help" -> sendHelp(stack);
             
             default -> sendMessage(stack, "command.unknown");
@@ -142,10 +296,108 @@ public class NekoKJSCommand implements BasicCommand {
         sendMessage(stack, "help.reload");
         sendMessage(stack, "help.list");
         sendMessage(stack, "help.info");
+        sendMessage(stack, "help.budget");
+        sendMessage(stack, "help.stats");
+        sendMessage(stack, "help.load");
+        sendMessage(stack, "help.unload");
+        sendMessage(stack, "help.profile");
         sendMessage(stack, "help.help");
         sendMessage(stack, "help.footer");
     }
 
+    /**
+     * 输出一个分类下有数据的指标
+     *
+     * @return 是否输出了任何指标
+     */
+    private boolean sendStats(CommandSourceStack stack, String category) {
+        var timers = HookMetrics.getTimers(category).stream().filter(timer -> timer.getCount() > 0).toList();
+        var counters = HookMetrics.getCounters(category).stream().filter(counter -> counter.getCount() > 0).toList();
+        if (timers.isEmpty() && counters.isEmpty()) {
+            return false;
+        }
+        
+        sendMessage(stack, "stats." + category);
+        timers.forEach(timer -> sendMessage(stack, "stats.timer-item",
+            "name", timer.getName(),
+            "count", timer.getCount(),
+            "mean", String.format("%.1f", timer.getMeanMicros()),
+            "p99", String.format("%.1f", timer.getP99Micros()),
+            "max", String.format("%.1f", timer.getMaxMicros()),
+            "total", String.format("%.1f", timer.getTotalMillis()),
+            "errors", timer.getErrors()
+        ));
+        counters.forEach(counter -> sendMessage(stack, "stats.counter-item",
+            "name", counter.getName(),
+            "count", counter.getCount()
+        ));
+        return true;
+    }
+
+    /**
+     * 停止性能分析，写入折叠栈文件并输出耗时最多的脚本包、函数和源码行
+     */
+    private void stopProfile(CommandSourceStack stack) {
+        var report = plugin.getScriptEngine().getProfiler().stop();
+        if (report == null) {
+            sendMessage(stack, "profile.not-running");
+            return;
+        }
+        profileSession.incrementAndGet();
+        
+        File file;
+        try {
+            file = report.writeCollapsed(new File(plugin.getDataFolder(), "profiles"));
+        } catch (IOException e) {
+            sendMessage(stack, "profile.write-failed", "error", e.getMessage());
+            return;
+        }
+        
+        long total = report.getTotalNanos();
+        sendMessage(stack, "profile.header");
+        sendMessage(stack, "profile.summary",
+            "duration", String.format("%.1f", report.getDurationMillis() / 1000.0),
+            "total", formatMillis(total),
+            "stacks", report.getStackCount()
+        );
+        sendProfileSection(stack, "profile.packs", report.topPacks(5), total);
+        sendProfileSection(stack, "profile.callbacks", report.topCallbacks(5), total);
+        sendProfileSection(stack, "profile.lines", report.topLines(5), total);
+        sendMessage(stack, "profile.saved", "file", plugin.getDataFolder().getName() + "/profiles/" + file.getName());
+        sendMessage(stack, "profile.footer");
+    }
+
+    private void sendProfileSection(CommandSourceStack stack, String key, List<Map.Entry<String, Long>> entries, long total) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        sendMessage(stack, key);
+        for (Map.Entry<String, Long> entry : entries) {
+            sendMessage(stack, "profile.item",
+                "name", entry.getKey().replace(';', ' '),
+                "time", formatMillis(entry.getValue()),
+                "percent", String.format("%.1f", total > 0 ? entry.getValue() * 100.0 / total : 0)
+            );
+        }
+    }
+
+    /**
+     * 延迟执行任务（Folia 兼容）
+     */
+    private void runDelayed(Runnable task, long seconds) {
+        try {
+            // Folia：使用异步调度器
+            plugin.getServer().getAsyncScheduler().runDelayed(plugin, scheduledTask -> task.run(), seconds, TimeUnit.SECONDS);
+        } catch (NoSuchMethodError e) {
+            // Paper/Spigot：使用传统调度器
+            plugin.getServer().getScheduler().runTaskLaterAsynchronously(plugin, task, seconds * 20);
+        }
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+
     /**
      * 发送翻译消息
      * 使用 MiniMessage 解析颜色和格式
@@ -165,6 +417,11 @@ public class NekoKJSCommand implements BasicCommand {
             suggestions.add("reload");
             suggestions.add("list");
             suggestions.add("info");
+            suggestions.add("budget");
+            suggestions.add("stats");
+            suggestions.add("load");
+            suggestions.add("unload");
+            suggestions.add("profile");
             suggestions.add("help");
             
             // 过滤匹配的选项
@@ -180,7 +437,14 @@ public class NekoKJSCommand implements BasicCommand {
                 suggestions.add("all");
                 suggestions.add("config");
                 suggestions.add("dataconfig");
-            } else if (args[0].equalsIgnoreCase("list")) {
+            } else if (args[0].equalsIgnoreCase("stats")) {
+                suggestions.addAll(STATS_CATEGORIES);
+                suggestions.add("reset");
+            } else if (args[0].equalsIgnoreCase("profile")) {
+                suggestions.add("start");
+                suggestions.add("stop");
+            } else if (args[0].equalsIgnoreCase("list") || args[0].equalsIgnoreCase("load")
+                    || args[0].equalsIgnoreCase("unload")) {
                 // list 子命令建议 - 所有脚本包名称
                 return plugin.getScriptManager().getScriptPacks().stream()
                         .map(pack -> pack.getNamespace())
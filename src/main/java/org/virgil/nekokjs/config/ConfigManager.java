@@ -215,14 +215,33 @@ public class ConfigManager {
         config.set("debug", false);
         config.set("auto-reload", false);
         config.set("script-timeout", 5000);
+        config.set("script-watchdog.enabled", true);
+        config.set("script-watchdog.check-interval", 10000);
+        config.set("script-watchdog.event.timeout-ms", 1000);
+        config.set("script-watchdog.worldgen.timeout-ms", 250);
+        config.set("tick-budget.enabled", true);
+        config.set("tick-budget.global-ms", 10.0);
+        config.set("tick-budget.per-pack-ms", 5.0);
+        config.set("metrics.jmx", true);
+        config.set("jfr.enabled", true);
+        config.set("jfr.thresholds.callback-ms", 1.0);
+        config.set("jfr.thresholds.worldgen-ms", 1.0);
+        config.set("jfr.thresholds.module-load-ms", 0.0);
+        config.set("jfr.thresholds.pack-load-ms", 0.0);
+        config.set("performance.worldgen-cache.biome-chunks", 1024);
         
         config.setComments("language", java.util.List.of(
             "NekoKJS 配置文件",
             "语言设置 (zh_CN, en_US)"
         ));
         config.setComments("debug", java.util.List.of("调试模式"));
-        config.setComments("auto-reload", java.util.List.of("自动重载脚本（检测到文件变化时）"));
+        config.setComments("auto-reload", java.util.List.of("自动重载脚本（检测到文件变化时，只重新加载受影响的脚本包）"));
         config.setComments("script-timeout", java.util.List.of("脚本执行超时时间（毫秒）"));
+        config.setComments("script-watchdog", java.util.List.of("脚本看门狗，单次调用超过时间或指令数限制时中止脚本"));
+        config.setComments("tick-budget", java.util.List.of("脚本 Tick 时间预算（毫秒），预算用尽后剩余工作顺延到下一 tick"));
+        config.setComments("metrics", java.util.List.of("性能指标，使用 /nekokjs stats 查看，jmx 为 true 时同时发布为 JMX MBean"));
+        config.setComments("jfr", java.util.List.of("Java Flight Recorder 事件，耗时低于阈值（毫秒）的调用不提交"));
+        config.setComments("performance.worldgen-cache", java.util.List.of("生物群系钩子结果缓存容量（区块数），满时淘汰最近未使用的区块，修改后需要重启"));
         
         config.save(file);
     }
@@ -1,9 +1,6 @@
 package org.virgil.nekokjs.event;
 
-import net.minecraft.core.Holder;
 import net.minecraft.server.level.WorldGenRegion;
-import net.minecraft.world.level.biome.Biome;
-import net.minecraft.world.level.biome.Climate;
 import net.minecraft.world.level.chunk.ChunkAccess;
 import net.minecraft.world.level.levelgen.RandomState;
 import org.bukkit.Bukkit;
@@ -13,6 +10,9 @@ import org.bukkit.event.server.ServerLoadEvent;
 import org.virgil.nekokjs.NekoKJSPlugin;
 import org.virgil.nekokjs.api.event.EventsAPI;
 import org.virgil.nekokjs.lang.LanguageManager;
+import org.virgil.nekokjs.mixin.bridge.ChunkBiomeGrid;
+import org.virgil.nekokjs.mixin.bridge.DensitySlice;
+import org.virgil.nekokjs.mixin.bridge.SurfaceColumns;
 
 import javax.annotation.Nullable;
 import java.util.concurrent.CompletableFuture;
@@ -26,24 +26,28 @@ public class EventManager implements Listener {
     private final NekoKJSPlugin plugin;
     private final Logger logger;
     private final EventsAPI eventsAPI;
+    private final TickBudgetManager tickBudget;
+    private final TimingWheel timingWheel;
     private final LanguageManager lang;
-    private int tickInterval;
+    private final int tickInterval;
     private long tickCount = 0;
 
     public EventManager(NekoKJSPlugin plugin) {
         this.plugin = plugin;
         this.logger = plugin.getLogger();
         this.lang = plugin.getConfigManager().getLanguageManager();
-        this.eventsAPI = new EventsAPI(plugin);
+        
+        // 从配置读取 tick 间隔（serverTick 回调的默认周期）
+        tickInterval = Math.max(1, plugin.getConfigManager().getConfig().getInt("events.tick-interval", 20));
+        
+        this.tickBudget = new TickBudgetManager(logger,
+                plugin.getConfigManager().getConfig().getConfigurationSection("tick-budget"));
+        this.timingWheel = new TimingWheel(logger);
+        this.eventsAPI = new EventsAPI(plugin, tickBudget, timingWheel, tickInterval);
         
         // 注册事件监听器
         Bukkit.getPluginManager().registerEvents(this, plugin);
         
-        // 从配置读取 tick 间隔
-        if (plugin.getConfigManager() != null) {
-            tickInterval = plugin.getConfigManager().getConfig().getInt("events.tick-interval", 20);
-        }
-        
         logger.info(lang.eventManagerInitialized(tickInterval));
     }
 
@@ -58,14 +62,19 @@ public class EventManager implements Listener {
      */
     public void onServerTick() {
         tickCount++;
+
+        // 先执行上一 tick 因预算不足而延迟的任务
+        try {
+            tickBudget.beginTick();
+        } catch (Exception e) {
+            logger.warning(lang.eventTickFailed(e.getMessage()));
+        }
         
-        // 根据配置的间隔触发 tick 事件
-        if (tickCount % tickInterval == 0) {
-            try {
-                eventsAPI.triggerServerTick();
-            } catch (Exception e) {
-                logger.warning(lang.eventTickFailed(e.getMessage()));
-            }
+        // 推进时间轮，执行到期的 serverTick 回调和定时任务
+        try {
+            timingWheel.advance();
+        } catch (Exception e) {
+            logger.warning(lang.eventTickFailed(e.getMessage()));
         }
     }
 
@@ -77,6 +86,14 @@ public class EventManager implements Listener {
         return eventsAPI;
     }
 
+    public TickBudgetManager getTickBudget() {
+        return tickBudget;
+    }
+
+    public TimingWheel getTimingWheel() {
+        return timingWheel;
+    }
+
     public void cleanup() {
         eventsAPI.cleanup();
         logger.info(lang.eventManagerCleaned());
@@ -128,17 +145,15 @@ public class EventManager implements Listener {
     }
     
     /**
-     * 生物群系选择事件
+     * 区块生物群系网格事件
      * 由 Mixin 调用
      */
-    @Nullable
-    public Holder<Biome> onBiomeSelect(int x, int y, int z, Climate.Sampler sampler) {
+    public void onChunkBiomeGrid(ChunkBiomeGrid grid) {
         try {
-            return eventsAPI.triggerBiomeSelect(x, y, z, sampler);
+            eventsAPI.triggerChunkBiomeGrid(grid);
         } catch (Exception e) {
-            logger.warning("Biome selection failed: " + e.getMessage());
+            logger.warning("Chunk biome grid failed: " + e.getMessage());
             e.printStackTrace();
-            return null;
         }
     }
     
@@ -157,28 +172,28 @@ public class EventManager implements Listener {
     }
     
     /**
-     * 地表规则更新事件
+     * 批量密度事件
      * 由 Mixin 调用
      */
-    public void onSurfaceRuleUpdate(int blockX, int blockY, int blockZ, int stoneDepthAbove, int stoneDepthBelow, int waterHeight) {
+    public boolean onDensitySlice(DensitySlice slice) {
         try {
-            eventsAPI.triggerSurfaceRuleUpdate(blockX, blockY, blockZ, stoneDepthAbove, stoneDepthBelow, waterHeight);
+            return eventsAPI.triggerDensitySlice(slice);
         } catch (Exception e) {
-            // 忽略错误
+            // 忽略错误，保留原版密度
+            return false;
         }
     }
     
     /**
-     * 地表方块选择事件
+     * 区块地表列事件
      * 由 Mixin 调用
      */
-    @Nullable
-    public net.minecraft.world.level.block.state.BlockState onSurfaceBlockSelect(int blockX, int blockY, int blockZ, int surfaceDepth) {
+    public void onSurfaceColumns(SurfaceColumns columns) {
         try {
-            return eventsAPI.triggerSurfaceBlockSelect(blockX, blockY, blockZ, surfaceDepth);
+            eventsAPI.triggerSurfaceColumns(columns);
         } catch (Exception e) {
-            // 忽略错误
-            return null;
+            logger.warning("Surface columns failed: " + e.getMessage());
+            e.printStackTrace();
         }
     }
 }
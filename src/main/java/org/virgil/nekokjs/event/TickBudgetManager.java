@@ -0,0 +1,238 @@
+package org.virgil.nekokjs.event;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * Tick 时间预算管理器
+ * 限制脚本回调每 tick 占用的 CPU 时间，避免单个脚本包把 MSPT 推过 50ms
+ *
+ * 可延迟的工作（server.tick 回调、Server.runTaskLater 任务）通过 submit 提交：
+ * - 全局预算和所属脚本包的预算都还有剩余时立即执行
+ * - 否则放入延迟队列，在下一 tick 开始时优先执行；预算仍用尽的脚本包的任务被跳过，不阻塞其他脚本包
+ * - 每 tick 至少执行一个延迟任务，保证重型脚本包不会被永久饿死
+ *
+ * 每个脚本包记录超支次数和被延迟的任务数，可通过 /nekokjs budget 查看
+ */
+public class TickBudgetManager {
+    private static final String UNKNOWN_PACK = "unknown";
+
+    private final Logger logger;
+    private final Map<String, PackBudget> packs = new HashMap<>();
+    private final Map<String, Long> packBudgetOverrides = new HashMap<>();
+    private final ArrayDeque<DeferredTask> deferredQueue = new ArrayDeque<>();
+    private final Set<Object> deferredKeys = new HashSet<>();
+
+    private boolean enabled;
+    private long globalBudgetNanos;
+    private long packBudgetNanos;
+    private long globalSpentNanos;
+
+    public TickBudgetManager(Logger logger, ConfigurationSection config) {
+        this.logger = logger;
+        loadConfig(config);
+    }
+
+    /**
+     * 读取 tick-budget 配置
+     */
+    public synchronized void loadConfig(ConfigurationSection config) {
+        enabled = config == null || config.getBoolean("enabled", true);
+        globalBudgetNanos = millisToNanos(config != null ? config.getDouble("global-ms", 10.0) : 10.0);
+        packBudgetNanos = millisToNanos(config != null ? config.getDouble("per-pack-ms", 5.0) : 5.0);
+
+        packBudgetOverrides.clear();
+        ConfigurationSection overrides = config != null ? config.getConfigurationSection("packs") : null;
+        if (overrides != null) {
+            for (String namespace : overrides.getKeys(false)) {
+                packBudgetOverrides.put(namespace, millisToNanos(overrides.getDouble(namespace)));
+            }
+        }
+    }
+
+    /**
+     * 新 tick 开始
+     * 重置本 tick 的计时，并执行上一 tick 延迟下来的任务
+     */
+    public void beginTick() {
+        synchronized (this) {
+            globalSpentNanos = 0;
+            for (PackBudget budget : packs.values()) {
+                budget.spentNanos = 0;
+                budget.overrunThisTick = false;
+            }
+        }
+
+        // 预算用尽的脚本包的任务跳过并留在队列中，不阻塞后面其他脚本包的任务；
+        // 每个任务本 tick 最多检查一次，全局预算用尽时停止
+        ArrayDeque<DeferredTask> skipped = new ArrayDeque<>();
+        try {
+            int remaining;
+            synchronized (this) {
+                remaining = deferredQueue.size();
+            }
+            boolean first = true;
+            for (; remaining > 0; remaining--) {
+                DeferredTask task;
+                synchronized (this) {
+                    task = deferredQueue.poll();
+                    if (task == null) {
+                        return;
+                    }
+                    if (!first && !hasBudget(task.pack)) {
+                        if (globalSpentNanos >= globalBudgetNanos) {
+                            deferredQueue.addFirst(task);
+                            return;
+                        }
+                        skipped.add(task);
+                        continue;
+                    }
+                    deferredKeys.remove(task.key);
+                }
+                run(task.pack, task.task);
+                first = false;
+            }
+        } finally {
+            // 跳过的任务放回队首，保持原来的顺序
+            synchronized (this) {
+                while (!skipped.isEmpty()) {
+                    deferredQueue.addFirst(skipped.pollLast());
+                }
+            }
+        }
+    }
+
+    /**
+     * 提交可延迟的任务
+     *
+     * @param pack 任务所属脚本包命名空间，可以为 null
+     * @param key 去重键，同一个键在延迟队列中最多存在一次（例如每 tick 触发的同一个回调）
+     * @param task 任务
+     */
+    public void submit(String pack, Object key, Runnable task) {
+        String namespace = pack != null ? pack : UNKNOWN_PACK;
+        synchronized (this) {
+            if (enabled && !hasBudget(namespace)) {
+                getPackBudget(namespace).deferred++;
+                if (deferredKeys.add(key)) {
+                    deferredQueue.add(new DeferredTask(namespace, key, task));
+                }
+                return;
+            }
+        }
+        run(namespace, task);
+    }
+
+    private void run(String pack, Runnable task) {
+        long start = System.nanoTime();
+        try {
+            task.run();
+        } finally {
+            record(pack, System.nanoTime() - start);
+        }
+    }
+
+    private synchronized void record(String pack, long elapsedNanos) {
+        globalSpentNanos += elapsedNanos;
+        PackBudget budget = getPackBudget(pack);
+        budget.spentNanos += elapsedNanos;
+        budget.totalNanos += elapsedNanos;
+
+        if (enabled && !budget.overrunThisTick && budget.spentNanos > budgetFor(pack)) {
+            budget.overrunThisTick = true;
+            budget.overruns++;
+            if (budget.overruns == 1 || budget.overruns % 100 == 0) {
+                logger.warning(String.format("Script pack [%s] exceeded its tick budget (%.2fms > %.2fms), overruns: %d",
+                        pack, budget.spentNanos / 1_000_000.0, budgetFor(pack) / 1_000_000.0, budget.overruns));
+            }
+        }
+    }
+
+    private boolean hasBudget(String pack) {
+        if (!enabled) {
+            return true;
+        }
+        PackBudget budget = packs.get(pack);
+        long spent = budget != null ? budget.spentNanos : 0;
+        return globalSpentNanos < globalBudgetNanos && spent < budgetFor(pack);
+    }
+
+    private long budgetFor(String pack) {
+        return packBudgetOverrides.getOrDefault(pack, packBudgetNanos);
+    }
+
+    private PackBudget getPackBudget(String pack) {
+        return packs.computeIfAbsent(pack, k -> new PackBudget());
+    }
+
+    private static long millisToNanos(double millis) {
+        return (long) (millis * 1_000_000L);
+    }
+
+    /**
+     * 获取各脚本包的预算统计（按命名空间排序）
+     */
+    public synchronized Map<String, PackStats> getPackStats() {
+        Map<String, PackStats> stats = new TreeMap<>();
+        for (Map.Entry<String, PackBudget> entry : packs.entrySet()) {
+            PackBudget budget = entry.getValue();
+            stats.put(entry.getKey(), new PackStats(
+                    budgetFor(entry.getKey()), budget.totalNanos, budget.overruns, budget.deferred));
+        }
+        return Collections.unmodifiableMap(stats);
+    }
+
+    public synchronized int getDeferredCount() {
+        return deferredQueue.size();
+    }
+
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized long getGlobalBudgetNanos() {
+        return globalBudgetNanos;
+    }
+
+    /**
+     * 脚本包预算计数
+     */
+    private static class PackBudget {
+        long spentNanos;
+        long totalNanos;
+        long overruns;
+        long deferred;
+        boolean overrunThisTick;
+    }
+
+    /**
+     * 延迟任务
+     */
+    private record DeferredTask(String pack, Object key, Runnable task) {
+    }
+
+    /**
+     * 脚本包预算统计
+     */
+    public static class PackStats {
+        public final long budgetNanos;
+        public final long totalNanos;
+        public final long overruns;
+        public final long deferred;
+
+        public PackStats(long budgetNanos, long totalNanos, long overruns, long deferred) {
+            this.budgetNanos = budgetNanos;
+            this.totalNanos = totalNanos;
+            this.overruns = overruns;
+            this.deferred = deferred;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package org.virgil.nekokjs.event;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 分层时间轮
+ * 为脚本定时任务提供每 tick O(1) 的调度开销，替代 tickCount % interval 的全局轮询
+ *
+ * 结构：4 层，每层 64 个槽
+ * - 第 0 层每槽 1 tick，覆盖 64 tick
+ * - 第 1 层每槽 64 tick，覆盖 4096 tick
+ * - 第 2、3 层依此类推，共覆盖 2^24 tick；更远的任务放在最高层，到期前重新分配
+ *
+ * 每 tick 只处理第 0 层的一个槽，低位归零时把上一层对应槽的任务降级到下层。
+ * 任何线程都可以调度任务（先进入并发队列，下一 tick 由时间轮线程插入），
+ * 取消只设置标记，任务在所在槽被处理时丢弃。
+ * 任务可以记录所有者（脚本包），cancelOwner 一次取消某个所有者的全部任务。
+ *
+ * 由 EventManager.onServerTick（MinecraftServerMixin 注入）推进
+ */
+public class TimingWheel {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final Logger logger;
+    private final Task[][] wheels = new Task[LEVELS][SLOTS];
+    private final Queue<Task> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicInteger spreadCounter = new AtomicInteger();
+    private final Map<Object, Set<Task>> ownedTasks = new ConcurrentHashMap<>();
+
+    private volatile int generation;
+    private long currentTick;
+
+    public TimingWheel(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * 调度一次性任务
+     *
+     * @param delay 延迟（tick），小于 1 时在下一 tick 执行
+     */
+    public Task schedule(Runnable action, long delay) {
+        return schedule(action, delay, 0, 0);
+    }
+
+    /**
+     * 调度任务
+     *
+     * @param delay 首次执行前的延迟（tick）
+     * @param period 重复间隔（tick），0 表示只执行一次
+     * @param jitter 首次执行的随机抖动上限（tick），用于把同类任务打散到不同 tick
+     */
+    public Task schedule(Runnable action, long delay, long period, long jitter) {
+        return schedule(null, action, delay, period, jitter);
+    }
+
+    /**
+     * 调度属于某个所有者的任务
+     *
+     * @param owner 任务所有者（通常是脚本包），可以为 null
+     */
+    public Task schedule(Object owner, Runnable action, long delay, long period, long jitter) {
+        long offset = jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0;
+        Task task = new Task(owner, action, Math.max(1, delay) + offset, Math.max(0, period), generation);
+        activeCount.incrementAndGet();
+        if (owner != null) {
+            ownedTasks.computeIfAbsent(owner, k -> ConcurrentHashMap.newKeySet()).add(task);
+        }
+        pending.add(task);
+        return task;
+    }
+
+    /**
+     * 调度重复任务，首次执行错开到 [1, period] 中的某个 tick
+     * 同一间隔的大量任务会均匀分布在各个 tick 上，而不是在同一 tick 集中触发
+     */
+    public Task scheduleSpread(Object owner, Runnable action, long period) {
+        long interval = Math.max(1, period);
+        long delay = 1 + Math.floorMod(spreadCounter.getAndIncrement(), interval);
+        return schedule(owner, action, delay, interval, 0);
+    }
+
+    /**
+     * 推进一个 tick，执行所有到期任务
+     * 只能由单个线程调用
+     */
+    public void advance() {
+        // 把新调度的任务插入时间轮，延迟相对于上一 tick 计算
+        Task task;
+        while ((task = pending.poll()) != null) {
+            if (isDead(task)) {
+                retire(task);
+                continue;
+            }
+            task.deadline = currentTick + task.deadline;
+            insert(task);
+        }
+
+        currentTick++;
+
+        // 低位归零时逐层降级
+        for (int level = 1; level < LEVELS; level++) {
+            long lowerBits = currentTick & ((1L << (SLOT_BITS * level)) - 1);
+            if (lowerBits != 0) {
+                break;
+            }
+            int slot = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+            Task head = wheels[level][slot];
+            wheels[level][slot] = null;
+            while (head != null) {
+                Task next = head.next;
+                head.next = null;
+                if (isDead(head)) {
+                    retire(head);
+                } else {
+                    insert(head);
+                }
+                head = next;
+            }
+        }
+
+        int slot = (int) (currentTick & SLOT_MASK);
+        Task head = wheels[0][slot];
+        wheels[0][slot] = null;
+        while (head != null) {
+            Task next = head.next;
+            head.next = null;
+            run(head);
+            head = next;
+        }
+    }
+
+    private void run(Task task) {
+        if (isDead(task)) {
+            retire(task);
+            return;
+        }
+        if (task.deadline > currentTick) {
+            insert(task);
+            return;
+        }
+
+        try {
+            task.action.run();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Scheduled script task failed: " + e.getMessage(), e);
+        }
+
+        if (task.period > 0 && !isDead(task)) {
+            task.deadline = currentTick + task.period;
+            insert(task);
+        } else {
+            task.cancelled = true;
+            retire(task);
+        }
+    }
+
+    /**
+     * 任务结束或被丢弃时更新计数和所有者记录
+     */
+    private void retire(Task task) {
+        activeCount.decrementAndGet();
+        if (task.owner != null) {
+            Set<Task> tasks = ownedTasks.get(task.owner);
+            if (tasks != null) {
+                tasks.remove(task);
+                if (tasks.isEmpty()) {
+                    ownedTasks.remove(task.owner, tasks);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按到期 tick 选择层和槽
+     * 选择到期 tick 与当前 tick 高位相同的最低一层，保证该槽在到期前被处理
+     */
+    private void insert(Task task) {
+        long deadline = task.deadline;
+        if (deadline < currentTick) {
+            deadline = currentTick;
+            task.deadline = deadline;
+        }
+
+        long diff = deadline ^ currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && (diff >>> (SLOT_BITS * (level + 1))) != 0) {
+            level++;
+        }
+        int slot = (int) ((deadline >>> (SLOT_BITS * level)) & SLOT_MASK);
+        task.next = wheels[level][slot];
+        wheels[level][slot] = task;
+    }
+
+    private boolean isDead(Task task) {
+        return task.cancelled || task.generation != generation;
+    }
+
+    /**
+     * 取消所有任务（脚本重载时调用）
+     * 可以在任意线程调用：只切换代数，旧任务（包括尚未插入的）在下一次被处理时丢弃并扣减计数
+     */
+    public void clear() {
+        generation++;
+        ownedTasks.clear();
+    }
+
+    /**
+     * 取消某个所有者的全部任务（卸载或重载脚本包时调用）
+     *
+     * @return 取消的任务数量
+     */
+    public int cancelOwner(Object owner) {
+        Set<Task> tasks = ownedTasks.get(owner);
+        if (tasks == null) {
+            return 0;
+        }
+        int count = 0;
+        for (Task task : tasks) {
+            if (!task.cancelled) {
+                task.cancel();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 获取未完成的任务数量（包含尚未被清理的已取消任务）
+     */
+    public int getTaskCount() {
+        return activeCount.get();
+    }
+
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * 定时任务句柄
+     * 脚本可以通过 cancel() 取消任务
+     */
+    public static class Task {
+        private final Object owner;
+        private final Runnable action;
+        private final long period;
+        private final int generation;
+        private volatile boolean cancelled;
+        private long deadline;
+        private Task next;
+
+        private Task(Object owner, Runnable action, long delay, long period, int generation) {
+            this.owner = owner;
+            this.action = action;
+            this.deadline = delay;
+            this.period = period;
+            this.generation = generation;
+        }
+
+        /**
+         * 取消任务
+         * 用法: const task = Server.runTaskTimer(() => { ... }, 20, 20); task.cancel()
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public boolean isRepeating() {
+            return period > 0;
+        }
+
+        public long getPeriod() {
+            return period;
+        }
+    }
+}
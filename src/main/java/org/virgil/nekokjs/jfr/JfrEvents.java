@@ -0,0 +1,165 @@
+package org.virgil.nekokjs.jfr;
+
+import dev.latvian.mods.rhino.BaseFunction;
+import dev.latvian.mods.rhino.Function;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import org.bukkit.configuration.ConfigurationSection;
+
+import javax.annotation.Nullable;
+
+/**
+ * Java Flight Recorder 事件
+ * 脚本回调、世界生成钩子、模块加载和脚本包加载分别对应一种事件，
+ * 在 JMC 中按脚本包、事件名和区块位置查看是哪个脚本包拖慢了哪一个 tick
+ *
+ * 只有 JFR 正在录制对应事件时才创建事件对象；
+ * 耗时低于 config.yml 中 jfr.thresholds 的调用不提交，避免每方块的钩子淹没录制
+ */
+public final class JfrEvents {
+    private static final EventType CALLBACK = EventType.getEventType(ScriptCallbackEvent.class);
+    private static final EventType WORLDGEN = EventType.getEventType(WorldgenHookEvent.class);
+    private static final EventType MODULE = EventType.getEventType(ModuleLoadEvent.class);
+    private static final EventType PACK = EventType.getEventType(PackLoadEvent.class);
+
+    private static volatile boolean enabled = true;
+    private static volatile long callbackThresholdNanos = 1_000_000;
+    private static volatile long worldgenThresholdNanos = 1_000_000;
+    private static volatile long moduleThresholdNanos = 0;
+    private static volatile long packThresholdNanos = 0;
+
+    private JfrEvents() {
+    }
+
+    /**
+     * 读取 jfr 配置节
+     */
+    public static void configure(@Nullable ConfigurationSection config) {
+        enabled = config == null || config.getBoolean("enabled", true);
+        callbackThresholdNanos = thresholdNanos(config, "callback-ms", 1.0);
+        worldgenThresholdNanos = thresholdNanos(config, "worldgen-ms", 1.0);
+        moduleThresholdNanos = thresholdNanos(config, "module-load-ms", 0);
+        packThresholdNanos = thresholdNanos(config, "pack-load-ms", 0);
+    }
+
+    private static long thresholdNanos(@Nullable ConfigurationSection config, String key, double defaultMs) {
+        double ms = config != null ? config.getDouble("thresholds." + key, defaultMs) : defaultMs;
+        return (long) (Math.max(0, ms) * 1_000_000);
+    }
+
+    /**
+     * 开始一次脚本回调事件
+     *
+     * @param worldgen 是否为世界生成钩子
+     * @return 已开始的事件，JFR 未录制该事件时返回 null
+     */
+    @Nullable
+    public static Event beginCallback(boolean worldgen) {
+        if (!enabled) {
+            return null;
+        }
+        Event event;
+        if (worldgen) {
+            if (!WORLDGEN.isEnabled()) {
+                return null;
+            }
+            event = new WorldgenHookEvent();
+        } else {
+            if (!CALLBACK.isEnabled()) {
+                return null;
+            }
+            event = new ScriptCallbackEvent();
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * 提交脚本回调事件
+     *
+     * @param elapsedNanos 调用耗时，低于阈值时丢弃
+     */
+    public static void commitCallback(Event event, @Nullable String pack, @Nullable String label,
+                                      @Nullable Function function, int chunkX, int chunkZ, long elapsedNanos) {
+        if (event instanceof WorldgenHookEvent worldgen) {
+            if (elapsedNanos < worldgenThresholdNanos) {
+                return;
+            }
+            worldgen.end();
+            worldgen.pack = pack;
+            worldgen.hook = label;
+            worldgen.function = getFunctionName(function);
+            worldgen.chunkX = chunkX;
+            worldgen.chunkZ = chunkZ;
+            worldgen.commit();
+        } else if (event instanceof ScriptCallbackEvent callback) {
+            if (elapsedNanos < callbackThresholdNanos) {
+                return;
+            }
+            callback.end();
+            callback.pack = pack;
+            callback.eventName = label;
+            callback.function = getFunctionName(function);
+            callback.commit();
+        }
+    }
+
+    /**
+     * 开始一次模块加载事件
+     */
+    @Nullable
+    public static ModuleLoadEvent beginModuleLoad() {
+        if (!enabled || !MODULE.isEnabled()) {
+            return null;
+        }
+        ModuleLoadEvent event = new ModuleLoadEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void commitModuleLoad(@Nullable ModuleLoadEvent event, @Nullable String pack, String module,
+                                        boolean success, long elapsedNanos) {
+        if (event == null || elapsedNanos < moduleThresholdNanos) {
+            return;
+        }
+        event.end();
+        event.pack = pack;
+        event.module = module;
+        event.success = success;
+        event.commit();
+    }
+
+    /**
+     * 开始一次脚本包加载事件
+     */
+    @Nullable
+    public static PackLoadEvent beginPackLoad() {
+        if (!enabled || !PACK.isEnabled()) {
+            return null;
+        }
+        PackLoadEvent event = new PackLoadEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void commitPackLoad(@Nullable PackLoadEvent event, String pack, String entry,
+                                      boolean success, long elapsedNanos) {
+        if (event == null || elapsedNanos < packThresholdNanos) {
+            return;
+        }
+        event.end();
+        event.pack = pack;
+        event.entry = entry;
+        event.success = success;
+        event.commit();
+    }
+
+    @Nullable
+    private static String getFunctionName(@Nullable Function function) {
+        if (function instanceof BaseFunction baseFunction) {
+            String name = baseFunction.getFunctionName();
+            return name != null && !name.isEmpty() ? name : "(anonymous)";
+        }
+        return null;
+    }
+}
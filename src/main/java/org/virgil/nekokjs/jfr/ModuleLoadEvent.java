@@ -0,0 +1,26 @@
+package org.virgil.nekokjs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 一次 require() 模块加载
+ */
+@Name("org.virgil.nekokjs.ModuleLoad")
+@Label("Script Module Load")
+@Category({"NekoKJS", "Scripts"})
+@Description("A script module loaded through require()")
+@StackTrace(false)
+public class ModuleLoadEvent extends jdk.jfr.Event {
+    @Label("Pack")
+    public String pack;
+
+    @Label("Module")
+    public String module;
+
+    @Label("Success")
+    public boolean success;
+}
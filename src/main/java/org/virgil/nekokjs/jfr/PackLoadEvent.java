@@ -0,0 +1,26 @@
+package org.virgil.nekokjs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 一次脚本包加载（启动、重载或 /nekokjs load）
+ */
+@Name("org.virgil.nekokjs.PackLoad")
+@Label("Script Pack Load")
+@Category({"NekoKJS", "Scripts"})
+@Description("A script pack entry point evaluated at startup or reload")
+@StackTrace(false)
+public class PackLoadEvent extends jdk.jfr.Event {
+    @Label("Pack")
+    public String pack;
+
+    @Label("Entry")
+    public String entry;
+
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,26 @@
+package org.virgil.nekokjs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 一次脚本回调（Bukkit 事件、脚本自定义事件、server.tick、Server 定时任务）
+ */
+@Name("org.virgil.nekokjs.ScriptCallback")
+@Label("Script Callback")
+@Category({"NekoKJS", "Scripts"})
+@Description("A script callback invoked for an event, server tick or scheduled task")
+@StackTrace(false)
+public class ScriptCallbackEvent extends jdk.jfr.Event {
+    @Label("Pack")
+    public String pack;
+
+    @Label("Event")
+    public String eventName;
+
+    @Label("Function")
+    public String function;
+}
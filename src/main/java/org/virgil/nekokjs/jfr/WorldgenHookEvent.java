@@ -0,0 +1,32 @@
+package org.virgil.nekokjs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 一次世界生成钩子中的脚本回调
+ */
+@Name("org.virgil.nekokjs.WorldgenHook")
+@Label("Worldgen Hook")
+@Category({"NekoKJS", "World Generation"})
+@Description("A script callback invoked from a world generation hook")
+@StackTrace(false)
+public class WorldgenHookEvent extends jdk.jfr.Event {
+    @Label("Pack")
+    public String pack;
+
+    @Label("Hook")
+    public String hook;
+
+    @Label("Function")
+    public String function;
+
+    @Label("Chunk X")
+    public int chunkX;
+
+    @Label("Chunk Z")
+    public int chunkZ;
+}
@@ -119,6 +119,10 @@ public class LanguageManager {
         return getMessage("script.execute-failed", "name", name, "error", error);
     }
     
+    public String scriptTimeout(String detail) {
+        return getMessage("script.timeout", "detail", detail);
+    }
+    
     public String scriptReadFailed(String name, String error) {
         return getMessage("script.read-failed", "name", name, "error", error);
     }
@@ -221,6 +225,22 @@ public class LanguageManager {
         return getMessage("event.callbacks-failed", "event", event, "error", error);
     }
     
+    public String eventFilterUnknownMaterial(String name) {
+        return getMessage("event.filter-unknown-material", "name", name);
+    }
+    
+    public String eventFilterUnknownBlockTag(String name) {
+        return getMessage("event.filter-unknown-block-tag", "name", name);
+    }
+    
+    public String eventFilterUnknownEntityType(String name) {
+        return getMessage("event.filter-unknown-entity-type", "name", name);
+    }
+    
+    public String eventFilterMatchesNothing(String option) {
+        return getMessage("event.filter-matches-nothing", "option", option);
+    }
+    
     public String eventListenersCleaned() {
         return getMessage("event.listeners-cleaned");
     }
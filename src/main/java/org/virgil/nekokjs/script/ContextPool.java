@@ -0,0 +1,180 @@
+package org.virgil.nekokjs.script;
+
+import dev.latvian.mods.rhino.Context;
+import dev.latvian.mods.rhino.ContextFactory;
+import dev.latvian.mods.rhino.Scriptable;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Rhino Context 池
+ * 主线程、Folia 区域线程和世界生成工作线程都会执行脚本回调，每个线程在执行期间独占一个 Context
+ *
+ * - acquire() 与 Lease.close() 成对使用，同一线程内可以嵌套，嵌套调用复用外层的 Context
+ * - 最外层的 Lease 关闭后 Context 归还到池中，供其他线程复用；
+ *   世界生成等短生命周期的线程不会在 ThreadLocal 中遗留 Context
+ * - 每个 Context 附带一个临时作用域，用于包装事件对象和创建临时 JS 对象，同样只被当前线程使用，
+ *   第一次使用时才创建
+ * - 所有 Context 都通过池借出，不在池外调用 ContextFactory.enter()
+ *
+ * 借出和归还只涉及当前线程的 ThreadLocal 和一个无锁队列，脚本回调可以在多个线程上并行执行
+ */
+public class ContextPool {
+    private final ContextFactory contextFactory;
+    private final Consumer<Context> initializer;
+    private final Function<Context, Scriptable> scratchScopeFactory;
+    private final int maxIdle;
+    private final Queue<Lease> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final ThreadLocal<Lease> current = new ThreadLocal<>();
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * @param initializer 配置新创建的 Context
+     * @param scratchScopeFactory 为 Context 创建临时作用域
+     * @param maxIdle 池中最多保留的空闲 Context 数量，超出的 Context 直接丢弃
+     */
+    public ContextPool(ContextFactory contextFactory, Consumer<Context> initializer,
+                       Function<Context, Scriptable> scratchScopeFactory, int maxIdle) {
+        this.contextFactory = contextFactory;
+        this.initializer = initializer;
+        this.scratchScopeFactory = scratchScopeFactory;
+        this.maxIdle = Math.max(1, maxIdle);
+    }
+
+    /**
+     * 为当前线程借出 Context
+     * 当前线程已持有 Context 时返回同一个 Lease（嵌套计数加一）
+     * 用法: try (ContextPool.Lease lease = pool.acquire()) { Context cx = lease.context(); ... }
+     */
+    public Lease acquire() {
+        Lease lease = current.get();
+        if (lease != null) {
+            lease.depth++;
+            return lease;
+        }
+
+        lease = idle.poll();
+        if (lease != null) {
+            idleCount.decrementAndGet();
+        } else {
+            Context cx = contextFactory.enter();
+            initializer.accept(cx);
+            lease = new Lease(this, cx);
+            created.incrementAndGet();
+        }
+        lease.owner = Thread.currentThread();
+        lease.depth = 1;
+        current.set(lease);
+        acquired.incrementAndGet();
+        active.incrementAndGet();
+        return lease;
+    }
+
+    /**
+     * 当前线程是否持有 Context
+     */
+    public boolean isHeld() {
+        return current.get() != null;
+    }
+
+    /**
+     * 获取当前线程持有的 Lease
+     *
+     * @throws IllegalStateException 当前线程没有借出 Context
+     */
+    public Lease currentLease() {
+        Lease lease = current.get();
+        if (lease == null) {
+            throw new IllegalStateException("No script context is held by " + Thread.currentThread().getName());
+        }
+        return lease;
+    }
+
+    private void release(Lease lease) {
+        if (lease.owner != Thread.currentThread()) {
+            throw new IllegalStateException("Script context released by a thread that does not own it");
+        }
+        if (--lease.depth > 0) {
+            return;
+        }
+
+        lease.owner = null;
+        current.remove();
+        active.decrementAndGet();
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idle.offer(lease);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * 累计创建的 Context 数量
+     */
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    /**
+     * 累计借出次数（不含嵌套）
+     */
+    public long getAcquiredCount() {
+        return acquired.get();
+    }
+
+    /**
+     * 当前被线程持有的 Context 数量
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    /**
+     * 线程借出的 Context
+     * 只能在借出它的线程上使用和关闭
+     */
+    public static final class Lease implements AutoCloseable {
+        private final ContextPool pool;
+        private final Context context;
+        private Scriptable scratchScope;
+        private Thread owner;
+        private int depth;
+
+        private Lease(ContextPool pool, Context context) {
+            this.pool = pool;
+            this.context = context;
+        }
+
+        public Context context() {
+            return context;
+        }
+
+        /**
+         * 当前线程的临时作用域，以共享标准对象作用域为原型
+         */
+        public Scriptable scratchScope() {
+            if (scratchScope == null) {
+                scratchScope = pool.scratchScopeFactory.apply(context);
+            }
+            return scratchScope;
+        }
+
+        @Override
+        public void close() {
+            pool.release(this);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.virgil.nekokjs.script;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * 脚本包并行加载器
+ * 根据 pack.yml 中的 pack.dependencies 构建依赖图（DAG），
+ * 在有界线程池上并行执行互不依赖的脚本包
+ *
+ * - 脚本包在所有依赖加载成功后立即开始，启动耗时取决于依赖图的关键路径
+ * - 依赖不存在、已禁用、加载失败或形成环时，跳过该脚本包及其下游
+ * - 同时就绪的脚本包按优先级提交
+ */
+public class PackLoader {
+    private final Logger logger;
+    private final int threads;
+
+    public PackLoader(Logger logger, int threads) {
+        this.logger = logger;
+        this.threads = threads > 0 ? threads : Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * 加载脚本包，阻塞直到全部完成
+     *
+     * @param packs 已按优先级排序的启用脚本包
+     * @param loader 加载单个脚本包，返回是否成功
+     * @return 成功加载的脚本包数量
+     */
+    public int loadAll(List<ScriptPack> packs, Predicate<ScriptPack> loader) {
+        Map<String, ScriptPack> byNamespace = new LinkedHashMap<>();
+        for (ScriptPack pack : packs) {
+            byNamespace.put(key(pack.getNamespace()), pack);
+        }
+
+        List<ScriptPack> ordered = sortTopologically(byNamespace);
+        if (ordered.isEmpty()) {
+            return 0;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, ordered.size()), new LoaderThreadFactory());
+        AtomicInteger loaded = new AtomicInteger();
+        try {
+            Map<String, CompletableFuture<Boolean>> futures = new HashMap<>();
+            // 按拓扑顺序创建，依赖的 future 一定已经存在
+            for (ScriptPack pack : ordered) {
+                Map<String, CompletableFuture<Boolean>> dependencies = new LinkedHashMap<>();
+                for (String dependency : getDependencyKeys(pack)) {
+                    dependencies.put(dependency, futures.get(dependency));
+                }
+
+                CompletableFuture<?>[] dependencyFutures = dependencies.values().toArray(CompletableFuture[]::new);
+                CompletableFuture<Boolean> future = CompletableFuture.allOf(dependencyFutures).thenApplyAsync(ignored -> {
+                    for (Map.Entry<String, CompletableFuture<Boolean>> dependency : dependencies.entrySet()) {
+                        if (!dependency.getValue().join()) {
+                            logger.warning("跳过脚本包 [" + pack.getNamespace() + "]: 依赖 [" + dependency.getKey() + "] 加载失败");
+                            return false;
+                        }
+                    }
+                    try {
+                        boolean success = loader.test(pack);
+                        if (success) {
+                            loaded.incrementAndGet();
+                        }
+                        return success;
+                    } catch (RuntimeException e) {
+                        logger.severe("加载脚本包失败 [" + pack.getNamespace() + "]: " + e.getMessage());
+                        e.printStackTrace();
+                        return false;
+                    }
+                }, executor);
+                futures.put(key(pack.getNamespace()), future);
+            }
+
+            CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executor.shutdown();
+        }
+        return loaded.get();
+    }
+
+    /**
+     * Kahn 拓扑排序
+     * 同一层中保持传入的优先级顺序；缺失依赖和环上的脚本包会被剔除并输出警告
+     */
+    private List<ScriptPack> sortTopologically(Map<String, ScriptPack> byNamespace) {
+        Map<String, Integer> inDegree = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+
+        for (Map.Entry<String, ScriptPack> entry : byNamespace.entrySet()) {
+            String namespace = entry.getKey();
+            inDegree.putIfAbsent(namespace, 0);
+            for (String dependency : getDependencyKeys(entry.getValue())) {
+                if (!byNamespace.containsKey(dependency)) {
+                    logger.warning("跳过脚本包 [" + entry.getValue().getNamespace() + "]: 依赖 [" + dependency + "] 不存在或未启用");
+                    missing.add(namespace);
+                    continue;
+                }
+                inDegree.merge(namespace, 1, Integer::sum);
+                dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(namespace);
+            }
+        }
+
+        // 缺失依赖的脚本包及其下游都不加载
+        ArrayDeque<String> removed = new ArrayDeque<>(missing);
+        while (!removed.isEmpty()) {
+            String namespace = removed.poll();
+            if (inDegree.remove(namespace) == null) {
+                continue;
+            }
+            for (String dependent : dependents.getOrDefault(namespace, List.of())) {
+                if (inDegree.containsKey(dependent)) {
+                    logger.warning("跳过脚本包 [" + byNamespace.get(dependent).getNamespace() + "]: 依赖 [" + namespace + "] 无法加载");
+                    removed.add(dependent);
+                }
+            }
+        }
+
+        List<ScriptPack> ordered = new ArrayList<>();
+        ArrayDeque<String> ready = new ArrayDeque<>();
+        for (String namespace : byNamespace.keySet()) {
+            if (Integer.valueOf(0).equals(inDegree.get(namespace))) {
+                ready.add(namespace);
+            }
+        }
+        while (!ready.isEmpty()) {
+            String namespace = ready.poll();
+            ordered.add(byNamespace.get(namespace));
+            for (String dependent : dependents.getOrDefault(namespace, List.of())) {
+                Integer degree = inDegree.computeIfPresent(dependent, (k, v) -> v - 1);
+                if (degree != null && degree == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+
+        if (ordered.size() < inDegree.size()) {
+            List<String> cycle = new ArrayList<>();
+            for (String namespace : byNamespace.keySet()) {
+                Integer degree = inDegree.get(namespace);
+                if (degree != null && degree > 0) {
+                    cycle.add(byNamespace.get(namespace).getNamespace());
+                }
+            }
+            logger.warning("检测到脚本包循环依赖，以下脚本包不会加载: " + String.join(", ", cycle));
+        }
+        return ordered;
+    }
+
+    private static List<String> getDependencyKeys(ScriptPack pack) {
+        List<String> keys = new ArrayList<>();
+        for (String dependency : pack.getDependencies()) {
+            String key = key(dependency);
+            if (!key.isEmpty() && !keys.contains(key)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private static String key(String namespace) {
+        return namespace.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 加载线程工厂
+     */
+    private static class LoaderThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "NekoKJS-PackLoader-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.virgil.nekokjs.script;
+
+import javax.annotation.Nullable;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 脚本包资源归属
+ * 记录脚本包在加载期间向全局注册表（Noise、Feature、Biome 等）注册的条目，
+ * 卸载或重载脚本包时只移除该脚本包注册的条目
+ *
+ * 移除时只删除仍然指向原对象的条目：热重载时新版本先覆盖同名条目，
+ * 随后释放旧版本不会误删新版本注册的内容。
+ * 新版本加载失败时用 rollback() 撤销它的注册，被覆盖的条目恢复为覆盖前的对象
+ */
+public final class PackResources {
+    private static final Map<ScriptPack, Queue<Runnable>> releasers = new ConcurrentHashMap<>();
+    // 覆盖已有条目时记录的恢复动作，脚本包加载成功后由 commit() 丢弃
+    private static final Map<ScriptPack, Deque<Runnable>> restorers = new ConcurrentHashMap<>();
+
+    private PackResources() {
+    }
+
+    /**
+     * 向注册表添加条目，并记录到当前正在执行的脚本包
+     */
+    public static <K, V> void put(Map<K, V> registry, K key, V value) {
+        put(registry, key, value, null);
+    }
+
+    /**
+     * 向注册表添加条目，并记录到当前正在执行的脚本包
+     *
+     * @param onChange 条目随脚本包释放被移除或被恢复为覆盖前的对象时调用，用于丢弃相关缓存
+     */
+    public static <K, V> void put(Map<K, V> registry, K key, V value, @Nullable Runnable onChange) {
+        V previous = registry.put(key, value);
+        ScriptPack pack = ScriptEngine.getCurrentPack();
+        if (pack == null) {
+            return;
+        }
+        releasers.computeIfAbsent(pack, k -> new ConcurrentLinkedQueue<>()).add(() -> {
+            if (registry.remove(key, value) && onChange != null) {
+                onChange.run();
+            }
+        });
+        if (previous != null) {
+            restorers.computeIfAbsent(pack, k -> new ConcurrentLinkedDeque<>()).push(() -> {
+                if (registry.replace(key, value, previous) && onChange != null) {
+                    onChange.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * 记录当前脚本包卸载时需要执行的清理动作
+     * 不在脚本包加载期间调用时（例如全局脚本）不记录
+     */
+    public static void track(Runnable release) {
+        ScriptPack pack = ScriptEngine.getCurrentPack();
+        if (pack != null) {
+            releasers.computeIfAbsent(pack, k -> new ConcurrentLinkedQueue<>()).add(release);
+        }
+    }
+
+    /**
+     * 释放脚本包注册的全部资源
+     *
+     * @return 执行的清理动作数量
+     */
+    public static int release(ScriptPack pack) {
+        restorers.remove(pack);
+        Queue<Runnable> queue = releasers.remove(pack);
+        if (queue == null) {
+            return 0;
+        }
+        int count = 0;
+        Runnable release;
+        while ((release = queue.poll()) != null) {
+            release.run();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 撤销加载失败的脚本包的全部注册
+     * 先按覆盖的逆序把被覆盖的条目恢复为覆盖前的对象，再释放其余资源
+     *
+     * @return 执行的恢复和清理动作数量
+     */
+    public static int rollback(ScriptPack pack) {
+        Deque<Runnable> deque = restorers.remove(pack);
+        int count = 0;
+        if (deque != null) {
+            Runnable restore;
+            while ((restore = deque.poll()) != null) {
+                restore.run();
+                count++;
+            }
+        }
+        return count + release(pack);
+    }
+
+    /**
+     * 脚本包加载成功，不再需要恢复被它覆盖的条目
+     */
+    public static void commit(ScriptPack pack) {
+        restorers.remove(pack);
+    }
+
+    /**
+     * 获取脚本包已注册的资源数量
+     */
+    public static int count(@Nullable ScriptPack pack) {
+        Queue<Runnable> queue = pack != null ? releasers.get(pack) : null;
+        return queue != null ? queue.size() : 0;
+    }
+}
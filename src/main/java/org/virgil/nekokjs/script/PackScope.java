@@ -0,0 +1,33 @@
+package org.virgil.nekokjs.script;
+
+import dev.latvian.mods.rhino.NativeObject;
+import org.virgil.nekokjs.api.core.ScriptLoaderAPI;
+
+/**
+ * 脚本包作用域
+ * 每个脚本包拥有独立的顶层作用域，包内的顶层变量和函数只存在于这里
+ * 原型指向注入了全局 API 的脚本上下文作用域
+ */
+public class PackScope extends NativeObject {
+    private final ScriptPack pack;
+    private ScriptLoaderAPI loader;
+
+    public PackScope(ScriptPack pack) {
+        this.pack = pack;
+    }
+
+    public ScriptPack getPack() {
+        return pack;
+    }
+
+    /**
+     * 脚本包的模块加载器，记录了入口脚本 load/require 过的模块
+     */
+    public ScriptLoaderAPI getLoader() {
+        return loader;
+    }
+
+    void setLoader(ScriptLoaderAPI loader) {
+        this.loader = loader;
+    }
+}
@@ -0,0 +1,292 @@
+package org.virgil.nekokjs.script;
+
+import dev.latvian.mods.rhino.Script;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * 编译脚本缓存
+ * 以源码、源文件名、引擎版本和优化级别的 SHA-256 作为键，缓存编译后的 Rhino Script
+ *
+ * - 内存：按访问顺序淘汰的 LRU，容量为 performance.max-cache-size
+ * - 磁盘：plugins/NekoKJS/cache/scripts/<hash>.bin，命中时刷新修改时间，
+ *   总大小超过上限时按修改时间删除最旧的文件
+ *
+ * 源码变化、引擎升级或调整优化级别都会得到新的键，旧条目随 LRU 自然淘汰
+ *
+ * 磁盘条目通过 Java 序列化读写，反序列化只允许 Rhino 和 JDK 基础类型，
+ * 防止数据目录中被篡改的文件反序列化任意类；序列化或反序列化无法工作时关闭磁盘缓存并输出警告，
+ * 关闭原因同时出现在 ScriptCompiler 的加载报告中
+ */
+public class ScriptCache {
+    private static final String FILE_SUFFIX = ".bin";
+    private static final ObjectInputFilter DESERIALIZATION_FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=256;dev.latvian.mods.rhino.**;java.lang.*;java.util.*;java.math.*;!*");
+
+    private final Logger logger;
+    private final File cacheDir;
+    private final boolean enabled;
+    private final int maxMemoryEntries;
+    private final long maxDiskBytes;
+    private final String keyPrefix;
+    private final Map<String, Script> memoryCache;
+    private volatile boolean diskEnabled;
+    @Nullable
+    private volatile String diskDisabledReason;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ScriptCache(Logger logger, File cacheDir, boolean enabled, int maxMemoryEntries, long maxDiskBytes,
+                       String engineVersion, int optimizationLevel) {
+        this.logger = logger;
+        this.cacheDir = cacheDir;
+        this.enabled = enabled;
+        this.maxMemoryEntries = Math.max(0, maxMemoryEntries);
+        this.maxDiskBytes = Math.max(0, maxDiskBytes);
+        this.keyPrefix = engineVersion + '\0' + optimizationLevel + '\0';
+        this.memoryCache = new LinkedHashMap<>(16, 0.75f, true);
+        this.diskEnabled = enabled && this.maxDiskBytes > 0;
+
+        if (diskEnabled && !cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            disableDisk("failed to create directory " + cacheDir.getAbsolutePath());
+        }
+        if (diskEnabled) {
+            evictDisk();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 磁盘缓存是否可用，序列化失败后变为 false
+     */
+    public boolean isDiskEnabled() {
+        return diskEnabled;
+    }
+
+    /**
+     * 磁盘缓存在运行中被关闭的原因，未关闭或按配置关闭时返回 null
+     */
+    @Nullable
+    public String getDiskDisabledReason() {
+        return diskDisabledReason;
+    }
+
+    /**
+     * 计算缓存键
+     */
+    public String key(String source, String sourceName) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(keyPrefix.getBytes(StandardCharsets.UTF_8));
+            digest.update(sourceName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(source.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            // 所有 JVM 都必须支持 SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 获取缓存的编译结果
+     *
+     * @return 编译结果，未命中时返回 null
+     */
+    @Nullable
+    public Script get(String key) {
+        if (!enabled) {
+            return null;
+        }
+
+        synchronized (memoryCache) {
+            Script script = memoryCache.get(key);
+            if (script != null) {
+                memoryHits.incrementAndGet();
+                return script;
+            }
+        }
+
+        Script script = diskEnabled ? readFromDisk(key) : null;
+        if (script == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        diskHits.incrementAndGet();
+        putMemory(key, script);
+        return script;
+    }
+
+    /**
+     * 缓存编译结果
+     */
+    public void put(String key, Script script) {
+        if (!enabled) {
+            return;
+        }
+        putMemory(key, script);
+        if (diskEnabled) {
+            writeToDisk(key, script);
+        }
+    }
+
+    private void putMemory(String key, Script script) {
+        if (maxMemoryEntries == 0) {
+            return;
+        }
+        synchronized (memoryCache) {
+            memoryCache.put(key, script);
+            if (memoryCache.size() > maxMemoryEntries) {
+                var iterator = memoryCache.keySet().iterator();
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    @Nullable
+    private Script readFromDisk(String key) {
+        File file = new File(cacheDir, key + FILE_SUFFIX);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try (InputStream in = Files.newInputStream(file.toPath());
+             ObjectInputStream objectIn = new ObjectInputStream(in)) {
+            objectIn.setObjectInputFilter(DESERIALIZATION_FILTER);
+            Object value = objectIn.readObject();
+            if (value instanceof Script script) {
+                // 刷新修改时间，作为 LRU 的访问时间
+                file.setLastModified(System.currentTimeMillis());
+                return script;
+            }
+            logger.warning("Discarding script cache entry " + file.getName() + ": unexpected content");
+        } catch (InvalidClassException | ClassNotFoundException e) {
+            // 被过滤器拒绝或类结构不兼容，后续条目同样无法读取
+            disableDisk("cached scripts cannot be deserialized: " + e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Discarding unreadable script cache entry " + file.getName() + ": " + e.getMessage());
+        }
+
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+        return null;
+    }
+
+    private void writeToDisk(String key, Script script) {
+        if (!(script instanceof Serializable)) {
+            disableDisk("compiled scripts are not serializable");
+            return;
+        }
+
+        File target = new File(cacheDir, key + FILE_SUFFIX);
+        File temp = new File(cacheDir, key + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp.toPath());
+             ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+            objectOut.writeObject(script);
+        } catch (NotSerializableException e) {
+            temp.delete();
+            disableDisk("compiled script references a non-serializable object: " + e.getMessage());
+            return;
+        } catch (IOException | RuntimeException e) {
+            temp.delete();
+            logger.warning("Failed to write script cache entry: " + e.getMessage());
+            return;
+        }
+
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            temp.delete();
+            logger.warning("Failed to write script cache entry: " + e.getMessage());
+            return;
+        }
+        evictDisk();
+    }
+
+    private void disableDisk(String reason) {
+        if (diskEnabled) {
+            diskEnabled = false;
+            diskDisabledReason = reason;
+            logger.warning("On-disk script cache disabled, " + reason);
+        }
+    }
+
+    /**
+     * 磁盘缓存超过大小上限时，按修改时间删除最旧的条目
+     */
+    private synchronized void evictDisk() {
+        File[] files = cacheDir.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+        if (files == null) {
+            return;
+        }
+
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= maxDiskBytes) {
+            return;
+        }
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (total <= maxDiskBytes) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    /**
+     * 清空内存缓存（磁盘缓存保留，用于下次启动）
+     */
+    public void clearMemory() {
+        synchronized (memoryCache) {
+            memoryCache.clear();
+        }
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
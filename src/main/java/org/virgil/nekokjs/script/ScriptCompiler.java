@@ -0,0 +1,205 @@
+package org.virgil.nekokjs.script;
+
+import dev.latvian.mods.rhino.Context;
+import dev.latvian.mods.rhino.EvaluatorException;
+import dev.latvian.mods.rhino.Script;
+import dev.latvian.mods.rhino.Scriptable;
+
+import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * 脚本编译器
+ * 根据 script-engine.optimization-level 决定脚本的执行方式：
+ * - -1：解释模式，每次直接 evaluateString
+ * - 0 及以上：编译模式，先把模块编译为 Rhino Script，再执行编译结果
+ *
+ * 编译失败（例如函数过大无法编译）时自动回退到解释模式。
+ * 编译模式下的编译结果保存在 ScriptCache 中，源码未变化时跳过解析。
+ * 每个脚本包按当前模式统计耗时，启动完成后输出加载报告
+ */
+public class ScriptCompiler {
+    private static final String NO_PACK = "<global>";
+
+    private final Logger logger;
+    private final int optimizationLevel;
+    private final ScriptCache cache;
+    private final Map<String, LoadStats> packStats = new LinkedHashMap<>();
+    // 当前线程中嵌套模块（load/require）已耗费的时间，避免父模块重复计算
+    private final ThreadLocal<long[]> nestedNanos = ThreadLocal.withInitial(() -> new long[1]);
+
+    public ScriptCompiler(Logger logger, int optimizationLevel, ScriptCache cache) {
+        this.logger = logger;
+        this.optimizationLevel = Math.max(-1, Math.min(9, optimizationLevel));
+        this.cache = cache;
+
+        if (this.optimizationLevel > 0) {
+            // KubeJS Rhino 只保留了解释器，不会生成 JVM 字节码，各个级别都使用预编译的 Script
+            logger.info("Script engine optimization level " + this.optimizationLevel
+                    + ": scripts are precompiled once and executed by the Rhino interpreter");
+        }
+    }
+
+    /**
+     * 是否启用编译模式
+     */
+    public boolean isCompiledMode() {
+        return optimizationLevel >= 0;
+    }
+
+    public int getOptimizationLevel() {
+        return optimizationLevel;
+    }
+
+    public ScriptCache getCache() {
+        return cache;
+    }
+
+    /**
+     * 编译并执行脚本
+     *
+     * @param cx 当前线程的 Context
+     * @param scope 执行作用域
+     * @param source 脚本源码
+     * @param sourceName 源文件名（用于错误信息）
+     * @param pack 脚本所属的脚本包，用于统计耗时，可以为 null
+     * @return 脚本执行结果
+     */
+    public Object evaluate(Context cx, Scriptable scope, String source, String sourceName, @Nullable ScriptPack pack) {
+        String namespace = pack != null ? pack.getNamespace() : NO_PACK;
+
+        if (!isCompiledMode()) {
+            return interpret(cx, scope, source, sourceName, namespace);
+        }
+
+        long[] nested = nestedNanos.get();
+        long nestedBefore = nested[0];
+        long start = System.nanoTime();
+        Script script;
+        boolean cacheHit = false;
+        try {
+            String key = cache.isEnabled() ? cache.key(source, sourceName) : null;
+            script = key != null ? cache.get(key) : null;
+            if (script != null) {
+                cacheHit = true;
+            } else {
+                script = compile(cx, source, sourceName);
+                if (key != null) {
+                    cache.put(key, script);
+                }
+            }
+        } catch (EvaluatorException e) {
+            // 语法错误，回退也无法执行，直接抛出
+            throw e;
+        } catch (RuntimeException | LinkageError e) {
+            logger.warning("Failed to compile " + sourceName + ", falling back to interpreter: " + e.getMessage());
+            synchronized (this) {
+                getStats(namespace).fallbacks++;
+            }
+            return interpret(cx, scope, source, sourceName, namespace);
+        }
+        long compiled = System.nanoTime();
+
+        try {
+            return script.exec(cx, scope, scope);
+        } finally {
+            long end = System.nanoTime();
+            long childNanos = nested[0] - nestedBefore;
+            nested[0] = nestedBefore + (end - start);
+            synchronized (this) {
+                LoadStats stats = getStats(namespace);
+                stats.modules++;
+                if (cacheHit) {
+                    stats.cacheHits++;
+                }
+                stats.compileNanos += compiled - start;
+                stats.executeNanos += end - compiled - childNanos;
+            }
+        }
+    }
+
+    /**
+     * 把源码编译为可重复执行的 Script
+     */
+    public Script compile(Context cx, String source, String sourceName) {
+        return cx.compileString(source, sourceName, 1, null);
+    }
+
+    private Object interpret(Context cx, Scriptable scope, String source, String sourceName, String namespace) {
+        long[] nested = nestedNanos.get();
+        long nestedBefore = nested[0];
+        long start = System.nanoTime();
+        try {
+            return cx.evaluateString(scope, source, sourceName, 1, null);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            long childNanos = nested[0] - nestedBefore;
+            nested[0] = nestedBefore + elapsed;
+            synchronized (this) {
+                LoadStats stats = getStats(namespace);
+                stats.modules++;
+                stats.interpretNanos += elapsed - childNanos;
+            }
+        }
+    }
+
+    private synchronized LoadStats getStats(String namespace) {
+        return packStats.computeIfAbsent(namespace, k -> new LoadStats());
+    }
+
+    /**
+     * 输出各脚本包的加载报告
+     * 只统计当前模式下的耗时（模块有副作用，不能用另一种模式再执行一遍作对比）：
+     * 编译模式下分别列出编译和执行耗时，以及回退到解释模式的耗时，并列出编译缓存的命中情况和磁盘缓存状态；
+     * 解释模式下列出解释执行耗时
+     */
+    public synchronized void logReport() {
+        if (packStats.isEmpty()) {
+            return;
+        }
+
+        logger.info("Script load report (" + (isCompiledMode() ? "compiled, level " + optimizationLevel : "interpreted") + "):");
+        for (Map.Entry<String, LoadStats> entry : packStats.entrySet()) {
+            LoadStats stats = entry.getValue();
+            if (isCompiledMode()) {
+                logger.info(String.format("  [%s] modules: %d, cache hits: %d, compile: %.2fms, execute: %.2fms, fallbacks: %d (%.2fms)",
+                        entry.getKey(), stats.modules, stats.cacheHits,
+                        stats.compileNanos / 1_000_000.0, stats.executeNanos / 1_000_000.0,
+                        stats.fallbacks, stats.interpretNanos / 1_000_000.0));
+            } else {
+                logger.info(String.format("  [%s] modules: %d, interpreted: %.2fms",
+                        entry.getKey(), stats.modules, stats.interpretNanos / 1_000_000.0));
+            }
+        }
+        if (isCompiledMode() && cache.isEnabled()) {
+            String reason = cache.getDiskDisabledReason();
+            logger.info(String.format("  Script cache: memory hits: %d, disk hits: %d, misses: %d, disk tier: %s",
+                    cache.getMemoryHits(), cache.getDiskHits(), cache.getMisses(),
+                    cache.isDiskEnabled() ? "enabled" : reason != null ? "disabled (" + reason + ")" : "off"));
+            if (reason != null) {
+                logger.warning("On-disk script cache is disabled, compiled scripts will be recompiled on every start: " + reason);
+            }
+        }
+    }
+
+    /**
+     * 清空加载统计（重新加载脚本前调用）
+     */
+    public synchronized void resetStats() {
+        packStats.clear();
+    }
+
+    /**
+     * 脚本包加载统计
+     */
+    private static class LoadStats {
+        int modules;
+        int cacheHits;
+        int fallbacks;
+        long compileNanos;
+        long executeNanos;
+        long interpretNanos;
+    }
+}
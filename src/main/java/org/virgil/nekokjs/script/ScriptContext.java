@@ -1,7 +1,6 @@
 package org.virgil.nekokjs.script;
 
 import dev.latvian.mods.rhino.Context;
-import dev.latvian.mods.rhino.ContextFactory;
 import dev.latvian.mods.rhino.Scriptable;
 import dev.latvian.mods.rhino.ScriptableObject;
 import org.virgil.nekokjs.NekoKJSPlugin;
@@ -11,6 +10,7 @@ import org.virgil.nekokjs.api.core.ScriptLoaderAPI;
 import org.virgil.nekokjs.api.core.ServerAPI;
 import org.virgil.nekokjs.api.dimension.DimensionAPI;
 import org.virgil.nekokjs.api.event.EventsAPI;
+import org.virgil.nekokjs.api.event.PlayerMessageHelper;
 import org.virgil.nekokjs.api.worldgen.BiomeAPI;
 import org.virgil.nekokjs.api.worldgen.FeatureAPI;
 import org.virgil.nekokjs.api.worldgen.GeneratorAPI;
@@ -32,29 +32,28 @@ public class ScriptContext {
     private final NekoKJSPlugin plugin;
     private final ScriptType type;
     private final Logger logger;
-    private final ContextFactory contextFactory;
+    private final ScriptEngine scriptEngine;
     private final LanguageManager lang;
-    private Context context;
     private Scriptable scope;
-    private ScriptLoaderAPI scriptLoader;
 
     public ScriptContext(NekoKJSPlugin plugin, ScriptType type) {
         this.plugin = plugin;
         this.type = type;
         this.logger = plugin.getLogger();
-        this.contextFactory = new ContextFactory();
+        this.scriptEngine = plugin.getScriptEngine();
         this.lang = plugin.getConfigManager().getLanguageManager();
         initializeContext();
     }
 
     private void initializeContext() {
-        context = contextFactory.enter();
-        try {
-            // 初始化作用域
-            scope = context.initStandardObjects();
+        // 只在初始化期间借出 Context，结束后归还到池中
+        try (ContextPool.Lease lease = scriptEngine.acquire()) {
+            Context context = lease.context();
+            // 初始化作用域（以共享的标准对象作用域为原型，无需重新构建标准对象）
+            scope = scriptEngine.createChildScope(context);
             
             // 注入全局 API
-            injectGlobalAPIs();
+            injectGlobalAPIs(context);
             
             logger.info(lang.scriptContextInitialized(type.getName()));
         } catch (Exception e) {
@@ -63,7 +62,7 @@ public class ScriptContext {
         }
     }
 
-    private void injectGlobalAPIs() {
+    private void injectGlobalAPIs(Context context) {
         // KubeJS-Rhino 使用 ScriptableObject.putProperty 设置全局属性
         // Console API - 用于日志输出
         ConsoleAPI consoleAPI = new ConsoleAPI(logger);
@@ -77,6 +76,9 @@ public class ScriptContext {
         EventsAPI eventsAPI = plugin.getEventManager().getEventsAPI();
         ScriptableObject.putProperty(scope, "Events", eventsAPI, context);
         
+        // PlayerMessageHelper - 提供安全的 sendMessage 方法
+        ScriptableObject.putProperty(scope, "PlayerMessageHelper", context.javaToJS(PlayerMessageHelper.class, scope), context);
+        
         // Message API - MiniMessage 格式消息
         MessageAPI messageAPI = new MessageAPI(plugin.getServer());
         ScriptableObject.putProperty(scope, "Message", messageAPI, context);
@@ -126,12 +128,14 @@ public class ScriptContext {
 
     /**
      * 执行脚本
+     * 根据 optimization-level 解释执行或先编译再执行
      */
     public Object evaluateScript(String script, String sourceName) {
-        Context ctx = contextFactory.enter();
         try {
-            // evaluateString 需要 scope, script, sourceName, lineNumber, securityDomain
-            return ctx.evaluateString(scope, script, sourceName, 1, null);
+            return scriptEngine.evaluate(scope, script, sourceName, null);
+        } catch (ScriptTimeoutError e) {
+            logger.severe(lang.scriptTimeout(e.getMessage()));
+            return null;
         } catch (Exception e) {
             logger.severe(lang.scriptExecuteFailed(sourceName, e.getMessage()));
             e.printStackTrace();
@@ -141,10 +145,23 @@ public class ScriptContext {
     
     /**
      * 执行脚本包的入口文件，并启用脚本加载器
+     * 每个脚本包在独立的作用域中执行，包内的顶层变量不会泄漏到其他脚本包
+     * 可以在多个加载线程上并发调用，执行失败时抛出异常
+     *
+     * @return 脚本包作用域，热重载时用于查找脚本包依赖的模块
      */
-    public Object evaluatePackScript(String script, String sourceName, ScriptPack pack) {
+    public PackScope evaluatePackScript(String script, String sourceName, ScriptPack pack) {
+        try (ContextPool.Lease lease = scriptEngine.acquire()) {
+            return evaluatePackScript(lease.context(), script, sourceName, pack);
+        }
+    }
+    
+    private PackScope evaluatePackScript(Context context, String script, String sourceName, ScriptPack pack) {
+        PackScope packScope = scriptEngine.createPackScope(scope, pack);
+        
         // 创建脚本加载器
-        this.scriptLoader = new ScriptLoaderAPI(logger, lang, contextFactory, scope, pack);
+        ScriptLoaderAPI scriptLoader = new ScriptLoaderAPI(logger, lang, scriptEngine, packScope, pack);
+        packScope.setLoader(scriptLoader);
         
         // 使用 CustomFunction 注册 load 函数
         dev.latvian.mods.rhino.CustomFunction loadFunc = new dev.latvian.mods.rhino.CustomFunction(
@@ -157,23 +174,14 @@ public class ScriptContext {
             },
             new dev.latvian.mods.rhino.type.TypeInfo[]{dev.latvian.mods.rhino.type.TypeInfo.STRING}
         );
-        ScriptableObject.putProperty(scope, "load", loadFunc, context);
+        ScriptableObject.putProperty(packScope, "load", loadFunc, context);
         
-        // 使用 CustomFunction 注册 require 函数
-        dev.latvian.mods.rhino.CustomFunction requireFunc = new dev.latvian.mods.rhino.CustomFunction(
-            "require",
-            (cx, args) -> {
-                if (args.length > 0) {
-                    return scriptLoader.require(cx.toString(args[0]));
-                }
-                return null;
-            },
-            new dev.latvian.mods.rhino.type.TypeInfo[]{dev.latvian.mods.rhino.type.TypeInfo.STRING}
-        );
-        ScriptableObject.putProperty(scope, "require", requireFunc, context);
+        // 注册 CommonJS require 函数（附带 require.lazy）
+        ScriptableObject.putProperty(packScope, "require", scriptLoader.createRequireFunction(context, ""), context);
         
         // 执行入口脚本
-        return evaluateScript(script, sourceName);
+        scriptEngine.evaluate(packScope, script, sourceName, pack);
+        return packScope;
     }
 
     public Scriptable getScope() {
@@ -186,7 +194,6 @@ public class ScriptContext {
 
     public void cleanup() {
         scope = null;
-        context = null;
         logger.info(lang.scriptContextCleaned(type.getName()));
     }
 }
@@ -0,0 +1,222 @@
+package org.virgil.nekokjs.script;
+
+import dev.latvian.mods.rhino.Context;
+import dev.latvian.mods.rhino.ContextFactory;
+import dev.latvian.mods.rhino.Function;
+import dev.latvian.mods.rhino.Scriptable;
+import dev.latvian.mods.rhino.ScriptableObject;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.virgil.nekokjs.NekoKJSPlugin;
+import org.virgil.nekokjs.jfr.JfrEvents;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.logging.Logger;
+
+/**
+ * 脚本引擎
+ * 持有全局唯一的 ContextFactory 和共享的标准对象作用域
+ *
+ * 标准对象（Object、Array、JSON 等）只在启动时构建一次并密封，
+ * 之后每个线程、每个脚本上下文、每个脚本包都只创建一个轻量的子作用域，
+ * 通过原型链访问共享作用域，避免每次事件都调用 initStandardObjects()
+ *
+ * 执行脚本的线程通过 acquire() 从 ContextPool 借出 Context，用完后关闭归还
+ */
+public class ScriptEngine {
+    private final WatchdogContextFactory contextFactory;
+    private final ScriptableObject sharedScope;
+    private final ContextPool contextPool;
+    private final ScriptCompiler compiler;
+    // 当前线程正在执行的脚本包，用于记录全局注册表条目的归属
+    private static final ThreadLocal<ScriptPack> currentPack = new ThreadLocal<>();
+
+    public ScriptEngine(NekoKJSPlugin plugin) {
+        this(plugin.getLogger(), plugin.getConfigManager().getConfig(), plugin.getDataFolder(), plugin.getPluginMeta().getVersion());
+    }
+
+    /**
+     * 不依赖插件实例创建脚本引擎（基准测试等场景）
+     *
+     * @param dataFolder 编译缓存所在的数据目录
+     * @param pluginVersion 插件版本，作为编译缓存键的一部分
+     */
+    public ScriptEngine(Logger logger, FileConfiguration config, File dataFolder, String pluginVersion) {
+        // 看门狗按阶段限制单次调用的执行时间和指令数，script-timeout 作为加载阶段的默认超时
+        this.contextFactory = new WatchdogContextFactory(
+                config.getConfigurationSection("script-watchdog"),
+                config.getLong("script-timeout", 5000));
+        JfrEvents.configure(config.getConfigurationSection("jfr"));
+
+        // 每个借出的 Context 附带一个子作用域，用于包装事件对象和创建临时 JS 对象
+        this.contextPool = new ContextPool(contextFactory, contextFactory::configure, this::createChildScope,
+                Math.max(8, Runtime.getRuntime().availableProcessors() * 2));
+
+        // 构建共享的标准对象作用域并密封，之后只读；构建用的 Context 归还到池中
+        try (ContextPool.Lease lease = contextPool.acquire()) {
+            this.sharedScope = lease.context().initStandardObjects(null, true);
+        }
+
+        // 根据 optimization-level 选择解释模式或编译模式，编译模式下启用编译结果缓存
+        int optimizationLevel = config.getInt("script-engine.optimization-level", -1);
+        ScriptCache cache = new ScriptCache(
+                logger,
+                new File(dataFolder, "cache/scripts"),
+                optimizationLevel >= 0 && config.getBoolean("performance.enable-cache", true),
+                config.getInt("performance.max-cache-size", 100),
+                config.getLong("performance.max-disk-cache-mb", 64) * 1024 * 1024,
+                getEngineVersion(pluginVersion),
+                optimizationLevel);
+        this.compiler = new ScriptCompiler(logger, optimizationLevel, cache);
+    }
+
+    /**
+     * 引擎版本，作为编译缓存键的一部分
+     * Rhino 或插件升级后旧的缓存条目自动失效
+     */
+    private static String getEngineVersion(String pluginVersion) {
+        String rhinoVersion = Context.class.getPackage().getImplementationVersion();
+        return (rhinoVersion != null ? rhinoVersion : "unknown") + "/" + pluginVersion;
+    }
+
+    /**
+     * 为当前线程借出 Context，必须在同一线程上关闭
+     * 用法: try (ContextPool.Lease lease = scriptEngine.acquire()) { ... }
+     */
+    public ContextPool.Lease acquire() {
+        return contextPool.acquire();
+    }
+
+    /**
+     * 创建以共享作用域为原型的子作用域
+     * 子作用域中定义的变量不会影响共享作用域
+     */
+    public Scriptable createChildScope(Context cx) {
+        Scriptable scope = cx.newObject(sharedScope);
+        scope.setPrototype(sharedScope);
+        scope.setParentScope(null);
+        return scope;
+    }
+
+    /**
+     * 为脚本包创建独立的顶层作用域
+     *
+     * @param globalScope 注入了全局 API 的作用域，作为脚本包作用域的原型
+     * @param pack 脚本包
+     */
+    public PackScope createPackScope(Scriptable globalScope, ScriptPack pack) {
+        PackScope scope = new PackScope(pack);
+        scope.setPrototype(globalScope);
+        scope.setParentScope(null);
+        return scope;
+    }
+
+    /**
+     * 获取当前线程的临时作用域
+     * 只能在持有 acquire() 借出的 Context 时调用
+     */
+    public Scriptable getThreadScope() {
+        return contextPool.currentLease().scratchScope();
+    }
+
+    /**
+     * 获取回调函数所属的顶层作用域
+     * 回调在注册它的脚本包作用域中执行，闭包可以看到真实的模块变量
+     */
+    public static Scriptable getCallbackScope(Function callback) {
+        return ScriptableObject.getTopLevelScope(callback);
+    }
+
+    /**
+     * 获取回调函数所属的脚本包
+     *
+     * @return 脚本包，如果回调不是在脚本包作用域中创建的则返回 null
+     */
+    @Nullable
+    public static ScriptPack getOwningPack(Function callback) {
+        Scriptable scope = getCallbackScope(callback);
+        return scope instanceof PackScope packScope ? packScope.getPack() : null;
+    }
+
+    /**
+     * 在指定作用域中编译并执行脚本
+     *
+     * @param pack 脚本所属的脚本包，用于统计加载耗时，可以为 null
+     */
+    public Object evaluate(Scriptable scope, String source, String sourceName, @Nullable ScriptPack pack) {
+        ScriptPack previous = currentPack.get();
+        if (pack != null) {
+            currentPack.set(pack);
+        }
+        try (ContextPool.Lease lease = acquire();
+             WatchdogContextFactory.Guard guard = guard(WatchdogContextFactory.Phase.LOAD, pack, sourceName)) {
+            return compiler.evaluate(lease.context(), scope, source, sourceName, pack);
+        } finally {
+            currentPack.set(previous);
+        }
+    }
+
+    /**
+     * 开始一次受看门狗监视的脚本调用
+     * 超过限制时调用中的脚本抛出 ScriptTimeoutError
+     */
+    public WatchdogContextFactory.Guard guard(WatchdogContextFactory.Phase phase, @Nullable ScriptPack pack, String label) {
+        return contextFactory.guard(phase, pack, label, null);
+    }
+
+    /**
+     * 开始一次受看门狗监视的函数调用
+     *
+     * @param function 被调用的 JS 函数，用于分析器按函数归类
+     */
+    public WatchdogContextFactory.Guard guard(WatchdogContextFactory.Phase phase, @Nullable ScriptPack pack, String label,
+                                              @Nullable Function function) {
+        return contextFactory.guard(phase, pack, label, function);
+    }
+
+    /**
+     * 获取当前线程正在加载的脚本包
+     *
+     * @return 脚本包，不在脚本包加载期间时返回 null
+     */
+    @Nullable
+    public static ScriptPack getCurrentPack() {
+        return currentPack.get();
+    }
+
+    /**
+     * 获取当前线程上调用 API 的脚本包
+     * 加载期间为正在加载的脚本包，运行期间为正在执行的回调所属的脚本包
+     *
+     * @return 脚本包，不在脚本执行期间时返回 null
+     */
+    @Nullable
+    public ScriptPack getCallingPack() {
+        ScriptPack pack = currentPack.get();
+        return pack != null ? pack : contextFactory.getCurrentPack();
+    }
+
+    public ScriptProfiler getProfiler() {
+        return contextFactory.getProfiler();
+    }
+
+    public WatchdogContextFactory getWatchdog() {
+        return contextFactory;
+    }
+
+    public ContextPool getContextPool() {
+        return contextPool;
+    }
+
+    public ScriptCompiler getCompiler() {
+        return compiler;
+    }
+
+    public ContextFactory getContextFactory() {
+        return contextFactory;
+    }
+
+    public Scriptable getSharedScope() {
+        return sharedScope;
+    }
+}
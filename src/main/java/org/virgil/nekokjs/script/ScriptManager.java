@@ -1,18 +1,30 @@
 package org.virgil.nekokjs.script;
 
 import org.virgil.nekokjs.NekoKJSPlugin;
+import org.virgil.nekokjs.jfr.JfrEvents;
+import org.virgil.nekokjs.jfr.PackLoadEvent;
 import org.virgil.nekokjs.lang.LanguageManager;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 /**
  * 脚本管理器，负责加载、执行和管理 JavaScript 脚本
  * 参考 KubeJS 的脚本管理设计
+ *
+ * 启用 auto-reload 后监视 resources/ 目录，脚本文件变化时只重新加载
+ * 入口脚本或 load/require 过该文件的脚本包，以及依赖这些脚本包的下游脚本包
+ *
+ * 每个脚本包注册的监听器、定时任务和世界生成注册表条目都记录归属，
+ * 可以通过 /nekokjs unload|load <pack> 单独卸载和加载
  */
 public class ScriptManager {
     private final NekoKJSPlugin plugin;
@@ -21,15 +33,19 @@ public class ScriptManager {
     private final Map<ScriptType, ScriptContext> contexts;
     private final Map<String, File> loadedScripts;
     private final List<ScriptPack> scriptPacks;
+    // 已加载的脚本包作用域（命名空间小写 -> 作用域），热重载时整体替换
+    private final Map<String, PackScope> packScopes;
     private final LanguageManager lang;
+    private ScriptWatcher watcher;
 
     public ScriptManager(NekoKJSPlugin plugin, File scriptsDir) {
         this.plugin = plugin;
         this.scriptsDir = scriptsDir;
         this.logger = plugin.getLogger();
         this.contexts = new HashMap<>();
-        this.loadedScripts = new HashMap<>();
-        this.scriptPacks = new ArrayList<>();
+        this.loadedScripts = new ConcurrentHashMap<>();
+        this.scriptPacks = new CopyOnWriteArrayList<>();
+        this.packScopes = new ConcurrentHashMap<>();
         this.lang = plugin.getConfigManager().getLanguageManager();
         
         initializeContexts();
@@ -48,7 +64,7 @@ public class ScriptManager {
     /**
      * 加载所有脚本
      * 扫描 resources/ 目录下的所有脚本包
-     * 异步执行以避免阻塞主线程
+     * 异步执行以避免阻塞主线程，脚本包按 pack.dependencies 构成的依赖图并行加载
      */
     public void loadAllScripts() {
         // 扫描并加载所有脚本包
@@ -63,20 +79,335 @@ public class ScriptManager {
         // 异步加载脚本，避免阻塞主线程
         // Folia 兼容：使用异步调度器
         runAsync(() -> {
+            plugin.getScriptEngine().getCompiler().resetStats();
+            long startTime = System.nanoTime();
+            
+            List<ScriptPack> enabledPacks = new ArrayList<>();
             for (ScriptPack pack : scriptPacks) {
                 if (!pack.isEnabled()) {
                     logger.info("跳过已禁用的脚本包: " + pack.toString());
                     continue;
                 }
-                
-                logger.info("加载脚本包: " + pack.toString());
-                loadPackScripts(pack);
+                enabledPacks.add(pack);
             }
             
+            // 按依赖图并行加载，互不依赖的脚本包同时执行
+            int threads = plugin.getConfigManager().getConfig().getInt("script-loading.parallel-threads", 0);
+            new PackLoader(logger, threads).loadAll(enabledPacks, pack -> {
+                logger.info("加载脚本包: " + pack.toString());
+                return loadPackScripts(pack);
+            });
+            
             logger.info(lang.scriptAllLoaded(loadedScripts.size()));
+            logger.info(String.format("脚本包加载耗时: %.2fms", (System.nanoTime() - startTime) / 1_000_000.0));
+            plugin.getScriptEngine().getCompiler().logReport();
+            
+            if (plugin.getConfigManager().getConfig().getBoolean("auto-reload", false)) {
+                startWatcher();
+            }
         });
     }
     
+    /**
+     * 启动脚本文件监视器
+     */
+    private synchronized void startWatcher() {
+        if (watcher != null) {
+            return;
+        }
+        watcher = new ScriptWatcher(logger, scriptsDir.toPath(), 500, this::onFilesChanged);
+        try {
+            watcher.start();
+        } catch (IOException e) {
+            logger.warning("无法启动脚本热重载: " + e.getMessage());
+            watcher = null;
+        }
+    }
+    
+    private synchronized void stopWatcher() {
+        if (watcher != null) {
+            watcher.stop();
+            watcher = null;
+        }
+    }
+    
+    /**
+     * 处理一批文件变化（在监视线程上执行）
+     * 根据每个脚本包记录的模块图找到受影响的脚本包
+     */
+    private void onFilesChanged(Set<Path> changed) {
+        Set<String> affected = new LinkedHashSet<>();
+        Path root = scriptsDir.toPath().toAbsolutePath().normalize();
+        
+        for (Path path : changed) {
+            Path file = path.toAbsolutePath().normalize();
+            String fileName = file.getFileName().toString();
+            if (!fileName.endsWith(".js") && !fileName.equals("pack.yml")) {
+                continue;
+            }
+            
+            boolean matched = false;
+            for (PackScope scope : packScopes.values()) {
+                Path packDir = scope.getPack().getPackDir().toPath().toAbsolutePath().normalize();
+                if (!file.startsWith(packDir)) {
+                    continue;
+                }
+                matched = true;
+                String relative = packDir.relativize(file).toString().replace('\\', '/');
+                if (dependsOn(scope, relative)) {
+                    affected.add(scope.getPack().getNamespace());
+                }
+            }
+            
+            // 尚未加载的脚本包（新增或之前加载失败）修改后尝试加载
+            if (!matched && file.startsWith(root) && root.relativize(file).getNameCount() > 1) {
+                String namespace = root.relativize(file).getName(0).toString();
+                if (new File(scriptsDir, namespace + "/pack.yml").isFile()) {
+                    affected.add(namespace);
+                }
+            }
+        }
+        
+        if (!affected.isEmpty()) {
+            reloadPacks(affected);
+        }
+    }
+    
+    /**
+     * 判断脚本包是否依赖某个文件：pack.yml、入口脚本或加载过的模块
+     */
+    private static boolean dependsOn(PackScope scope, String relativePath) {
+        ScriptPack pack = scope.getPack();
+        if (relativePath.equals("pack.yml") || relativePath.equals(pack.getEntryPoint().replace('\\', '/'))) {
+            return true;
+        }
+        return scope.getLoader() != null && Arrays.asList(scope.getLoader().getLoadedScripts()).contains(relativePath);
+    }
+    
+    /**
+     * 重新加载指定的脚本包以及所有直接或间接依赖它们的脚本包
+     * 新版本先在未激活状态下加载，成功后再与旧版本交换并注销旧版本的监听器和定时任务；
+     * 加载失败时保留旧版本继续运行
+     *
+     * @param namespaces 需要重新加载的脚本包命名空间
+     * @return 成功重新加载的脚本包数量
+     */
+    public synchronized int reloadPacks(Collection<String> namespaces) {
+        List<String> order = collectDependents(namespaces);
+        logger.info("正在热重载脚本包: " + String.join(", ", order));
+        long startTime = System.nanoTime();
+        
+        int reloaded = 0;
+        Set<String> failed = new HashSet<>();
+        for (String namespace : order) {
+            String key = namespace.toLowerCase(Locale.ROOT);
+            ScriptPack probe = new ScriptPack(new File(scriptsDir, namespace));
+            boolean dependencyFailed = probe.getDependencies().stream()
+                    .anyMatch(dependency -> failed.contains(dependency.trim().toLowerCase(Locale.ROOT)));
+            if (dependencyFailed) {
+                logger.warning("跳过热重载脚本包 [" + namespace + "]: 依赖重新加载失败，保留当前版本");
+                failed.add(key);
+                continue;
+            }
+            if (reloadPack(probe)) {
+                reloaded++;
+            } else {
+                failed.add(key);
+            }
+        }
+        
+        logger.info(String.format("热重载完成: %d/%d 个脚本包, 耗时 %.2fms",
+                reloaded, order.size(), (System.nanoTime() - startTime) / 1_000_000.0));
+        return reloaded;
+    }
+    
+    /**
+     * 加载新版本脚本包并替换旧版本
+     */
+    private boolean reloadPack(ScriptPack newPack) {
+        String key = newPack.getNamespace().toLowerCase(Locale.ROOT);
+        PackScope oldScope = packScopes.get(key);
+        ScriptPack oldPack = oldScope != null ? oldScope.getPack() : null;
+        
+        if (!newPack.isValid()) {
+            logger.warning("跳过热重载脚本包 [" + newPack.getNamespace() + "]: 入口文件不存在: " + newPack.getEntryPoint());
+            return false;
+        }
+        if (!newPack.isEnabled()) {
+            // 在 pack.yml 中禁用：卸载旧版本
+            if (oldPack != null) {
+                deactivatePack(oldPack);
+                packScopes.remove(key);
+                logger.info("脚本包已禁用并卸载: " + oldPack);
+            }
+            return false;
+        }
+        for (String dependency : newPack.getDependencies()) {
+            if (!packScopes.containsKey(dependency.trim().toLowerCase(Locale.ROOT))) {
+                logger.warning("跳过热重载脚本包 [" + newPack.getNamespace() + "]: 依赖 [" + dependency + "] 未加载");
+                return false;
+            }
+        }
+        
+        // 新版本在未激活状态下执行，注册的回调和任务在交换前不会触发
+        newPack.setActive(false);
+        PackScope newScope = evaluatePack(newPack);
+        if (newScope == null) {
+            // 撤销新版本已经执行的注册，被覆盖的注册表条目恢复为旧版本的对象
+            plugin.getEventManager().getEventsAPI().unregisterPack(newPack);
+            PackResources.rollback(newPack);
+            logger.warning("热重载脚本包失败 [" + newPack.getNamespace() + "]，已恢复当前版本");
+            return false;
+        }
+        PackResources.commit(newPack);
+        
+        // 交换：先停用旧版本再激活新版本，同一事件不会被两个版本同时处理
+        if (oldPack != null) {
+            oldPack.setActive(false);
+        }
+        newPack.setActive(true);
+        packScopes.put(key, newScope);
+        replaceScriptPack(newPack);
+        
+        if (oldPack != null) {
+            deactivatePack(oldPack);
+        }
+        logger.info("已热重载脚本包: " + newPack);
+        return true;
+    }
+    
+    /**
+     * 停用脚本包并注销它的监听器、定时任务和注册表条目
+     */
+    private void deactivatePack(ScriptPack pack) {
+        pack.setActive(false);
+        int released = plugin.getEventManager().getEventsAPI().unregisterPack(pack);
+        released += PackResources.release(pack);
+        if (plugin.getConfigManager().getConfig().getBoolean("debug", false)) {
+            logger.info("已注销脚本包 [" + pack.getNamespace() + "] 的 " + released + " 个回调和任务");
+        }
+    }
+    
+    private void replaceScriptPack(ScriptPack pack) {
+        for (int i = 0; i < scriptPacks.size(); i++) {
+            if (scriptPacks.get(i).getNamespace().equalsIgnoreCase(pack.getNamespace())) {
+                scriptPacks.set(i, pack);
+                return;
+            }
+        }
+        scriptPacks.add(pack);
+    }
+    
+    /**
+     * 卸载脚本包
+     * 依赖它的已加载脚本包会先被卸载
+     *
+     * @return 卸载的脚本包命名空间（按卸载顺序），脚本包未加载时返回空列表
+     */
+    public synchronized List<String> unloadPack(String namespace) {
+        if (!isPackLoaded(namespace)) {
+            return List.of();
+        }
+        
+        List<String> order = collectDependents(List.of(namespace));
+        Collections.reverse(order);
+        for (String name : order) {
+            PackScope scope = packScopes.remove(name.toLowerCase(Locale.ROOT));
+            if (scope == null) {
+                continue;
+            }
+            ScriptPack pack = scope.getPack();
+            deactivatePack(pack);
+            loadedScripts.remove(pack.getNamespace() + ":" + pack.getEntryPoint());
+            logger.info("已卸载脚本包: " + pack);
+        }
+        return order;
+    }
+    
+    /**
+     * 加载脚本包，已加载时重新加载（包括依赖它的脚本包）
+     *
+     * @return 是否加载成功
+     */
+    public synchronized boolean loadPack(String namespace) {
+        File packDir = new File(scriptsDir, namespace);
+        if (!new File(packDir, "pack.yml").isFile()) {
+            return false;
+        }
+        reloadPacks(List.of(packDir.getName()));
+        return isPackLoaded(namespace);
+    }
+    
+    /**
+     * 在异步线程中加载脚本包
+     *
+     * @param callback 加载完成后在同一异步线程中调用，参数为是否加载成功
+     */
+    public void loadPackAsync(String namespace, java.util.function.Consumer<Boolean> callback) {
+        runAsync(() -> callback.accept(loadPack(namespace)));
+    }
+    
+    /**
+     * 脚本包当前是否已加载
+     */
+    public boolean isPackLoaded(String namespace) {
+        return packScopes.containsKey(namespace.toLowerCase(Locale.ROOT));
+    }
+    
+    /**
+     * 按依赖顺序收集脚本包及其下游（依赖它们的已加载脚本包）
+     * 被依赖的脚本包总是排在依赖它的脚本包之前
+     */
+    private List<String> collectDependents(Collection<String> namespaces) {
+        Map<String, String> names = new LinkedHashMap<>();
+        Map<String, Set<String>> dependencies = new HashMap<>();
+        ArrayDeque<String> queue = new ArrayDeque<>();
+        for (String namespace : namespaces) {
+            String key = namespace.toLowerCase(Locale.ROOT);
+            if (names.putIfAbsent(key, namespace) == null) {
+                queue.add(key);
+            }
+        }
+        
+        while (!queue.isEmpty()) {
+            String current = queue.poll();
+            for (PackScope scope : packScopes.values()) {
+                ScriptPack pack = scope.getPack();
+                String key = pack.getNamespace().toLowerCase(Locale.ROOT);
+                boolean dependsOnCurrent = pack.getDependencies().stream()
+                        .anyMatch(dependency -> dependency.trim().equalsIgnoreCase(current));
+                if (!dependsOnCurrent) {
+                    continue;
+                }
+                dependencies.computeIfAbsent(key, k -> new HashSet<>()).add(current);
+                if (names.putIfAbsent(key, pack.getNamespace()) == null) {
+                    queue.add(key);
+                }
+            }
+        }
+        
+        // 只考虑集合内部的依赖关系做拓扑排序，环上的脚本包按发现顺序追加
+        List<String> ordered = new ArrayList<>();
+        Set<String> done = new HashSet<>();
+        boolean progress = true;
+        while (done.size() < names.size() && progress) {
+            progress = false;
+            for (String key : names.keySet()) {
+                if (!done.contains(key) && done.containsAll(dependencies.getOrDefault(key, Set.of()))) {
+                    done.add(key);
+                    ordered.add(names.get(key));
+                    progress = true;
+                }
+            }
+        }
+        for (String key : names.keySet()) {
+            if (done.add(key)) {
+                ordered.add(names.get(key));
+            }
+        }
+        return ordered;
+    }
+    
     /**
      * 异步执行任务（Folia 兼容）
      */
@@ -139,58 +470,95 @@ public class ScriptManager {
     
     /**
      * 加载脚本包的入口文件
+     *
+     * @return 是否加载成功
      */
-    private void loadPackScripts(ScriptPack pack) {
+    private boolean loadPackScripts(ScriptPack pack) {
+        PackScope scope = evaluatePack(pack);
+        if (scope == null) {
+            return false;
+        }
+        PackResources.commit(pack);
+        packScopes.put(pack.getNamespace().toLowerCase(Locale.ROOT), scope);
+        return true;
+    }
+    
+    /**
+     * 执行脚本包的入口文件
+     *
+     * @return 脚本包作用域，加载失败时返回 null
+     */
+    @Nullable
+    private PackScope evaluatePack(ScriptPack pack) {
         File entryFile = pack.getEntryFile();
         if (!entryFile.exists() || !entryFile.isFile()) {
             logger.warning("脚本包 [" + pack.getNamespace() + "] 的入口文件不存在: " + pack.getEntryPoint());
-            return;
+            return null;
         }
         
         // 在 STARTUP 上下文中加载（启动时执行）
         ScriptContext context = contexts.get(ScriptType.STARTUP);
         String scriptId = pack.getNamespace() + ":" + pack.getEntryPoint();
         
-        loadPackScript(entryFile, context, scriptId, pack);
+        PackLoadEvent jfrEvent = JfrEvents.beginPackLoad();
+        long startTime = System.nanoTime();
+        PackScope scope = loadPackScript(entryFile, context, scriptId, pack);
+        JfrEvents.commitPackLoad(jfrEvent, pack.getNamespace(), pack.getEntryPoint(), scope != null, System.nanoTime() - startTime);
+        return scope;
     }
     
     /**
      * 加载脚本包的入口脚本文件（启用模块加载功能）
+     *
+     * @return 脚本包作用域，加载失败时返回 null
      */
-    private void loadPackScript(File scriptFile, ScriptContext context, String scriptId, ScriptPack pack) {
+    @Nullable
+    private PackScope loadPackScript(File scriptFile, ScriptContext context, String scriptId, ScriptPack pack) {
         try {
             String script = Files.readString(scriptFile.toPath());
             // 使用 evaluatePackScript 以启用 load/require 功能
-            context.evaluatePackScript(script, scriptId, pack);
+            PackScope scope = context.evaluatePackScript(script, scriptId, pack);
             loadedScripts.put(scriptId, scriptFile);
             logger.info(lang.scriptLoaded(scriptId));
+            return scope;
+        } catch (ScriptTimeoutError e) {
+            logger.severe(lang.scriptTimeout(e.getMessage()));
         } catch (IOException e) {
             logger.severe(lang.scriptReadFailed(scriptId, e.getMessage()));
         } catch (Exception e) {
             logger.severe(lang.scriptExecuteFailed(scriptId, e.getMessage()));
             e.printStackTrace();
         }
+        return null;
     }
 
     /**
      * 重新加载脚本配置（pack.yml）
-     * 注意：不会重新加载脚本本体，需要重启服务器
+     * 不会重新执行脚本本体；启用 auto-reload 时脚本修改会自动热重载
      */
-    public void reloadScriptConfigs() {
+    public synchronized void reloadScriptConfigs() {
         logger.info("正在重新加载脚本包配置...");
         
         // 重新扫描脚本包配置
         discoverScriptPacks();
         
         logger.info("脚本包配置已重新加载，共 " + scriptPacks.size() + " 个脚本包");
-        logger.info("注意：脚本本体未重新加载，若要应用脚本更改请重启服务器");
+        if (watcher == null) {
+            logger.info("注意：脚本本体未重新加载，启用 auto-reload 后修改脚本会自动热重载");
+        }
     }
 
     /**
      * 卸载所有脚本
      */
     public void unloadAllScripts() {
+        stopWatcher();
         loadedScripts.clear();
+        for (PackScope scope : packScopes.values()) {
+            scope.getPack().setActive(false);
+            PackResources.release(scope.getPack());
+        }
+        packScopes.clear();
         for (ScriptContext context : contexts.values()) {
             context.cleanup();
         }
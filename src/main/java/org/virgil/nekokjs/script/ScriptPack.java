@@ -1,6 +1,8 @@
 package org.virgil.nekokjs.script;
 
 import org.bukkit.configuration.file.YamlConfiguration;
+import org.virgil.nekokjs.mixin.metrics.HookMetrics;
+import org.virgil.nekokjs.mixin.metrics.HookTimer;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -16,6 +18,10 @@ public class ScriptPack {
     private final YamlConfiguration config;
     private boolean enabled;
     private int priority;
+    // 热重载时新实例在替换旧实例前保持未激活，未激活脚本包的回调和任务不会执行
+    private volatile boolean active = true;
+    // 脚本执行耗时，同一命名空间的新旧实例共用
+    private final HookTimer metrics;
     
     private String name;
     private String version;
@@ -29,6 +35,7 @@ public class ScriptPack {
     public ScriptPack(File packDir) {
         this.packDir = packDir;
         this.namespace = packDir.getName();
+        this.metrics = HookMetrics.timer(HookMetrics.PACK, namespace);
         
         // 加载 pack.yml
         File configFile = new File(packDir, "pack.yml");
@@ -130,6 +137,21 @@ public class ScriptPack {
         return priority;
     }
 
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    /**
+     * 获取脚本包的执行耗时统计（加载、事件回调、世界生成钩子）
+     */
+    public HookTimer getMetrics() {
+        return metrics;
+    }
+
     public File getDataDir() {
         return dataDir;
     }
@@ -0,0 +1,205 @@
+package org.virgil.nekokjs.script;
+
+import dev.latvian.mods.rhino.BaseFunction;
+import dev.latvian.mods.rhino.Function;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 脚本采样分析器
+ * 复用看门狗的指令计数回调：分析期间每次回调记录当前调用的脚本包、入口、回调函数和源码行，
+ * 权重为距离上一次采样经过的时间；调用结束时剩余时间记在调用本身上
+ *
+ * 回调帧是注册的回调函数本身，不是正在执行的 JS 函数：回调调用的辅助函数的耗时计入回调，
+ * 需要区分辅助函数时看源码行帧
+ *
+ * 结果按 折叠栈（collapsed stack）格式写入 profiles/ 目录，可以直接交给 flamegraph.pl 或 speedscope，
+ * 每行格式：脚本包;阶段:入口;回调;文件:行 微秒数
+ *
+ * 未在分析时只多一次 volatile 读取
+ */
+public class ScriptProfiler {
+    private static final String SELF_FRAME = "(self)";
+
+    private final Map<String, LongAdder> stacks = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private volatile long startMillis;
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 开始分析，清空上一次的数据
+     *
+     * @return 是否成功开始（已经在分析时返回 false）
+     */
+    public synchronized boolean start() {
+        if (running) {
+            return false;
+        }
+        stacks.clear();
+        startMillis = System.currentTimeMillis();
+        running = true;
+        return true;
+    }
+
+    /**
+     * 停止分析
+     *
+     * @return 本次分析的结果，未在分析时返回 null
+     */
+    @Nullable
+    public synchronized Report stop() {
+        if (!running) {
+            return null;
+        }
+        running = false;
+        Map<String, Long> snapshot = new HashMap<>();
+        stacks.forEach((stack, nanos) -> snapshot.put(stack, nanos.sum()));
+        return new Report(snapshot, startMillis, System.currentTimeMillis());
+    }
+
+    /**
+     * 记录一次采样
+     *
+     * @param callback 注册的回调函数，执行顶层脚本时为 null
+     * @param source 当前执行的源文件，调用结束时的剩余时间传 null
+     * @param nanos 采样权重
+     */
+    void record(@Nullable ScriptPack pack, WatchdogContextFactory.Phase phase, @Nullable String label,
+                @Nullable Function callback, @Nullable String source, int line, long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        String stack = sanitize(pack != null ? pack.getNamespace() : "global")
+                + ';' + phase.getName() + ':' + sanitize(label != null ? label : "?")
+                + ';' + sanitize(getCallbackName(callback))
+                + ';' + (source != null ? sanitize(source) + ':' + line : SELF_FRAME);
+        stacks.computeIfAbsent(stack, k -> new LongAdder()).add(nanos);
+    }
+
+    private static String getCallbackName(@Nullable Function callback) {
+        if (callback == null) {
+            return "(top-level)";
+        }
+        if (callback instanceof BaseFunction baseFunction) {
+            String name = baseFunction.getFunctionName();
+            if (name != null && !name.isEmpty()) {
+                return name;
+            }
+        }
+        return "(anonymous)";
+    }
+
+    // 折叠栈格式用 ; 分隔帧、用空格分隔计数
+    private static String sanitize(String frame) {
+        return frame.replace(';', ',').replace(' ', '_').replace('\n', '_');
+    }
+
+    /**
+     * 一次分析的结果
+     */
+    public static class Report {
+        private final Map<String, Long> stacks;
+        private final long startMillis;
+        private final long endMillis;
+
+        private Report(Map<String, Long> stacks, long startMillis, long endMillis) {
+            this.stacks = stacks;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+
+        public long getDurationMillis() {
+            return endMillis - startMillis;
+        }
+
+        public int getStackCount() {
+            return stacks.size();
+        }
+
+        /**
+         * 全部脚本耗时（纳秒）
+         */
+        public long getTotalNanos() {
+            return stacks.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        /**
+         * 按脚本包汇总的总耗时
+         */
+        public List<Map.Entry<String, Long>> topPacks(int limit) {
+            return top(1, limit);
+        }
+
+        /**
+         * 按回调（脚本包;入口;回调）汇总的总耗时，包含回调调用的辅助函数
+         */
+        public List<Map.Entry<String, Long>> topCallbacks(int limit) {
+            return top(3, limit);
+        }
+
+        /**
+         * 按源码行汇总的自身耗时
+         */
+        public List<Map.Entry<String, Long>> topLines(int limit) {
+            Map<String, Long> totals = new HashMap<>();
+            stacks.forEach((stack, nanos) -> {
+                String[] frames = stack.split(";");
+                if (!frames[3].equals(SELF_FRAME)) {
+                    totals.merge(frames[0] + ';' + frames[3], nanos, Long::sum);
+                }
+            });
+            return sorted(totals, limit);
+        }
+
+        private List<Map.Entry<String, Long>> top(int depth, int limit) {
+            Map<String, Long> totals = new HashMap<>();
+            stacks.forEach((stack, nanos) -> {
+                String[] frames = stack.split(";");
+                totals.merge(String.join(";", Arrays.copyOf(frames, depth)), nanos, Long::sum);
+            });
+            return sorted(totals, limit);
+        }
+
+        private static List<Map.Entry<String, Long>> sorted(Map<String, Long> totals, int limit) {
+            List<Map.Entry<String, Long>> entries = new ArrayList<>(totals.entrySet());
+            entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+            return entries.subList(0, Math.min(limit, entries.size()));
+        }
+
+        /**
+         * 写入折叠栈文件，计数单位为微秒
+         *
+         * @return 写入的文件
+         */
+        public File writeCollapsed(File directory) throws IOException {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create directory " + directory.getAbsolutePath());
+            }
+            String name = "profile-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(startMillis)) + ".collapsed";
+            File file = new File(directory, name);
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+                stacks.entrySet().stream()
+                        .sorted(Map.Entry.comparingByKey())
+                        .forEach(entry -> writer.println(entry.getKey() + ' ' + Math.max(1, entry.getValue() / 1000)));
+            }
+            return file;
+        }
+    }
+}
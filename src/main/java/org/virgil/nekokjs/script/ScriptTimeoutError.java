@@ -0,0 +1,18 @@
+package org.virgil.nekokjs.script;
+
+/**
+ * 脚本执行超过看门狗限制时抛出
+ * 继承 Error 而不是 RuntimeException，脚本中的 try/catch 无法捕获，只会执行 finally 块
+ */
+public class ScriptTimeoutError extends Error {
+    private final WatchdogContextFactory.Phase phase;
+
+    public ScriptTimeoutError(String message, WatchdogContextFactory.Phase phase) {
+        super(message, null, false, false);
+        this.phase = phase;
+    }
+
+    public WatchdogContextFactory.Phase getPhase() {
+        return phase;
+    }
+}
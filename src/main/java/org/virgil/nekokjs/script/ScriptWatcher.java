@@ -0,0 +1,161 @@
+package org.virgil.nekokjs.script;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * 脚本文件监视器
+ * 使用 WatchService 递归监视 resources/ 目录，文件变化经过去抖后批量交给回调处理
+ *
+ * 编辑器保存一个文件通常会产生多个事件（截断、写入、重命名），
+ * 在最后一个事件之后等待 debounce 毫秒，再把这段时间内变化的文件一次性交出
+ */
+public class ScriptWatcher implements Runnable {
+    private final Logger logger;
+    private final Path root;
+    private final long debounceMillis;
+    private final Consumer<Set<Path>> onChange;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    private WatchService watchService;
+    private Thread thread;
+    private volatile boolean running;
+
+    public ScriptWatcher(Logger logger, Path root, long debounceMillis, Consumer<Set<Path>> onChange) {
+        this.logger = logger;
+        this.root = root;
+        this.debounceMillis = Math.max(0, debounceMillis);
+        this.onChange = onChange;
+    }
+
+    /**
+     * 开始监视
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        watchService = root.getFileSystem().newWatchService();
+        registerAll(root);
+        running = true;
+
+        thread = new Thread(this, "NekoKJS-ScriptWatcher");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("已启用脚本热重载，正在监视: " + root);
+    }
+
+    /**
+     * 停止监视
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+        }
+        thread.interrupt();
+        directories.clear();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                Set<Path> changed = new LinkedHashSet<>();
+                collect(watchService.take(), changed);
+
+                // 去抖：直到 debounce 时间内没有新事件
+                WatchKey key;
+                while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    collect(key, changed);
+                }
+
+                if (!changed.isEmpty()) {
+                    onChange.accept(changed);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            } catch (Exception e) {
+                logger.severe("处理脚本文件变化时出错: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        Path dir;
+        synchronized (this) {
+            dir = directories.get(key);
+        }
+        if (dir == null) {
+            key.cancel();
+            return;
+        }
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                logger.warning("脚本文件变化事件过多，部分变化可能被忽略");
+                continue;
+            }
+            Path child = dir.resolve((Path) event.context());
+            // 新建的子目录也需要监视
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                try {
+                    registerAll(child);
+                } catch (IOException e) {
+                    logger.warning("无法监视目录 " + child + ": " + e.getMessage());
+                }
+            }
+            changed.add(child);
+        }
+
+        if (!key.reset()) {
+            synchronized (this) {
+                directories.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 递归注册目录（WatchService 只监视直接子项）
+     */
+    private void registerAll(Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = dir.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+                synchronized (ScriptWatcher.this) {
+                    directories.put(key, dir);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,237 @@
+package org.virgil.nekokjs.script;
+
+import dev.latvian.mods.rhino.Context;
+import dev.latvian.mods.rhino.ContextFactory;
+import dev.latvian.mods.rhino.Function;
+import jdk.jfr.Event;
+import org.bukkit.configuration.ConfigurationSection;
+import org.virgil.nekokjs.jfr.JfrEvents;
+
+import javax.annotation.Nullable;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 带执行看门狗的 ContextFactory
+ * 解释器每执行 check-interval 条指令回调一次 observeInstructionCount，
+ * 当前调用超过所在阶段的时间或指令上限时抛出 ScriptTimeoutError 中止脚本
+ *
+ * 三个阶段分别限制：
+ * - load：脚本包入口和模块的加载执行
+ * - event：事件回调、server.tick 和 Server 定时任务
+ * - worldgen：区块生成、密度函数、地表规则等世界生成钩子
+ *
+ * 计数只在最外层的 guard 中进行，例如事件回调里按需 require 的模块计入事件回调的限制
+ *
+ * 同一个回调也为 ScriptProfiler 提供采样点，关闭看门狗时仍然开启指令计数，只是不检查限制；
+ * 最外层 guard 关闭时把调用耗时计入所属脚本包的指标，事件和世界生成阶段的调用同时提交 JFR 事件
+ */
+public class WatchdogContextFactory extends ContextFactory {
+    private static final int DEFAULT_CHECK_INTERVAL = 10_000;
+
+    /**
+     * 执行阶段
+     */
+    public enum Phase {
+        LOAD(5000),
+        EVENT(1000),
+        WORLDGEN(250);
+
+        private final long defaultTimeoutMs;
+
+        Phase(long defaultTimeoutMs) {
+            this.defaultTimeoutMs = defaultTimeoutMs;
+        }
+
+        public String getName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final boolean enabled;
+    private final int checkInterval;
+    private final long[] timeoutNanos = new long[Phase.values().length];
+    private final long[] maxInstructions = new long[Phase.values().length];
+    private final ThreadLocal<Guard> guards = ThreadLocal.withInitial(() -> new Guard(this));
+    private final AtomicLong aborted = new AtomicLong();
+    private final ScriptProfiler profiler = new ScriptProfiler();
+
+    /**
+     * @param config script-watchdog 配置节，可以为 null
+     * @param loadTimeoutMs 加载阶段的默认超时（script-timeout）
+     */
+    public WatchdogContextFactory(@Nullable ConfigurationSection config, long loadTimeoutMs) {
+        this.enabled = config == null || config.getBoolean("enabled", true);
+        this.checkInterval = Math.max(1000, config != null ? config.getInt("check-interval", DEFAULT_CHECK_INTERVAL) : DEFAULT_CHECK_INTERVAL);
+        for (Phase phase : Phase.values()) {
+            long defaultTimeout = phase == Phase.LOAD ? loadTimeoutMs : phase.defaultTimeoutMs;
+            ConfigurationSection section = config != null ? config.getConfigurationSection(phase.getName()) : null;
+            long timeoutMs = section != null ? section.getLong("timeout-ms", defaultTimeout) : defaultTimeout;
+            timeoutNanos[phase.ordinal()] = Math.max(0, timeoutMs) * 1_000_000L;
+            maxInstructions[phase.ordinal()] = section != null ? Math.max(0, section.getLong("max-instructions", 0)) : 0;
+        }
+    }
+
+    /**
+     * 为新创建的 Context 开启指令计数
+     */
+    public void configure(Context cx) {
+        cx.setInstructionObserverThreshold(checkInterval);
+    }
+
+    /**
+     * 开始一次受监视的调用，必须在同一线程上关闭
+     * 当前线程已经处于受监视的调用中时，沿用外层的阶段和计数
+     * 用法: try (var guard = watchdog.guard(Phase.EVENT, pack, "playerJoin")) { ... }
+     *
+     * @param label 调用描述（事件名、源文件名等），用于错误信息
+     */
+    public Guard guard(Phase phase, @Nullable ScriptPack pack, String label) {
+        return guard(phase, pack, label, null);
+    }
+
+    /**
+     * @param function 被调用的 JS 函数，用于分析器按函数归类；执行脚本文件时为 null
+     */
+    public Guard guard(Phase phase, @Nullable ScriptPack pack, String label, @Nullable Function function) {
+        Guard guard = guards.get();
+        if (guard.depth++ == 0) {
+            guard.phase = phase;
+            guard.pack = pack;
+            guard.label = label;
+            guard.function = function;
+            guard.instructions = 0;
+            guard.chunkX = 0;
+            guard.chunkZ = 0;
+            guard.jfrEvent = phase != Phase.LOAD ? JfrEvents.beginCallback(phase == Phase.WORLDGEN) : null;
+            guard.startNanos = System.nanoTime();
+            guard.sampleNanos = guard.startNanos;
+        }
+        return guard;
+    }
+
+    @Override
+    protected void observeInstructionCount(Context cx, int instructionCount) {
+        Guard guard = guards.get();
+        if (guard.depth == 0) {
+            return;
+        }
+        guard.instructions += instructionCount;
+        long now = System.nanoTime();
+
+        if (profiler.isRunning()) {
+            int[] line = new int[1];
+            String source = cx.getSourcePositionFromStack(line);
+            profiler.record(guard.pack, guard.phase, guard.label, guard.function,
+                    source != null ? source : "<unknown>", line[0], now - guard.sampleNanos);
+            guard.sampleNanos = now;
+        }
+        if (!enabled) {
+            return;
+        }
+
+        int index = guard.phase.ordinal();
+        long elapsed = now - guard.startNanos;
+        boolean overTime = timeoutNanos[index] > 0 && elapsed > timeoutNanos[index];
+        boolean overInstructions = maxInstructions[index] > 0 && guard.instructions > maxInstructions[index];
+        if (!overTime && !overInstructions) {
+            return;
+        }
+
+        int[] line = new int[1];
+        String source = cx.getSourcePositionFromStack(line);
+        aborted.incrementAndGet();
+        throw new ScriptTimeoutError(String.format("[%s] %s at %s:%d (%s, %.1fms, %d instructions, limit %s)",
+                guard.pack != null ? guard.pack.getNamespace() : "global",
+                guard.label,
+                source != null ? source : "<unknown>",
+                line[0],
+                guard.phase.getName(),
+                elapsed / 1_000_000.0,
+                guard.instructions,
+                overTime ? (timeoutNanos[index] / 1_000_000) + "ms" : maxInstructions[index] + " instructions"),
+                guard.phase);
+    }
+
+    /**
+     * 当前线程正在执行的受监视调用所属的脚本包
+     *
+     * @return 脚本包，不在受监视的调用中或调用不属于脚本包时返回 null
+     */
+    @Nullable
+    public ScriptPack getCurrentPack() {
+        Guard guard = guards.get();
+        return guard.depth > 0 ? guard.pack : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 被看门狗中止的调用次数
+     */
+    public long getAbortedCount() {
+        return aborted.get();
+    }
+
+    public ScriptProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * 当前线程的监视状态，每个线程复用同一个对象
+     */
+    public static final class Guard implements AutoCloseable {
+        private final WatchdogContextFactory factory;
+        private Phase phase;
+        private ScriptPack pack;
+        private String label;
+        private Function function;
+        private int chunkX;
+        private int chunkZ;
+        private Event jfrEvent;
+        private long startNanos;
+        private long sampleNanos;
+        private long instructions;
+        private int depth;
+
+        private Guard(WatchdogContextFactory factory) {
+            this.factory = factory;
+        }
+
+        /**
+         * 记录世界生成调用所在的区块，用于 JFR 事件；嵌套调用中忽略
+         */
+        public Guard at(int chunkX, int chunkZ) {
+            if (depth == 1) {
+                this.chunkX = chunkX;
+                this.chunkZ = chunkZ;
+            }
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (depth > 0 && --depth == 0) {
+                long now = System.nanoTime();
+                if (pack != null) {
+                    pack.getMetrics().record(now - startNanos);
+                }
+                if (jfrEvent != null) {
+                    JfrEvents.commitCallback(jfrEvent, pack != null ? pack.getNamespace() : null, label,
+                            function, chunkX, chunkZ, now - startNanos);
+                    jfrEvent = null;
+                }
+                // 最后一次采样之后的时间（以及不足一个检查间隔的短调用）记在调用本身上
+                if (factory.profiler.isRunning()) {
+                    factory.profiler.record(pack, phase, label, function, null, 0, now - sampleNanos);
+                }
+                // 不持有已卸载脚本包的引用
+                pack = null;
+                label = null;
+                function = null;
+            }
+        }
+    }
+}
@@ -25,7 +25,7 @@ console.info("=================================");
 console.info("\n[Main] 开始加载模块 / Loading modules...\n");
 
 // 1. 加载配置模块
-load("data/config.js");  // 或者使用: require("data/config")
+load("data/config.js");  // 需要返回值时使用: const config = require("data/config")
 
 // 2. 加载工具函数模块
 load("data/utils/helper.js");
@@ -162,8 +162,9 @@ function teleportToSpawn(player) {
 // 💡 工作原理 / How it works:
 //   1. main.js 是唯一的入口文件（在 pack.yml 中配置）
 //   2. 使用 load("路径") 或 require("路径") 加载其他模块
-//   3. 所有模块在同一个作用域中运行，共享变量和函数
-//   4. 模块只会加载一次，重复调用 load() 会被跳过
+//   3. load() 加载的模块在同一个作用域中运行，共享变量和函数
+//   4. require() 加载的模块有独立作用域，通过 module.exports 导出，重复 require 返回同一个对象
+//   5. 模块只会加载一次，重复调用 load() 会被跳过
 //
 // 🎯 优势 / Benefits:
 //   ✓ 代码组织更清晰
@@ -11,15 +11,15 @@ console.info("━━━━━━━━━━━━━━━━━━━━━━
 console.info("[PlayerWelcome] 正在加载配置...");
 
 // 加载配置文件
-const WelcomeConfig = load("data/config.js");
+const WelcomeConfig = require("data/config.js");
 
 // 加载工具模块
-const PlayerStorage = load("data/utils/storage.js");
-const MessageFormatter = load("data/utils/formatter.js");
+const PlayerStorage = require("data/utils/storage.js");
+const MessageFormatter = require("data/utils/formatter.js");
 
 // 加载处理器
-const { handlePlayerJoin } = load("data/handlers/join.js");
-const { handlePlayerQuit } = load("data/handlers/quit.js");
+const { handlePlayerJoin } = require("data/handlers/join.js");
+const { handlePlayerQuit } = require("data/handlers/quit.js");
 
 console.info("[PlayerWelcome] 配置加载完成");
 console.info("[PlayerWelcome] 欢迎消息: " + (WelcomeConfig.chatMessages.enabled ? "启用" : "禁用"));
@@ -1,9 +1,6 @@
 package org.virgil.nekokjs.mixin.bridge;
 
-import net.minecraft.core.Holder;
 import net.minecraft.server.level.WorldGenRegion;
-import net.minecraft.world.level.biome.Biome;
-import net.minecraft.world.level.biome.Climate;
 import net.minecraft.world.level.chunk.ChunkAccess;
 import net.minecraft.world.level.levelgen.RandomState;
 
@@ -57,14 +54,10 @@ public interface Bridge {
     boolean onChunkCarverGenerate(WorldGenRegion level, ChunkAccess chunk, long seed);
     
     /**
-     * 生物群系选择时调用
-     * @param x 四分之一方块 X 坐标
-     * @param y 四分之一方块 Y 坐标
-     * @param z 四分之一方块 Z 坐标
-     * @param sampler 气候采样器
-     * @return 如果返回非 null，使用脚本提供的生物群系；否则使用原版逻辑
+     * 第一次查询某个区块的生物群系时调用，结果按区块缓存
+     * @param grid 区块的气候参数网格，回调把调色板下标写入其中的 biomes 数组
      */
-    Holder<Biome> onBiomeSelect(int x, int y, int z, Climate.Sampler sampler);
+    void onChunkBiomeGrid(ChunkBiomeGrid grid);
     
     /**
      * 密度函数计算时调用
@@ -77,25 +70,17 @@ public interface Bridge {
     Double onDensityFunctionCompute(int blockX, int blockY, int blockZ, double originalDensity);
     
     /**
-     * 地表规则更新时调用
-     * @param blockX 方块 X 坐标
-     * @param blockY 方块 Y 坐标
-     * @param blockZ 方块 Z 坐标
-     * @param stoneDepthAbove 上方石头深度
-     * @param stoneDepthBelow 下方石头深度
-     * @param waterHeight 水位高度
+     * NoiseChunk 填充完一个切片后调用，脚本批量修改整个切片的密度
+     * @param slice 切片数据，回调可以直接修改其中的值
+     * @return true 表示有回调正常返回，需要把数据写回 NoiseChunk（抛出异常的回调的修改已撤销）
      */
-    void onSurfaceRuleUpdate(int blockX, int blockY, int blockZ, int stoneDepthAbove, int stoneDepthBelow, int waterHeight);
+    boolean onDensitySlice(DensitySlice slice);
     
     /**
-     * 地表方块选择时调用
-     * @param blockX 方块 X 坐标
-     * @param blockY 方块 Y 坐标
-     * @param blockZ 方块 Z 坐标
-     * @param surfaceDepth 地表深度
-     * @return 如果返回非 null，使用脚本提供的方块状态；否则使用原版逻辑
+     * 区块地表生成结束后调用，每个区块一次
+     * @param columns 区块每个方块的地表规则参数，回调把调色板下标写入其中的 blocks 数组
      */
-    net.minecraft.world.level.block.state.BlockState onSurfaceBlockSelect(int blockX, int blockY, int blockZ, int surfaceDepth);
+    void onSurfaceColumns(SurfaceColumns columns);
     
     // ===== 自定义维度相关方法 =====
     
@@ -0,0 +1,175 @@
+package org.virgil.nekokjs.mixin.bridge;
+
+import net.minecraft.core.Holder;
+import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.biome.Climate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 一个区块的生物群系网格，用于区块级生物群系钩子
+ * 网格按四分之一方块（quart）划分：X、Z 方向各 4 个，Y 方向 sizeY 个，
+ * 下标为 (y * 4 + z) * 4 + x，x、y、z 是相对区块最小角的 quart 坐标
+ *
+ * 六个气候参数在调用脚本前采样一次，以基本类型数组提供；
+ * 脚本通过 paletteIndex 登记生物群系 ID，并把调色板下标写入 biomes（-1 表示使用原版结果），
+ * 回调抛出异常时用 rollback() 撤销它写了一半的修改
+ */
+public final class ChunkBiomeGrid {
+    public static final int SIZE_XZ = 4;
+
+    private final int minQuartX;
+    private final int minQuartY;
+    private final int minQuartZ;
+    private final int sizeY;
+    private final float[] temperature;
+    private final float[] humidity;
+    private final float[] continentalness;
+    private final float[] erosion;
+    private final float[] depth;
+    private final float[] weirdness;
+    private final int[] biomes;
+    private final int[] checkpoint;
+    private int checkpointPaletteSize;
+    private final List<String> palette = new ArrayList<>();
+    private Holder<Biome>[] resolvedPalette;
+
+    public ChunkBiomeGrid(int minQuartX, int minQuartY, int minQuartZ, int sizeY) {
+        this.minQuartX = minQuartX;
+        this.minQuartY = minQuartY;
+        this.minQuartZ = minQuartZ;
+        this.sizeY = sizeY;
+        int size = SIZE_XZ * SIZE_XZ * sizeY;
+        this.temperature = new float[size];
+        this.humidity = new float[size];
+        this.continentalness = new float[size];
+        this.erosion = new float[size];
+        this.depth = new float[size];
+        this.weirdness = new float[size];
+        this.biomes = new int[size];
+        Arrays.fill(biomes, -1);
+        this.checkpoint = new int[size];
+    }
+
+    /**
+     * 采样整个网格的气候参数
+     */
+    public void sample(Climate.Sampler sampler) {
+        for (int y = 0; y < sizeY; y++) {
+            for (int z = 0; z < SIZE_XZ; z++) {
+                for (int x = 0; x < SIZE_XZ; x++) {
+                    int i = index(x, y, z);
+                    Climate.TargetPoint point = sampler.sample(minQuartX + x, minQuartY + y, minQuartZ + z);
+                    temperature[i] = Climate.unquantize(point.temperature());
+                    humidity[i] = Climate.unquantize(point.humidity());
+                    continentalness[i] = Climate.unquantize(point.continentalness());
+                    erosion[i] = Climate.unquantize(point.erosion());
+                    depth[i] = Climate.unquantize(point.depth());
+                    weirdness[i] = Climate.unquantize(point.weirdness());
+                }
+            }
+        }
+    }
+
+    /**
+     * 保存当前的 biomes 和调色板，在调用每个回调前执行
+     */
+    public void checkpoint() {
+        System.arraycopy(biomes, 0, checkpoint, 0, biomes.length);
+        checkpointPaletteSize = palette.size();
+    }
+
+    /**
+     * 恢复到上一次 checkpoint() 时的 biomes 和调色板
+     */
+    public void rollback() {
+        System.arraycopy(checkpoint, 0, biomes, 0, biomes.length);
+        palette.subList(checkpointPaletteSize, palette.size()).clear();
+    }
+
+    public int index(int x, int y, int z) {
+        return (y * SIZE_XZ + z) * SIZE_XZ + x;
+    }
+
+    /**
+     * 登记生物群系 ID，返回它在调色板中的下标
+     *
+     * @param biomeId 生物群系 ID，例如 "minecraft:desert"
+     */
+    public int paletteIndex(String biomeId) {
+        int index = palette.indexOf(biomeId);
+        if (index < 0) {
+            palette.add(biomeId);
+            index = palette.size() - 1;
+        }
+        return index;
+    }
+
+    public List<String> getPalette() {
+        return palette;
+    }
+
+    /**
+     * 设置调色板对应的生物群系，无法解析的 ID 为 null（对应位置使用原版结果）
+     */
+    public void setResolvedPalette(Holder<Biome>[] resolvedPalette) {
+        this.resolvedPalette = resolvedPalette;
+    }
+
+    /**
+     * 调色板对应的生物群系，回调没有登记任何生物群系时为 null
+     */
+    public Holder<Biome>[] getResolvedPalette() {
+        return resolvedPalette;
+    }
+
+    public int getMinQuartX() {
+        return minQuartX;
+    }
+
+    public int getMinQuartY() {
+        return minQuartY;
+    }
+
+    public int getMinQuartZ() {
+        return minQuartZ;
+    }
+
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    public int getSize() {
+        return biomes.length;
+    }
+
+    public float[] getTemperature() {
+        return temperature;
+    }
+
+    public float[] getHumidity() {
+        return humidity;
+    }
+
+    public float[] getContinentalness() {
+        return continentalness;
+    }
+
+    public float[] getErosion() {
+        return erosion;
+    }
+
+    public float[] getDepth() {
+        return depth;
+    }
+
+    public float[] getWeirdness() {
+        return weirdness;
+    }
+
+    public int[] getBiomes() {
+        return biomes;
+    }
+}
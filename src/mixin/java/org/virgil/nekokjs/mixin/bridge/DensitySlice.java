@@ -0,0 +1,135 @@
+package org.virgil.nekokjs.mixin.bridge;
+
+/**
+ * NoiseChunk 一个切片的密度网格，用于批量密度钩子
+ * 切片是 X 固定的一列单元格角点：Z 方向 sizeZ 个、Y 方向 sizeY 个，
+ * values[z * sizeY + y] 是角点 (blockX, blockY(y), blockZ(z)) 的原始密度
+ *
+ * 脚本直接修改 values 中的值，钩子返回后写回 NoiseChunk，之后按原版逻辑插值；
+ * 回调抛出异常时用 rollback() 撤销它写了一半的修改。
+ * 每个 NoiseChunk 复用同一个对象，只能在回调期间使用
+ */
+public final class DensitySlice {
+    private final int minBlockY;
+    private final int minBlockZ;
+    private final int cellWidth;
+    private final int cellHeight;
+    private final int sizeY;
+    private final int sizeZ;
+    private final int interpolatorCount;
+    private final double[] values;
+    private final double[] checkpoint;
+    private int blockX;
+    private int interpolator;
+
+    public DensitySlice(int minBlockY, int minBlockZ, int cellWidth, int cellHeight, int sizeY, int sizeZ, int interpolatorCount) {
+        this.minBlockY = minBlockY;
+        this.minBlockZ = minBlockZ;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.interpolatorCount = interpolatorCount;
+        this.values = new double[sizeY * sizeZ];
+        this.checkpoint = new double[values.length];
+    }
+
+    /**
+     * 从插值器的切片数组（[z][y]）载入数据
+     */
+    public void load(int blockX, int interpolator, double[][] slice) {
+        this.blockX = blockX;
+        this.interpolator = interpolator;
+        for (int z = 0; z < sizeZ; z++) {
+            System.arraycopy(slice[z], 0, values, z * sizeY, sizeY);
+        }
+    }
+
+    /**
+     * 把修改后的数据写回插值器的切片数组
+     */
+    public void store(double[][] slice) {
+        for (int z = 0; z < sizeZ; z++) {
+            System.arraycopy(values, z * sizeY, slice[z], 0, sizeY);
+        }
+    }
+
+    /**
+     * 保存当前数据，在调用每个回调前执行
+     */
+    public void checkpoint() {
+        System.arraycopy(values, 0, checkpoint, 0, values.length);
+    }
+
+    /**
+     * 恢复到上一次 checkpoint() 时的数据
+     */
+    public void rollback() {
+        System.arraycopy(checkpoint, 0, values, 0, values.length);
+    }
+
+    public double get(int z, int y) {
+        return values[z * sizeY + y];
+    }
+
+    public void set(int z, int y, double value) {
+        values[z * sizeY + y] = value;
+    }
+
+    /**
+     * 第 y 个角点的方块 Y 坐标
+     */
+    public int blockY(int y) {
+        return minBlockY + y * cellHeight;
+    }
+
+    /**
+     * 第 z 个角点的方块 Z 坐标
+     */
+    public int blockZ(int z) {
+        return minBlockZ + z * cellWidth;
+    }
+
+    public double[] getValues() {
+        return values;
+    }
+
+    public int getBlockX() {
+        return blockX;
+    }
+
+    public int getMinBlockY() {
+        return minBlockY;
+    }
+
+    public int getMinBlockZ() {
+        return minBlockZ;
+    }
+
+    public int getCellWidth() {
+        return cellWidth;
+    }
+
+    public int getCellHeight() {
+        return cellHeight;
+    }
+
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    public int getSizeZ() {
+        return sizeZ;
+    }
+
+    /**
+     * 当前数据所属的插值器序号（NoiseChunk 中被插值的密度函数，0 开始）
+     */
+    public int getInterpolator() {
+        return interpolator;
+    }
+
+    public int getInterpolatorCount() {
+        return interpolatorCount;
+    }
+}
@@ -0,0 +1,43 @@
+package org.virgil.nekokjs.mixin.bridge;
+
+/**
+ * 世界生成钩子能力位
+ * 每一位表示对应的钩子当前是否有脚本监听，由 EventsAPI 在注册或注销回调后发布
+ *
+ * Mixin 在做任何其他工作之前先检查对应的位：没有脚本监听时只多一次 volatile 读取，
+ * 不经过 BridgeManager → NekoKJSBridge → EventManager → EventsAPI 的调用链，
+ * 也不分配缓存、不记录钩子耗时
+ */
+public final class HookCapabilities {
+    public static final int CHUNK_SURFACE = 1;
+    public static final int CHUNK_NOISE = 1 << 1;
+    public static final int CHUNK_CARVER = 1 << 2;
+    public static final int BIOME_SELECT = 1 << 3;
+    public static final int DENSITY_COMPUTE = 1 << 4;
+    public static final int SURFACE_RULE_UPDATE = 1 << 5;
+    public static final int SURFACE_BLOCK_SELECT = 1 << 6;
+    public static final int DENSITY_SLICE = 1 << 7;
+
+    private static volatile int mask;
+
+    private HookCapabilities() {
+    }
+
+    /**
+     * 指定钩子是否有脚本监听
+     */
+    public static boolean has(int hook) {
+        return (mask & hook) != 0;
+    }
+
+    /**
+     * 发布新的能力位，插件关闭时发布 0
+     */
+    public static void set(int newMask) {
+        mask = newMask;
+    }
+
+    public static int get() {
+        return mask;
+    }
+}
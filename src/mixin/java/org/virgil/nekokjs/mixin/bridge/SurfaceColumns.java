@@ -0,0 +1,291 @@
+package org.virgil.nekokjs.mixin.bridge;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.levelgen.Heightmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 一个区块的地表列参数，用于批量地表钩子
+ * buildSurface 期间记录每个方块的地表规则参数，结束后每个区块只调用一次脚本
+ *
+ * 数组按列存放：下标为 column(x, z) * height + (y - minY)，
+ * 同一列的方块在数组中连续；stoneDepthAbove 为 0 表示该位置没有经过地表规则（空气或流体）
+ *
+ * 脚本通过 paletteIndex 登记方块 ID，并把调色板下标写入 blocks（-1 表示保留原方块），
+ * 回调抛出异常时用 rollback() 撤销它写了一半的修改；
+ * 每个线程复用同一个对象，只能在回调期间使用
+ */
+public final class SurfaceColumns {
+    public static final int SIZE_XZ = 16;
+    public static final int COLUMNS = SIZE_XZ * SIZE_XZ;
+
+    private static final ThreadLocal<SurfaceColumns> current = new ThreadLocal<>();
+    private static final ThreadLocal<SurfaceColumns> buffers = new ThreadLocal<>();
+    private static final Heightmap.Types[] HEIGHTMAP_TYPES = Heightmap.Types.values();
+
+    private final int minY;
+    private final int height;
+    private final int[] stoneDepthAbove;
+    private final int[] stoneDepthBelow;
+    private final int[] waterHeight;
+    private final int[] surfaceDepth = new int[COLUMNS];
+    private final int[] blocks;
+    private final int[] checkpoint;
+    private int checkpointPaletteSize;
+    private final List<String> palette = new ArrayList<>();
+    private BlockState[] resolvedPalette;
+    private int minBlockX;
+    private int minBlockZ;
+
+    private SurfaceColumns(int minY, int height) {
+        this.minY = minY;
+        this.height = height;
+        int size = COLUMNS * height;
+        this.stoneDepthAbove = new int[size];
+        this.stoneDepthBelow = new int[size];
+        this.waterHeight = new int[size];
+        this.blocks = new int[size];
+        this.checkpoint = new int[size];
+    }
+
+    /**
+     * 开始记录当前线程正在生成地表的区块，必须与 end() 成对调用
+     */
+    public static SurfaceColumns begin(ChunkAccess chunk) {
+        SurfaceColumns columns = buffers.get();
+        if (columns == null || columns.minY != chunk.getMinY() || columns.height != chunk.getHeight()) {
+            columns = new SurfaceColumns(chunk.getMinY(), chunk.getHeight());
+            buffers.set(columns);
+        }
+        columns.reset(chunk.getPos().getMinBlockX(), chunk.getPos().getMinBlockZ());
+        current.set(columns);
+        return columns;
+    }
+
+    /**
+     * 当前线程正在记录的区块，没有时返回 null
+     */
+    public static SurfaceColumns current() {
+        return current.get();
+    }
+
+    /**
+     * 结束记录，返回记录的区块
+     */
+    public static SurfaceColumns end() {
+        SurfaceColumns columns = current.get();
+        current.remove();
+        return columns;
+    }
+
+    private void reset(int minBlockX, int minBlockZ) {
+        this.minBlockX = minBlockX;
+        this.minBlockZ = minBlockZ;
+        Arrays.fill(stoneDepthAbove, 0);
+        Arrays.fill(stoneDepthBelow, 0);
+        Arrays.fill(waterHeight, Integer.MIN_VALUE);
+        Arrays.fill(surfaceDepth, 0);
+        Arrays.fill(blocks, -1);
+        palette.clear();
+        resolvedPalette = null;
+    }
+
+    /**
+     * 保存当前的 blocks 和调色板，在调用每个回调前执行
+     */
+    public void checkpoint() {
+        System.arraycopy(blocks, 0, checkpoint, 0, blocks.length);
+        checkpointPaletteSize = palette.size();
+    }
+
+    /**
+     * 恢复到上一次 checkpoint() 时的 blocks 和调色板
+     */
+    public void rollback() {
+        System.arraycopy(checkpoint, 0, blocks, 0, blocks.length);
+        palette.subList(checkpointPaletteSize, palette.size()).clear();
+    }
+
+    /**
+     * 记录一个方块的地表规则参数，由 SurfaceRules.Context.updateY 调用
+     */
+    public void record(int blockX, int blockY, int blockZ, int stoneDepthAbove, int stoneDepthBelow,
+                       int waterHeight, int surfaceDepth) {
+        int x = blockX - minBlockX;
+        int z = blockZ - minBlockZ;
+        int y = blockY - minY;
+        if (x < 0 || x >= SIZE_XZ || z < 0 || z >= SIZE_XZ || y < 0 || y >= height) {
+            return;
+        }
+        int column = column(x, z);
+        int i = column * height + y;
+        this.stoneDepthAbove[i] = stoneDepthAbove;
+        this.stoneDepthBelow[i] = stoneDepthBelow;
+        this.waterHeight[i] = waterHeight;
+        this.surfaceDepth[column] = surfaceDepth;
+    }
+
+    public int column(int x, int z) {
+        return z * SIZE_XZ + x;
+    }
+
+    /**
+     * @param x 区块内 X 坐标（0-15）
+     * @param y 世界 Y 坐标
+     * @param z 区块内 Z 坐标（0-15）
+     */
+    public int index(int x, int y, int z) {
+        return column(x, z) * height + (y - minY);
+    }
+
+    /**
+     * 登记方块 ID，返回它在调色板中的下标
+     *
+     * @param blockId 方块 ID，例如 "minecraft:sand"
+     */
+    public int paletteIndex(String blockId) {
+        int index = palette.indexOf(blockId);
+        if (index < 0) {
+            palette.add(blockId);
+            index = palette.size() - 1;
+        }
+        return index;
+    }
+
+    public List<String> getPalette() {
+        return palette;
+    }
+
+    /**
+     * 设置调色板对应的方块状态，无法解析的 ID 为 null（对应位置保留原方块）
+     */
+    public void setResolvedPalette(BlockState[] resolvedPalette) {
+        this.resolvedPalette = resolvedPalette;
+    }
+
+    /**
+     * 一列中脚本指定的方块，下标为 y - minY，未指定的位置为 null
+     *
+     * @return 方块数组，整列都没有指定时返回 null
+     */
+    public BlockState[] getColumnOverrides(int column) {
+        if (resolvedPalette == null) {
+            return null;
+        }
+        BlockState[] states = null;
+        int base = column * height;
+        for (int y = 0; y < height; y++) {
+            int paletteIndex = blocks[base + y];
+            if (paletteIndex < 0 || paletteIndex >= resolvedPalette.length || resolvedPalette[paletteIndex] == null) {
+                continue;
+            }
+            if (states == null) {
+                states = new BlockState[height];
+            }
+            states[y] = resolvedPalette[paletteIndex];
+        }
+        return states;
+    }
+
+    /**
+     * 把一列的方块写入区块
+     * 新旧方块对所有高度图的判定相同时直接写入区块段，否则通过 setBlockState 写入，由它更新高度图
+     * （例如水和石头对 OCEAN_FLOOR_WG 的判定不同，即使两者都不是空气）
+     *
+     * @param states 下标为 y - minY 的方块数组，null 元素表示保留原方块
+     */
+    public void applyColumn(ChunkAccess chunk, int column, BlockState[] states) {
+        int x = column % SIZE_XZ;
+        int z = column / SIZE_XZ;
+        BlockPos.MutableBlockPos pos = null;
+        for (int y = 0; y < states.length; y++) {
+            BlockState state = states[y];
+            if (state == null) {
+                continue;
+            }
+            int blockY = minY + y;
+            LevelChunkSection section = chunk.getSection(chunk.getSectionIndex(blockY));
+            BlockState previous = section.getBlockState(x, blockY & 15, z);
+            if (previous == state) {
+                continue;
+            }
+            if (sameHeightmapRelevance(previous, state)) {
+                section.setBlockState(x, blockY & 15, z, state, false);
+            } else {
+                if (pos == null) {
+                    pos = new BlockPos.MutableBlockPos();
+                }
+                chunk.setBlockState(pos.set(minBlockX + x, blockY, minBlockZ + z), state, false);
+            }
+        }
+    }
+
+    /**
+     * 两个方块对每种高度图的判定是否相同，相同时替换方块不会改变高度图
+     */
+    private static boolean sameHeightmapRelevance(BlockState previous, BlockState state) {
+        for (Heightmap.Types type : HEIGHTMAP_TYPES) {
+            if (type.isOpaque().test(previous) != type.isOpaque().test(state)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getMinBlockX() {
+        return minBlockX;
+    }
+
+    public int getMinBlockZ() {
+        return minBlockZ;
+    }
+
+    public int getChunkX() {
+        return minBlockX >> 4;
+    }
+
+    public int getChunkZ() {
+        return minBlockZ >> 4;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getSize() {
+        return blocks.length;
+    }
+
+    public int[] getStoneDepthAbove() {
+        return stoneDepthAbove;
+    }
+
+    public int[] getStoneDepthBelow() {
+        return stoneDepthBelow;
+    }
+
+    public int[] getWaterHeight() {
+        return waterHeight;
+    }
+
+    /**
+     * 每列的地表深度，下标为 column(x, z)
+     */
+    public int[] getSurfaceDepth() {
+        return surfaceDepth;
+    }
+
+    public int[] getBlocks() {
+        return blocks;
+    }
+}
@@ -0,0 +1,241 @@
+package org.virgil.nekokjs.mixin.cache;
+
+import net.minecraft.core.Holder;
+import net.minecraft.core.QuartPos;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.biome.Climate;
+import org.virgil.nekokjs.mixin.bridge.Bridge;
+import org.virgil.nekokjs.mixin.bridge.ChunkBiomeGrid;
+import org.virgil.nekokjs.mixin.metrics.Counter;
+import org.virgil.nekokjs.mixin.metrics.HookMetrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 区块生物群系网格缓存管理器
+ * 用于 BiomeSourceMixin：BiomeSource.getNoiseBiome 的所有调用方（区块填充、结构生物群系检查、
+ * /locate biome、出生点搜索等）都从这里读取脚本指定的生物群系，保证同一位置的结果一致
+ *
+ * 某个区块第一次被查询时采样整个区块的气候网格并调用一次脚本钩子，
+ * 结果压缩为调色板下标数组放入固定容量的 long → 区块结果表，满时按 CLOCK 逐个淘汰；
+ * 之后同一区块的查询只读取数组。被淘汰的区块再次查询时重新调用脚本，回调需要只依赖网格参数
+ *
+ * 网格的高度范围取自使用该 Climate.Sampler 的世界，世界尚未加入服务器时（例如创建世界时的出生点搜索）
+ * 不应用脚本结果，也不缓存
+ *
+ * 脚本回调变化时（注册、卸载、重载）必须调用 clear()
+ */
+public class BiomeGridCacheManager {
+
+    public static final int DEFAULT_MAX_CHUNKS = 1024;
+
+    private static final Counter cacheHits = HookMetrics.counter(HookMetrics.CACHE, "biome.hits");
+    private static final Counter cacheMisses = HookMetrics.counter(HookMetrics.CACHE, "biome.misses");
+    private static final Counter cacheEvictions = HookMetrics.counter(HookMetrics.CACHE, "biome.evictions");
+
+    private static volatile LongObjectClockCache<ChunkEntry> cache = createCache(DEFAULT_MAX_CHUNKS);
+    private static volatile Geometry[] geometries = new Geometry[0];
+    // clear() 时递增，清空前开始计算的结果不会被当作新结果读取
+    private static volatile int generation;
+    // 当前线程正在计算网格，脚本回调中再次查询生物群系时使用原版结果，避免递归
+    private static final ThreadLocal<boolean[]> computing = ThreadLocal.withInitial(() -> new boolean[1]);
+
+    private static LongObjectClockCache<ChunkEntry> createCache(int maxChunks) {
+        return new LongObjectClockCache<>(maxChunks, cacheHits, cacheMisses, cacheEvictions);
+    }
+
+    /**
+     * 设置最多缓存的区块数，丢弃现有缓存
+     */
+    public static void configure(int maxChunks) {
+        if (maxChunks != cache.getMaxEntries()) {
+            cache = createCache(maxChunks);
+        }
+    }
+
+    /**
+     * 获取脚本为某个 quart 指定的生物群系
+     *
+     * @return 生物群系，脚本未指定、无法确定世界或正在计算网格时返回 null（使用原版结果）
+     */
+    public static Holder<Biome> getOverride(Bridge bridge, Climate.Sampler sampler, int quartX, int quartY, int quartZ) {
+        int chunkX = QuartPos.toSection(quartX);
+        int chunkZ = QuartPos.toSection(quartZ);
+        long key = key(sampler, chunkX, chunkZ);
+        LongObjectClockCache<ChunkEntry> current = cache;
+        ChunkEntry entry = current.get(key);
+        if (entry == null || !entry.matches(sampler, chunkX, chunkZ, generation)) {
+            entry = compute(bridge, sampler, chunkX, chunkZ);
+            if (entry == null) {
+                return null;
+            }
+            current.put(key, entry);
+        }
+        return entry.get(quartX, quartY, quartZ);
+    }
+
+    private static ChunkEntry compute(Bridge bridge, Climate.Sampler sampler, int chunkX, int chunkZ) {
+        boolean[] flag = computing.get();
+        if (flag[0]) {
+            return null;
+        }
+        Geometry geometry = geometry(sampler);
+        if (geometry == null) {
+            return null;
+        }
+
+        int startGeneration = generation;
+        flag[0] = true;
+        try {
+            ChunkBiomeGrid grid = new ChunkBiomeGrid(
+                    QuartPos.fromSection(chunkX), geometry.minQuartY, QuartPos.fromSection(chunkZ), geometry.sizeY);
+            try {
+                grid.sample(sampler);
+                bridge.onChunkBiomeGrid(grid);
+            } catch (Exception e) {
+                // 忽略错误，这个区块使用原版生物群系
+                return new ChunkEntry(sampler, chunkX, chunkZ, startGeneration, grid.getMinQuartY(), grid.getSizeY(), null, null);
+            }
+            return ChunkEntry.of(sampler, chunkX, chunkZ, startGeneration, grid);
+        } finally {
+            flag[0] = false;
+        }
+    }
+
+    /**
+     * 查找使用该 Climate.Sampler 的世界的高度范围
+     * 每个世界的 RandomState 持有自己的 Sampler，按引用比较；未找到时按当前世界列表重建
+     */
+    private static Geometry geometry(Climate.Sampler sampler) {
+        for (Geometry geometry : geometries) {
+            if (geometry.sampler == sampler) {
+                return geometry;
+            }
+        }
+
+        MinecraftServer server = MinecraftServer.getServer();
+        if (server == null) {
+            return null;
+        }
+        List<Geometry> rebuilt = new ArrayList<>();
+        Geometry found = null;
+        try {
+            for (ServerLevel level : server.getAllLevels()) {
+                Geometry geometry = new Geometry(level.getChunkSource().randomState().sampler(),
+                        QuartPos.fromBlock(level.getMinY()), QuartPos.fromBlock(level.getHeight()));
+                rebuilt.add(geometry);
+                if (geometry.sampler == sampler) {
+                    found = geometry;
+                }
+            }
+        } catch (RuntimeException e) {
+            // 主线程正在加载或卸载世界，下一次查询再试
+            return null;
+        }
+        // 同时丢弃已卸载世界的条目
+        geometries = rebuilt.toArray(new Geometry[0]);
+        return found;
+    }
+
+    /**
+     * 区块坐标和 Sampler 打包为键，不同世界的同一区块落在不同的槽位，读取时再校验
+     */
+    private static long key(Climate.Sampler sampler, int chunkX, int chunkZ) {
+        return ((long) chunkX << 32 | (chunkZ & 0xFFFFFFFFL)) * 31 + System.identityHashCode(sampler);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public static void clear() {
+        generation++;
+        cache.clear();
+        cacheHits.reset();
+        cacheMisses.reset();
+        cacheEvictions.reset();
+    }
+
+    /**
+     * 获取缓存的区块数
+     */
+    public static int size() {
+        return cache.size();
+    }
+
+    private record Geometry(Climate.Sampler sampler, int minQuartY, int sizeY) {
+    }
+
+    /**
+     * 一个区块的脚本结果
+     * indices 为 null 表示这个区块没有任何覆盖；创建后只读，可以被多个线程同时读取
+     */
+    private static final class ChunkEntry {
+        private final Climate.Sampler sampler;
+        private final int chunkX;
+        private final int chunkZ;
+        private final int generation;
+        private final int minQuartY;
+        private final int sizeY;
+        private final short[] indices;
+        private final Holder<Biome>[] palette;
+
+        private ChunkEntry(Climate.Sampler sampler, int chunkX, int chunkZ, int generation, int minQuartY, int sizeY,
+                           short[] indices, Holder<Biome>[] palette) {
+            this.sampler = sampler;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.generation = generation;
+            this.minQuartY = minQuartY;
+            this.sizeY = sizeY;
+            this.indices = indices;
+            this.palette = palette;
+        }
+
+        /**
+         * 压缩网格的结果，只保留解析成功的调色板下标
+         */
+        static ChunkEntry of(Climate.Sampler sampler, int chunkX, int chunkZ, int generation, ChunkBiomeGrid grid) {
+            Holder<Biome>[] palette = grid.getResolvedPalette();
+            short[] indices = null;
+            if (palette != null) {
+                int[] biomes = grid.getBiomes();
+                for (int i = 0; i < biomes.length; i++) {
+                    int index = biomes[i];
+                    boolean resolved = index >= 0 && index < palette.length && palette[index] != null;
+                    if (resolved && indices == null) {
+                        indices = new short[biomes.length];
+                        Arrays.fill(indices, 0, i, (short) -1);
+                    }
+                    if (indices != null) {
+                        indices[i] = resolved ? (short) index : -1;
+                    }
+                }
+            }
+            return new ChunkEntry(sampler, chunkX, chunkZ, generation, grid.getMinQuartY(), grid.getSizeY(),
+                    indices, indices != null ? palette : null);
+        }
+
+        boolean matches(Climate.Sampler sampler, int chunkX, int chunkZ, int generation) {
+            return this.sampler == sampler && this.chunkX == chunkX && this.chunkZ == chunkZ
+                    && this.generation == generation;
+        }
+
+        Holder<Biome> get(int quartX, int quartY, int quartZ) {
+            if (indices == null) {
+                return null;
+            }
+            int y = quartY - minQuartY;
+            if (y < 0 || y >= sizeY) {
+                return null;
+            }
+            int x = quartX - QuartPos.fromSection(chunkX);
+            int z = quartZ - QuartPos.fromSection(chunkZ);
+            int index = indices[(y * ChunkBiomeGrid.SIZE_XZ + z) * ChunkBiomeGrid.SIZE_XZ + x];
+            return index >= 0 ? palette[index] : null;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.virgil.nekokjs.mixin.cache;
+
+import org.virgil.nekokjs.mixin.metrics.Counter;
+
+import java.util.Arrays;
+
+/**
+ * 单个 NoiseChunk 的密度覆盖缓存
+ * 按单元格角点存放在一维 double 数组中，下标由角点在区块噪声网格中的位置直接计算，
+ * 查找精确且为 O(1)；只被生成该区块的线程访问，不需要加锁
+ *
+ * 未写入的位置为 NaN
+ */
+public final class ChunkDensityCache {
+    private final int minBlockX;
+    private final int minBlockY;
+    private final int minBlockZ;
+    private final int cellWidth;
+    private final int cellHeight;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final double[] values;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * @param minBlockX 网格第一个角点的方块坐标
+     * @param sizeX X 方向的角点数（单元格数 + 1）
+     */
+    ChunkDensityCache(int minBlockX, int minBlockY, int minBlockZ, int cellWidth, int cellHeight,
+                      int sizeX, int sizeY, int sizeZ, Counter hits, Counter misses) {
+        this.minBlockX = minBlockX;
+        this.minBlockY = minBlockY;
+        this.minBlockZ = minBlockZ;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.values = new double[sizeX * sizeY * sizeZ];
+        Arrays.fill(values, Double.NaN);
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * 计算方块坐标对应的下标
+     *
+     * @return 下标，坐标不是网格内的单元格角点时返回 -1（不缓存）
+     */
+    public int indexOf(int blockX, int blockY, int blockZ) {
+        int dx = blockX - minBlockX;
+        int dy = blockY - minBlockY;
+        int dz = blockZ - minBlockZ;
+        if (dx < 0 || dy < 0 || dz < 0 || dx % cellWidth != 0 || dy % cellHeight != 0 || dz % cellWidth != 0) {
+            return -1;
+        }
+        int cellX = dx / cellWidth;
+        int cellY = dy / cellHeight;
+        int cellZ = dz / cellWidth;
+        if (cellX >= sizeX || cellY >= sizeY || cellZ >= sizeZ) {
+            return -1;
+        }
+        return (cellX * sizeZ + cellZ) * sizeY + cellY;
+    }
+
+    /**
+     * @return 缓存值，未命中返回 Double.NaN
+     */
+    public double get(int index) {
+        double value = values[index];
+        if (Double.isNaN(value)) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    public void set(int index, double value) {
+        values[index] = value;
+    }
+}
@@ -0,0 +1,189 @@
+package org.virgil.nekokjs.mixin.cache;
+
+import org.virgil.nekokjs.mixin.metrics.Counter;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * long 键开放寻址表的一个分段，使用 CLOCK（二次机会）淘汰
+ * 线性探测，装载因子不超过 0.5；删除时向前移动后续条目（backward shift），不留墓碑
+ *
+ * 读取使用 StampedLock 乐观读，命中时只写一个引用位；写入持有写锁
+ * 满时时钟指针扫描槽位：引用位为 1 的清零跳过，遇到引用位为 0 的条目淘汰
+ *
+ * 引用位与占用标记分开存放：乐观读校验失败时槽位可能已经变化，
+ * 写错引用位只影响淘汰顺序，不会破坏表结构
+ *
+ * 值数组由子类持有，子类负责在 move / clear 中同步移动
+ */
+abstract class ClockStripe {
+    final StampedLock lock = new StampedLock();
+    final long[] keys;
+    private final boolean[] used;
+    private final boolean[] referenced;
+    private final int mask;
+    private final int maxSize;
+    private final Counter evictions;
+    private int size;
+    private int hand;
+
+    ClockStripe(int maxSize, Counter evictions) {
+        this.maxSize = Math.max(1, maxSize);
+        int capacity = Integer.highestOneBit(this.maxSize * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.used = new boolean[capacity];
+        this.referenced = new boolean[capacity];
+        this.mask = capacity - 1;
+        this.evictions = evictions;
+    }
+
+    /**
+     * 槽位数量，子类据此分配值数组
+     */
+    final int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * 查找键所在的槽位，未找到返回 -1
+     * 可以在乐观读中调用，结果需要通过 lock.validate 校验
+     */
+    final int indexOf(long key, int hash) {
+        for (int i = hash & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            if (!used[i]) {
+                return -1;
+            }
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 标记最近访问过，竞争时丢失一次标记不影响正确性
+     */
+    final void touch(int index) {
+        referenced[index] = true;
+    }
+
+    /**
+     * 返回键的槽位，不存在时先按需淘汰再占用一个空槽位
+     * 必须持有写锁
+     */
+    final int insertIndex(long key, int hash) {
+        int index = indexOf(key, hash);
+        if (index >= 0) {
+            referenced[index] = true;
+            return index;
+        }
+        if (size >= maxSize) {
+            evict();
+        }
+        index = hash & mask;
+        while (used[index]) {
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        used[index] = true;
+        referenced[index] = false;
+        size++;
+        return index;
+    }
+
+    /**
+     * 时钟指针扫描，淘汰第一个引用位为 0 的条目
+     */
+    private void evict() {
+        while (true) {
+            int index = hand;
+            hand = (hand + 1) & mask;
+            if (!used[index]) {
+                continue;
+            }
+            if (referenced[index]) {
+                referenced[index] = false;
+            } else {
+                removeAt(index);
+                evictions.increment();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 删除槽位上的条目，把探测链上后续的条目前移填补空位
+     */
+    private void removeAt(int index) {
+        int next = index;
+        while (true) {
+            next = (next + 1) & mask;
+            if (!used[next]) {
+                break;
+            }
+            int home = hash(keys[next]) & mask;
+            // 条目的理想位置不在 (index, next] 区间内时可以前移到 index
+            boolean movable = index <= next
+                    ? home <= index || home > next
+                    : home <= index && home > next;
+            if (movable) {
+                keys[index] = keys[next];
+                referenced[index] = referenced[next];
+                move(next, index);
+                index = next;
+            }
+        }
+        used[index] = false;
+        referenced[index] = false;
+        clear(index);
+        size--;
+    }
+
+    /**
+     * 清空整个分段，必须持有写锁
+     */
+    final void clearAll() {
+        Arrays.fill(used, false);
+        Arrays.fill(referenced, false);
+        for (int i = 0; i < used.length; i++) {
+            clear(i);
+        }
+        size = 0;
+        hand = 0;
+    }
+
+    final int size() {
+        return size;
+    }
+
+    abstract void move(int from, int to);
+
+    abstract void clear(int index);
+
+    /**
+     * 混合坐标哈希的高低位，低位用于槽位，高位用于选择分段
+     */
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * 根据总容量和 CPU 数计算分段数（2 的幂），每段至少 1024 个条目
+     */
+    static int stripeCount(int maxEntries) {
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1;
+        while (stripes > 1 && maxEntries / stripes < 1024) {
+            stripes >>= 1;
+        }
+        return stripes;
+    }
+
+    /**
+     * 选择分段使用哈希的高位，槽位使用低位，避免同一分段内集中在部分槽位
+     */
+    static int stripeIndex(int hash, int stripeMask) {
+        return (hash >>> 24) & stripeMask;
+    }
+}
@@ -0,0 +1,120 @@
+package org.virgil.nekokjs.mixin.cache;
+
+import org.virgil.nekokjs.mixin.metrics.Counter;
+
+/**
+ * long → 对象 并发缓存
+ * 键存放在基本类型数组中，不为键分配 Long 对象；按坐标哈希分段加锁，容量固定，满时按 CLOCK 淘汰
+ * 用于 BiomeGridCacheManager 缓存各区块的生物群系结果
+ *
+ * @param <V> 值类型，不能为 null
+ */
+public final class LongObjectClockCache<V> {
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final int maxEntries;
+    private final Counter hits;
+    private final Counter misses;
+
+    public LongObjectClockCache(int maxEntries, Counter hits, Counter misses, Counter evictions) {
+        this.maxEntries = Math.max(1, maxEntries);
+        int count = ClockStripe.stripeCount(this.maxEntries);
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(this.maxEntries / count, evictions);
+        }
+        this.stripeMask = count - 1;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * 获取缓存值
+     *
+     * @return 缓存值，未命中返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int hash = ClockStripe.hash(key);
+        Stripe stripe = stripes[ClockStripe.stripeIndex(hash, stripeMask)];
+        long stamp = stripe.lock.tryOptimisticRead();
+        int index = stripe.indexOf(key, hash);
+        Object value = index >= 0 ? stripe.values[index] : null;
+        if (!stripe.lock.validate(stamp)) {
+            stamp = stripe.lock.readLock();
+            try {
+                index = stripe.indexOf(key, hash);
+                value = index >= 0 ? stripe.values[index] : null;
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        if (value == null) {
+            misses.increment();
+            return null;
+        }
+        stripe.touch(index);
+        hits.increment();
+        return (V) value;
+    }
+
+    /**
+     * 放入缓存，已满时淘汰最近未访问的条目
+     */
+    public void put(long key, V value) {
+        int hash = ClockStripe.hash(key);
+        Stripe stripe = stripes[ClockStripe.stripeIndex(hash, stripeMask)];
+        long stamp = stripe.lock.writeLock();
+        try {
+            stripe.values[stripe.insertIndex(key, hash)] = value;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.writeLock();
+            try {
+                stripe.clearAll();
+            } finally {
+                stripe.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * 当前条目数（近似值，不加锁读取各分段）
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    private static final class Stripe extends ClockStripe {
+        private final Object[] values;
+
+        Stripe(int maxSize, Counter evictions) {
+            super(maxSize, evictions);
+            this.values = new Object[capacity()];
+        }
+
+        @Override
+        void move(int from, int to) {
+            values[to] = values[from];
+        }
+
+        @Override
+        void clear(int index) {
+            // 不持有已淘汰条目的引用
+            values[index] = null;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.virgil.nekokjs.mixin.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 计数器，例如缓存命中/未命中次数
+ */
+public final class Counter implements CounterMXBean {
+    private final String category;
+    private final String name;
+    private final LongAdder count = new LongAdder();
+
+    Counter(String category, String name) {
+        this.category = category;
+        this.name = name;
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long delta) {
+        count.add(delta);
+    }
+
+    @Override
+    public String getCategory() {
+        return category;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public void reset() {
+        count.reset();
+    }
+}
@@ -0,0 +1,15 @@
+package org.virgil.nekokjs.mixin.metrics;
+
+/**
+ * Counter 的 JMX 视图
+ * 对象名: org.virgil.nekokjs:type=<分类>,name=<名称>
+ */
+public interface CounterMXBean {
+    String getCategory();
+
+    String getName();
+
+    long getCount();
+
+    void reset();
+}
@@ -0,0 +1,151 @@
+package org.virgil.nekokjs.mixin.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * 热路径指标注册表
+ * Mixin 模块和插件主模块共用，按分类记录：
+ * - hook：Bridge 的每个钩子（onDensityFunctionCompute、onChunkBiomeGrid 等）
+ * - event：每个 Bukkit 事件类的脚本回调分发
+ * - pack：每个脚本包的脚本执行耗时
+ * - cache：密度函数、地表规则缓存的命中/未命中/清空次数
+ *
+ * 计时器和计数器基于 LongAdder，可以在区块生成线程上并发记录；
+ * 调用 publish() 后所有指标（包括之后创建的）注册为 JMX MXBean
+ *
+ * 由于 Mixin 模块无法访问主插件类，和 BridgeManager 一样使用静态单例
+ */
+public final class HookMetrics {
+    public static final String HOOK = "hook";
+    public static final String EVENT = "event";
+    public static final String PACK = "pack";
+    public static final String CACHE = "cache";
+
+    private static final String JMX_DOMAIN = "org.virgil.nekokjs";
+    private static final Logger LOGGER = Logger.getLogger("NekoKJS");
+
+    private static final Map<String, HookTimer> timers = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private static volatile MBeanServer mbeanServer;
+
+    // Bridge 钩子
+    public static final HookTimer SERVER_TICK = timer(HOOK, "onServerTick");
+    public static final HookTimer CHUNK_SURFACE = timer(HOOK, "onChunkSurfaceGenerate");
+    public static final HookTimer CHUNK_CARVER = timer(HOOK, "onChunkCarverGenerate");
+    public static final HookTimer BIOME_GRID = timer(HOOK, "onChunkBiomeGrid");
+    public static final HookTimer DENSITY_COMPUTE = timer(HOOK, "onDensityFunctionCompute");
+    public static final HookTimer DENSITY_SLICE = timer(HOOK, "onDensitySlice");
+    public static final HookTimer SURFACE_COLUMNS = timer(HOOK, "onSurfaceColumns");
+
+    private HookMetrics() {
+    }
+
+    /**
+     * 获取或创建计时器
+     */
+    public static HookTimer timer(String category, String name) {
+        String key = category + '.' + name;
+        HookTimer timer = timers.get(key);
+        if (timer != null) {
+            return timer;
+        }
+        return timers.computeIfAbsent(key, k -> register(new HookTimer(category, name), category, name));
+    }
+
+    /**
+     * 获取或创建计数器
+     */
+    public static Counter counter(String category, String name) {
+        String key = category + '.' + name;
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            return counter;
+        }
+        return counters.computeIfAbsent(key, k -> register(new Counter(category, name), category, name));
+    }
+
+    /**
+     * 获取某个分类下的计时器，按名称排序
+     */
+    public static List<HookTimer> getTimers(String category) {
+        return timers.values().stream()
+                .filter(timer -> timer.getCategory().equals(category))
+                .sorted(Comparator.comparing(HookTimer::getName))
+                .toList();
+    }
+
+    /**
+     * 获取某个分类下的计数器，按名称排序
+     */
+    public static List<Counter> getCounters(String category) {
+        return counters.values().stream()
+                .filter(counter -> counter.getCategory().equals(category))
+                .sorted(Comparator.comparing(Counter::getName))
+                .toList();
+    }
+
+    /**
+     * 清空全部统计（指标本身保留）
+     */
+    public static void reset() {
+        timers.values().forEach(HookTimer::reset);
+        counters.values().forEach(Counter::reset);
+    }
+
+    /**
+     * 把全部指标注册到平台 MBeanServer
+     */
+    public static synchronized void publish() {
+        if (mbeanServer != null) {
+            return;
+        }
+        mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        timers.values().forEach(timer -> register(timer, timer.getCategory(), timer.getName()));
+        counters.values().forEach(counter -> register(counter, counter.getCategory(), counter.getName()));
+    }
+
+    /**
+     * 从 MBeanServer 注销全部指标
+     */
+    public static synchronized void unpublish() {
+        MBeanServer server = mbeanServer;
+        if (server == null) {
+            return;
+        }
+        mbeanServer = null;
+        try {
+            for (ObjectName name : server.queryNames(new ObjectName(JMX_DOMAIN + ":*"), null)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            LOGGER.warning("[NekoKJS] Failed to unregister metrics MBeans: " + e.getMessage());
+        }
+    }
+
+    public static boolean isPublished() {
+        return mbeanServer != null;
+    }
+
+    private static <T> T register(T metric, String category, String name) {
+        MBeanServer server = mbeanServer;
+        if (server == null) {
+            return metric;
+        }
+        try {
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + category + ",name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(metric, objectName);
+            }
+        } catch (Exception e) {
+            LOGGER.warning("[NekoKJS] Failed to register metric " + category + "." + name + ": " + e.getMessage());
+        }
+        return metric;
+    }
+}
@@ -0,0 +1,98 @@
+package org.virgil.nekokjs.mixin.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 调用计时器
+ * 记录一个钩子、事件或脚本包的调用次数、失败次数和延迟分布
+ * 用法: long start = System.nanoTime(); try { ... } finally { timer.stop(start); }
+ */
+public final class HookTimer implements HookTimerMXBean {
+    private final String category;
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    HookTimer(String category, String name) {
+        this.category = category;
+        this.name = name;
+    }
+
+    /**
+     * 结束一次调用
+     *
+     * @param startNanos 调用开始时的 System.nanoTime()
+     */
+    public void stop(long startNanos) {
+        histogram.record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 记录一次已知耗时的调用
+     */
+    public void record(long nanos) {
+        histogram.record(nanos);
+    }
+
+    /**
+     * 记录一次失败的调用（调用本身仍需 stop）
+     */
+    public void error() {
+        errors.increment();
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    @Override
+    public String getCategory() {
+        return category;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getTotalMillis() {
+        return histogram.getTotalNanos() / 1_000_000.0;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return histogram.getMeanNanos() / 1000.0;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return histogram.getPercentileNanos(0.5) / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return histogram.getPercentileNanos(0.99) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return histogram.getMaxNanos() / 1000.0;
+    }
+
+    @Override
+    public void reset() {
+        histogram.reset();
+        errors.reset();
+    }
+}
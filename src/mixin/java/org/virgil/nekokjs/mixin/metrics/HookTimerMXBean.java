@@ -0,0 +1,27 @@
+package org.virgil.nekokjs.mixin.metrics;
+
+/**
+ * HookTimer 的 JMX 视图
+ * 对象名: org.virgil.nekokjs:type=<分类>,name=<名称>
+ */
+public interface HookTimerMXBean {
+    String getCategory();
+
+    String getName();
+
+    long getCount();
+
+    long getErrors();
+
+    double getTotalMillis();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getMaxMicros();
+
+    void reset();
+}
@@ -1,61 +1,58 @@
 package org.virgil.nekokjs.mixin.mixins.worldgen;
 
+import com.llamalad7.mixinextras.injector.wrapmethod.WrapMethod;
+import com.llamalad7.mixinextras.injector.wrapoperation.Operation;
 import net.minecraft.core.Holder;
 import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.biome.CheckerboardColumnBiomeSource;
 import net.minecraft.world.level.biome.Climate;
+import net.minecraft.world.level.biome.FixedBiomeSource;
 import net.minecraft.world.level.biome.MultiNoiseBiomeSource;
+import net.minecraft.world.level.biome.TheEndBiomeSource;
 import org.spongepowered.asm.mixin.Mixin;
-import org.spongepowered.asm.mixin.injection.At;
-import org.spongepowered.asm.mixin.injection.Inject;
-import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+import org.virgil.nekokjs.mixin.bridge.Bridge;
 import org.virgil.nekokjs.mixin.bridge.BridgeManager;
+import org.virgil.nekokjs.mixin.bridge.HookCapabilities;
+import org.virgil.nekokjs.mixin.cache.BiomeGridCacheManager;
 
 /**
- * BiomeSource Mixin
- * 用于拦截生物群系选择过程
+ * BiomeSource 生物群系 Mixin
+ * 用于按区块覆盖生物群系分布
  * 
  * 功能：
- * 1. 拦截生物群系获取 (getNoiseBiome)
- * 2. 允许 JavaScript 脚本自定义生物群系分布
+ * 1. 包装原版各个生物群系源的 getNoiseBiome
+ * 2. 每个区块只调用一次 JavaScript 钩子，传入整个区块的气候参数网格
+ * 3. 结果按区块缓存，之后的查询只读取数组，脚本未指定的位置使用原版结果
  * 
- * 注意：改为 Mixin MultiNoiseBiomeSource（最常用的实现类）
+ * 区块填充 (fillBiomesFromNoise)、结构生物群系检查、/locate biome 等都通过 getNoiseBiome 查询，
+ * 拦截这里而不是只拦截区块填充，所有查询得到同一个结果
  */
-@Mixin(MultiNoiseBiomeSource.class)
+@Mixin({MultiNoiseBiomeSource.class, TheEndBiomeSource.class, FixedBiomeSource.class, CheckerboardColumnBiomeSource.class})
 public abstract class BiomeSourceMixin {
     
     /**
-     * 拦截生物群系获取
-     * 在 MultiNoiseBiomeSource.getNoiseBiome 方法返回前注入
-     * 
-     * @param x x 坐标（四分之一方块）
-     * @param y y 坐标（四分之一方块）
-     * @param z z 坐标（四分之一方块）
-     * @param sampler 气候采样器
-     * @param cir 回调信息
+     * 优先返回脚本为该位置指定的生物群系
+     * 没有脚本监听时直接调用原版逻辑
      */
-    @Inject(
-            method = "getNoiseBiome(IIILnet/minecraft/world/level/biome/Climate$Sampler;)Lnet/minecraft/core/Holder;",
-            at = @At("RETURN"),
-            cancellable = true
+    @WrapMethod(
+            method = "getNoiseBiome(IIILnet/minecraft/world/level/biome/Climate$Sampler;)Lnet/minecraft/core/Holder;"
     )
-    private void nekokjs$onGetNoiseBiome(
-            int x,
-            int y,
-            int z,
+    private Holder<Biome> nekokjs$wrapGetNoiseBiome(
+            int quartX,
+            int quartY,
+            int quartZ,
             Climate.Sampler sampler,
-            CallbackInfoReturnable<Holder<Biome>> cir
+            Operation<Holder<Biome>> original
     ) {
-        if (BridgeManager.INSTANCE.getBridge() != null) {
-            try {
-                Holder<Biome> customBiome = BridgeManager.INSTANCE.getBridge()
-                        .onBiomeSelect(x, y, z, sampler);
-                
-                if (customBiome != null) {
-                    cir.setReturnValue(customBiome);
+        if (HookCapabilities.has(HookCapabilities.BIOME_SELECT)) {
+            Bridge bridge = BridgeManager.INSTANCE.getBridge();
+            if (bridge != null) {
+                Holder<Biome> biome = BiomeGridCacheManager.getOverride(bridge, sampler, quartX, quartY, quartZ);
+                if (biome != null) {
+                    return biome;
                 }
-            } catch (Exception e) {
-                // 忽略错误
             }
         }
+        return original.call(quartX, quartY, quartZ, sampler);
     }
 }
@@ -2,12 +2,23 @@ package org.virgil.nekokjs.mixin.mixins.worldgen;
 
 import net.minecraft.world.level.levelgen.DensityFunction;
 import net.minecraft.world.level.levelgen.NoiseChunk;
+import org.spongepowered.asm.mixin.Final;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.ModifyVariable;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.virgil.nekokjs.mixin.bridge.Bridge;
 import org.virgil.nekokjs.mixin.bridge.BridgeManager;
+import org.virgil.nekokjs.mixin.bridge.DensitySlice;
+import org.virgil.nekokjs.mixin.bridge.HookCapabilities;
+import org.virgil.nekokjs.mixin.cache.ChunkDensityCache;
 import org.virgil.nekokjs.mixin.cache.DensityCacheManager;
 
+import java.util.List;
+
 /**
  * DensityFunction Mixin
  * 用于拦截密度函数计算过程
@@ -16,6 +27,7 @@ import org.virgil.nekokjs.mixin.cache.DensityCacheManager;
  * 1. 拦截 NoiseChunk 中的密度函数求值
  * 2. 允许 JavaScript 脚本注入自定义密度计算
  * 3. 提供保底方案，确保在 Folia 环境下密度函数可控
+ * 4. 批量钩子：每填充完一个切片调用一次脚本，脚本原地修改整个切片的密度网格
  * 
  * 使用场景：
  * - 自定义地形高度计算
@@ -24,16 +36,34 @@ import org.virgil.nekokjs.mixin.cache.DensityCacheManager;
  * - 实现特殊地形效果（如浮空岛、反重力区域）
  * 
  * 性能优化：
- * - ✅ 使用独立缓存管理器（最多 50000 个值）
- * - ✅ 坐标哈希优化（精度到 0.1）
- * - ✅ 自动清理过期缓存
- * - ✅ 线程安全的并发访问
+ * - ✅ 没有脚本监听 worldgen.density 时只检查一次能力位，与原版相同
+ * - ✅ 批量钩子每个切片每个插值器只进入一次 JS，不再逐个角点调用
+ * - ✅ 缓存跟随 NoiseChunk，按单元格角点精确索引，不同位置不会互相覆盖
+ * - ✅ 区块最后一个切片填充完成后释放，不占用全局内存
+ * - ✅ 只被生成该区块的线程访问，没有锁竞争
  * 
  * 注意：由于 DensityFunction 是接口，我们改为 Mixin NoiseChunk 类
  */
 @Mixin(NoiseChunk.class)
 public abstract class DensityFunctionMixin {
     
+    @Shadow @Final private int cellWidth;
+    @Shadow @Final private int cellHeight;
+    @Shadow @Final int cellCountY;
+    @Shadow @Final private int cellCountXZ;
+    @Shadow @Final private int cellNoiseMinY;
+    @Shadow @Final private int firstCellX;
+    @Shadow @Final private int firstCellZ;
+    @Shadow @Final List<NoiseChunk.NoiseInterpolator> interpolators;
+    
+    // 本区块的密度覆盖缓存，首次调用钩子时分配
+    @Unique
+    private ChunkDensityCache nekokjs$densityCache;
+    
+    // 批量密度钩子的切片缓冲区，本区块内复用
+    @Unique
+    private DensitySlice nekokjs$densitySlice;
+    
     /**
      * 拦截密度函数计算结果
      * 在 NoiseChunk 的内部类中修改 compute 返回值
@@ -50,7 +80,11 @@ public abstract class DensityFunctionMixin {
             ordinal = 0
     )
     private double nekokjs$modifyDensityValue(double value) {
-        if (BridgeManager.INSTANCE.getBridge() == null) {
+        if (!HookCapabilities.has(HookCapabilities.DENSITY_COMPUTE)) {
+            return value;
+        }
+        Bridge bridge = BridgeManager.INSTANCE.getBridge();
+        if (bridge == null) {
             return value;
         }
         
@@ -61,32 +95,82 @@ public abstract class DensityFunctionMixin {
             int y = self.blockY();
             int z = self.blockZ();
             
-            // 计算缓存键
-            long cacheKey = DensityCacheManager.hashCoordinates(x, y, z);
+            ChunkDensityCache cache = this.nekokjs$densityCache;
+            if (cache == null) {
+                cache = DensityCacheManager.create(firstCellX, cellNoiseMinY, firstCellZ,
+                        cellWidth, cellHeight, cellCountXZ, cellCountY);
+                this.nekokjs$densityCache = cache;
+            }
             
-            // 检查缓存
-            Double cachedValue = DensityCacheManager.get(cacheKey);
-            if (cachedValue != null) {
-                DensityCacheManager.logStats();
-                return cachedValue;
+            // 检查缓存（不是单元格角点的坐标不缓存）
+            int index = cache.indexOf(x, y, z);
+            if (index >= 0) {
+                double cachedValue = cache.get(index);
+                if (!Double.isNaN(cachedValue)) {
+                    return cachedValue;
+                }
             }
             
             // 调用 JavaScript 钩子
-            Double customDensity = BridgeManager.INSTANCE.getBridge()
-                    .onDensityFunctionCompute(x, y, z, value);
-            
-            if (customDensity != null) {
-                DensityCacheManager.put(cacheKey, customDensity);
-                DensityCacheManager.logStats();
-                return customDensity;
-            } else {
-                DensityCacheManager.put(cacheKey, value);
+            Double customDensity = bridge.onDensityFunctionCompute(x, y, z, value);
+            double result = customDensity != null ? customDensity : value;
+            if (index >= 0) {
+                cache.set(index, result);
             }
+            return result;
         } catch (Exception e) {
             // 忽略错误，返回原值
         }
         
-        DensityCacheManager.logStats();
         return value;
     }
+    
+    /**
+     * 切片填充完成后调用批量密度钩子
+     * 区块最后一个切片（X 方向第 cellCountXZ 个角点）填充完成后释放缓存
+     */
+    @Inject(
+            method = "fillSlice",
+            at = @At("RETURN")
+    )
+    private void nekokjs$afterFillSlice(boolean first, int cellX, CallbackInfo ci) {
+        if (HookCapabilities.has(HookCapabilities.DENSITY_SLICE)) {
+            nekokjs$applyDensitySlice(first, cellX);
+        }
+        if (cellX >= firstCellX + cellCountXZ) {
+            this.nekokjs$densityCache = null;
+            this.nekokjs$densitySlice = null;
+        }
+    }
+    
+    /**
+     * 对每个插值器的切片调用一次批量钩子，有回调执行时写回修改后的数据
+     */
+    @Unique
+    private void nekokjs$applyDensitySlice(boolean first, int cellX) {
+        Bridge bridge = BridgeManager.INSTANCE.getBridge();
+        if (bridge == null) {
+            return;
+        }
+        
+        try {
+            DensitySlice slice = this.nekokjs$densitySlice;
+            if (slice == null) {
+                slice = new DensitySlice(cellNoiseMinY * cellHeight, firstCellZ * cellWidth,
+                        cellWidth, cellHeight, cellCountY + 1, cellCountXZ + 1, interpolators.size());
+                this.nekokjs$densitySlice = slice;
+            }
+            
+            for (int i = 0; i < interpolators.size(); i++) {
+                NoiseChunk.NoiseInterpolator interpolator = interpolators.get(i);
+                double[][] data = first ? interpolator.slice0 : interpolator.slice1;
+                slice.load(cellX * cellWidth, i, data);
+                if (bridge.onDensitySlice(slice)) {
+                    slice.store(data);
+                }
+            }
+        } catch (Exception e) {
+            // 忽略错误，保留原版密度
+        }
+    }
 }
@@ -1,8 +1,11 @@
 package org.virgil.nekokjs.mixin.mixins.worldgen;
 
+import com.llamalad7.mixinextras.injector.wrapmethod.WrapMethod;
+import com.llamalad7.mixinextras.injector.wrapoperation.Operation;
 import net.minecraft.server.level.WorldGenRegion;
 import net.minecraft.world.level.StructureManager;
 import net.minecraft.world.level.biome.BiomeManager;
+import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.chunk.ChunkAccess;
 import net.minecraft.world.level.levelgen.NoiseBasedChunkGenerator;
 import net.minecraft.world.level.levelgen.RandomState;
@@ -12,7 +15,10 @@ import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+import org.virgil.nekokjs.mixin.bridge.Bridge;
 import org.virgil.nekokjs.mixin.bridge.BridgeManager;
+import org.virgil.nekokjs.mixin.bridge.HookCapabilities;
+import org.virgil.nekokjs.mixin.bridge.SurfaceColumns;
 
 import java.util.concurrent.CompletableFuture;
 
@@ -21,7 +27,7 @@ import java.util.concurrent.CompletableFuture;
  * 用于拦截噪声地形生成过程
  * 
  * 功能：
- * 1. 拦截地表生成 (buildSurface)
+ * 1. 包装地表生成 (buildSurface)，结束后按区块应用批量地表钩子
  * 2. 拦截噪声填充 (fillFromNoise)
  * 3. 拦截洞穴雕刻 (applyCarvers)
  */
@@ -29,29 +35,60 @@ import java.util.concurrent.CompletableFuture;
 public abstract class NoiseBasedChunkGeneratorMixin {
     
     /**
-     * 拦截地表生成
-     * 在 buildSurface 方法开始时注入
-     * 允许 JavaScript 脚本自定义地表生成
+     * 包装地表生成
+     * 允许 JavaScript 脚本自定义地表生成；有地表钩子监听时记录本区块 updateY 的参数，
+     * buildSurface 结束后调用一次脚本并写入每列的结果
+     *
+     * 记录状态在 finally 中清除，buildSurface 抛出异常时不会残留到同一线程的下一个区块
+     *
+     * 地表结果不跨区块缓存：结果取决于列下方已生成的地形和脚本回调，每个区块都重新调用脚本
      */
-    @Inject(
-            method = "buildSurface(Lnet/minecraft/server/level/WorldGenRegion;Lnet/minecraft/world/level/StructureManager;Lnet/minecraft/world/level/levelgen/RandomState;Lnet/minecraft/world/level/chunk/ChunkAccess;)V",
-            at = @At("HEAD"),
-            cancellable = true
+    @WrapMethod(
+            method = "buildSurface(Lnet/minecraft/server/level/WorldGenRegion;Lnet/minecraft/world/level/StructureManager;Lnet/minecraft/world/level/levelgen/RandomState;Lnet/minecraft/world/level/chunk/ChunkAccess;)V"
     )
-    private void nekokjs$onBuildSurface(
+    private void nekokjs$wrapBuildSurface(
             WorldGenRegion level,
             StructureManager structureManager,
             RandomState random,
             ChunkAccess chunk,
-            CallbackInfo ci
+            Operation<Void> original
     ) {
-        if (BridgeManager.INSTANCE.getBridge() != null) {
+        if (HookCapabilities.has(HookCapabilities.CHUNK_SURFACE) && BridgeManager.INSTANCE.getBridge() != null) {
             boolean handled = BridgeManager.INSTANCE.getBridge()
                     .onChunkSurfaceGenerate(level, chunk);
             
             if (handled) {
-                // 如果脚本处理了地表生成，取消原版逻辑
-                ci.cancel();
+                // 如果脚本处理了地表生成，跳过原版逻辑
+                return;
+            }
+        }
+        
+        if ((HookCapabilities.get() & (HookCapabilities.SURFACE_RULE_UPDATE | HookCapabilities.SURFACE_BLOCK_SELECT)) == 0) {
+            original.call(level, structureManager, random, chunk);
+            return;
+        }
+        
+        SurfaceColumns columns = SurfaceColumns.begin(chunk);
+        try {
+            original.call(level, structureManager, random, chunk);
+        } finally {
+            SurfaceColumns.end();
+        }
+        
+        Bridge bridge = BridgeManager.INSTANCE.getBridge();
+        if (bridge == null) {
+            return;
+        }
+        try {
+            bridge.onSurfaceColumns(columns);
+        } catch (Exception e) {
+            // 忽略错误，保留原版地表
+            return;
+        }
+        for (int column = 0; column < SurfaceColumns.COLUMNS; column++) {
+            BlockState[] states = columns.getColumnOverrides(column);
+            if (states != null) {
+                columns.applyColumn(chunk, column, states);
             }
         }
     }
@@ -73,7 +110,7 @@ public abstract class NoiseBasedChunkGeneratorMixin {
             ChunkAccess chunk,
             CallbackInfoReturnable<CompletableFuture<ChunkAccess>> cir
     ) {
-        if (BridgeManager.INSTANCE.getBridge() != null) {
+        if (HookCapabilities.has(HookCapabilities.CHUNK_NOISE) && BridgeManager.INSTANCE.getBridge() != null) {
             CompletableFuture<ChunkAccess> result = BridgeManager.INSTANCE.getBridge()
                     .onChunkNoiseGenerate(chunk, randomState);
             
@@ -103,7 +140,7 @@ public abstract class NoiseBasedChunkGeneratorMixin {
             ChunkAccess chunk,
             CallbackInfo ci
     ) {
-        if (BridgeManager.INSTANCE.getBridge() != null) {
+        if (HookCapabilities.has(HookCapabilities.CHUNK_CARVER) && BridgeManager.INSTANCE.getBridge() != null) {
             boolean handled = BridgeManager.INSTANCE.getBridge()
                     .onChunkCarverGenerate(level, chunk, seed);
             
@@ -0,0 +1,151 @@
+package org.virgil.nekokjs.script;
+
+import dev.latvian.mods.rhino.Context;
+import dev.latvian.mods.rhino.Scriptable;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Context 池的线程独占性测试
+ * 32 个线程同时借出、嵌套借出和归还 Context，校验：
+ * - 一个 Lease（及其 Context、临时作用域）同一时间只被一个线程持有
+ * - 同一线程内嵌套借出返回同一个 Lease
+ * - 结束后没有未归还的 Context
+ */
+class ContextPoolTest {
+    private static final Logger LOGGER = Logger.getLogger("NekoKJS-Test");
+    private static final int THREADS = 32;
+    private static final int ITERATIONS = 2_000;
+
+    static {
+        LOGGER.setLevel(Level.WARNING);
+    }
+
+    private ScriptEngine scriptEngine;
+    private ContextPool contextPool;
+
+    @BeforeEach
+    void setup(@TempDir Path dataFolder) {
+        scriptEngine = new ScriptEngine(LOGGER, new YamlConfiguration(), dataFolder.toFile(), "test");
+        contextPool = scriptEngine.getContextPool();
+    }
+
+    @Test
+    void leasesAreNotSharedBetweenThreads() throws Exception {
+        Map<ContextPool.Lease, Thread> leaseHolders = Collections.synchronizedMap(new IdentityHashMap<>());
+        Map<Context, Thread> contextHolders = Collections.synchronizedMap(new IdentityHashMap<>());
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        long acquiredBefore = contextPool.getAcquiredCount();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    Thread self = Thread.currentThread();
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        try (ContextPool.Lease lease = scriptEngine.acquire()) {
+                            Context cx = lease.context();
+                            Thread leaseHolder = leaseHolders.putIfAbsent(lease, self);
+                            Thread contextHolder = contextHolders.putIfAbsent(cx, self);
+                            if (leaseHolder != null || contextHolder != null) {
+                                failures.add("Lease held by " + (leaseHolder != null ? leaseHolder : contextHolder).getName()
+                                        + " was leased to " + self.getName());
+                            }
+                            try {
+                                try (ContextPool.Lease nested = scriptEngine.acquire()) {
+                                    if (nested != lease) {
+                                        failures.add("Nested acquire on " + self.getName() + " returned a different lease");
+                                    }
+                                    if (contextPool.currentLease() != lease) {
+                                        failures.add("currentLease() on " + self.getName() + " is not the outer lease");
+                                    }
+                                }
+                                Scriptable scratch = lease.scratchScope();
+                                if (scratch != lease.scratchScope()) {
+                                    failures.add("scratchScope() on " + self.getName() + " changed within one lease");
+                                }
+                            } finally {
+                                if (leaseHolder == null) {
+                                    leaseHolders.remove(lease);
+                                }
+                                if (contextHolder == null) {
+                                    contextHolders.remove(cx);
+                                }
+                            }
+                        }
+                        if (contextPool.isHeld()) {
+                            failures.add(self.getName() + " still holds a lease after closing it");
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(failures.isEmpty(), () -> failures.size() + " failures, first: " + failures.peek());
+        assertEquals(0, contextPool.getActiveCount());
+        assertEquals((long) THREADS * ITERATIONS, contextPool.getAcquiredCount() - acquiredBefore);
+    }
+
+    @Test
+    void nestedAcquireReturnsSameLease() {
+        try (ContextPool.Lease lease = scriptEngine.acquire()) {
+            try (ContextPool.Lease nested = scriptEngine.acquire()) {
+                assertSame(lease, nested);
+                assertSame(lease.context(), nested.context());
+            }
+            assertTrue(contextPool.isHeld());
+            assertSame(lease, contextPool.currentLease());
+        }
+        assertFalse(contextPool.isHeld());
+        assertEquals(0, contextPool.getActiveCount());
+    }
+
+    @Test
+    void leaseCannotBeClosedByAnotherThread() throws Exception {
+        try (ContextPool.Lease lease = scriptEngine.acquire()) {
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Future<?> future = executor.submit(() -> assertThrows(IllegalStateException.class, lease::close));
+                future.get(10, TimeUnit.SECONDS);
+            } finally {
+                executor.shutdownNow();
+            }
+            assertTrue(contextPool.isHeld());
+        }
+        assertEquals(0, contextPool.getActiveCount());
+    }
+}